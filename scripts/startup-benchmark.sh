@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+#
+# Compares startup and first-request latency of the jvm, cds and native images.
+#
+# Builds each Dockerfile target, then starts it RUNS times and measures
+#   ready:  container start until /actuator/health answers UP
+#   first:  latency of the first /api/cryptos/stats request after that
+#
+# Expects target/recommendations-*.jar built with the cds profile: mvn -Pcds,startup-benchmark verify
+# TARGETS=jvm,cds RUNS=3 scripts/startup-benchmark.sh
+
+set -euo pipefail
+
+TARGETS=${TARGETS:-jvm,cds,native}
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-60}
+IMAGE=faptic-recommendations-benchmark
+
+now_ms() {
+	date +%s%3N
+}
+
+median() {
+	sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+measure() {
+	local target=$1
+	local container start ready first
+
+	container=$(docker run -d --rm -p "${PORT}:8080" "${IMAGE}:${target}")
+	start=$(now_ms)
+
+	until curl -fs "localhost:${PORT}/actuator/health" | grep -q '"UP"'; do
+		if (( $(now_ms) - start > TIMEOUT_SECONDS * 1000 )); then
+			docker logs "${container}" >&2
+			docker stop "${container}" > /dev/null
+			echo "${target} did not become ready within ${TIMEOUT_SECONDS}s" >&2
+			exit 1
+		fi
+		sleep 0.02
+	done
+	ready=$(( $(now_ms) - start ))
+
+	first=$(curl -fs -o /dev/null -w '%{time_total}' "localhost:${PORT}/api/cryptos/stats" | awk '{ printf "%d", $1 * 1000 }')
+
+	docker stop "${container}" > /dev/null
+	echo "${ready} ${first}"
+}
+
+IFS=',' read -ra targets <<< "${TARGETS}"
+
+for target in "${targets[@]}"; do
+	echo "Building ${target} image" >&2
+	docker build -q --target "${target}" -t "${IMAGE}:${target}" . > /dev/null
+done
+
+printf '%-8s %12s %12s\n' target ready_ms first_ms
+for target in "${targets[@]}"; do
+	results=()
+	for (( run = 0; run < RUNS; run++ )); do
+		results+=("$(measure "${target}")")
+	done
+	ready=$(printf '%s\n' "${results[@]}" | cut -d' ' -f1 | median)
+	first=$(printf '%s\n' "${results[@]}" | cut -d' ' -f2 | median)
+	printf '%-8s %12s %12s\n' "${target}" "${ready}" "${first}"
+done
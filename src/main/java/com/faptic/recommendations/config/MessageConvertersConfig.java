@@ -0,0 +1,23 @@
+package com.faptic.recommendations.config;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class MessageConvertersConfig {
+
+	/**
+	 * Serves {@code application/cbor} to clients that ask for it, with timestamps as integer epoch milliseconds
+	 * instead of ISO strings. Replaces the default CBOR converter, JSON stays the default representation.
+	 */
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+		return new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor()
+				.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.featuresToDisable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS)
+				.build());
+	}
+}
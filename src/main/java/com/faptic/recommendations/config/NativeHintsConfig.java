@@ -0,0 +1,35 @@
+package com.faptic.recommendations.config;
+
+import com.faptic.recommendations.model.AlertType;
+import com.faptic.recommendations.model.CorrelationMatrix;
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.CryptoScore;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.model.DailyHighestRange;
+import com.faptic.recommendations.model.PriceAlert;
+import com.faptic.recommendations.model.ResampledPrices;
+import com.faptic.recommendations.model.SeriesCoverage;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Hints for the native image: the Lombok models are serialized by Jackson and introspected by springdoc
+ * through reflection, so every class of the model package is listed here, and the price CSVs are looked up by pattern at startup.
+ */
+@Configuration
+@RegisterReflectionForBinding({AlertType.class, CorrelationMatrix.class, CryptoRecord.class, CryptoScore.class, CryptoStats.class,
+		DailyHighestRange.class, PriceAlert.class, ResampledPrices.class, SeriesCoverage.class})
+@ImportRuntimeHints(NativeHintsConfig.PriceResourcesHints.class)
+public class NativeHintsConfig {
+
+	static class PriceResourcesHints implements RuntimeHintsRegistrar {
+
+		@Override
+		public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+			hints.resources().registerPattern("prices/*.csv");
+		}
+	}
+}
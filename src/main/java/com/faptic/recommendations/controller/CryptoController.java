@@ -1,22 +1,54 @@
 package com.faptic.recommendations.controller;
 
 import com.faptic.recommendations.exception.DataNotFoundException;
+import com.faptic.recommendations.exception.InvalidPageLimitException;
 import com.faptic.recommendations.exception.SymbolNotFoundException;
+import com.faptic.recommendations.model.CorrelationMatrix;
+import com.faptic.recommendations.model.CryptoScore;
 import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.model.DailyHighestRange;
+import com.faptic.recommendations.model.ResampledPrices;
+import com.faptic.recommendations.model.SeriesCoverage;
+import com.faptic.recommendations.repository.FillMethod;
+import com.faptic.recommendations.repository.SymbolDictionary;
+import com.faptic.recommendations.service.CorrelationService;
 import com.faptic.recommendations.service.CryptoService;
+import com.faptic.recommendations.service.QueryAdmissionService;
+import com.faptic.recommendations.service.ResamplingService;
+import com.faptic.recommendations.service.alert.AlertCondition;
+import com.faptic.recommendations.service.alert.AlertService;
+import com.faptic.recommendations.service.alert.AlertSubscription;
+import com.faptic.recommendations.service.export.ArrowStreamWriter;
+import com.faptic.recommendations.service.export.SeriesExport;
+import com.faptic.recommendations.service.export.SeriesExportService;
+import com.faptic.recommendations.service.export.TickPage;
+import com.faptic.recommendations.service.leaderboard.LeaderboardService;
+import com.faptic.recommendations.service.scoring.ScoringService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneOffset;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -26,22 +58,52 @@ import java.util.List;
 @Tag(name = "CryptoController", description = "The CryptoController provides statistical data about cryptocurrencies")
 public class CryptoController {
 
+	public static final String DATA_VERSION_HEADER = "X-Data-Version";
+
 	@Value("${faptic.timeframe.startDate}")
 	private String startDate;
 
 	@Value("${faptic.timeframe.endDate}")
 	private String endDate;
 
+	@Value("${faptic.alerts.timeout:30m}")
+	private Duration alertTimeout;
+
 	private final CryptoService cryptoService;
 
+	private final CorrelationService correlationService;
+
+	private final ScoringService scoringService;
+
+	private final SeriesExportService seriesExportService;
+
+	private final LeaderboardService leaderboardService;
+
+	private final ResamplingService resamplingService;
+
+	private final QueryAdmissionService queryAdmissionService;
+
+	private final AlertService alertService;
+
 	@GetMapping("/stats")
 	@Operation(summary = "Get statistics of all cryptos within a date range", description = "Provide an optional date range to filter the statistics")
 	public ResponseEntity<List<CryptoStats>> getCryptoStats(
 			@Parameter(description = "Start date for the statistics period", example = "2022-01-01")
 			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 			@Parameter(description = "End date for the statistics period", example = "2022-01-31")
-			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone,
+			@Parameter(description = "Data version from the X-Data-Version header of an earlier response; only cryptos changed since are returned, 304 if none", example = "42")
+			@RequestParam(required = false) Long since,
+			WebRequest request
 	) {
+		// read before computing, so a response is never labelled newer than its data
+		long version = cryptoService.getDataVersion();
+		if (request.checkNotModified(dataTag(version))) {
+			return null;
+		}
+
 		if (startDate == null) {
 			startDate = LocalDate.parse(this.startDate);
 		}
@@ -49,12 +111,31 @@ public class CryptoController {
 			endDate = LocalDate.parse(this.endDate);
 		}
 
-		Instant startInstant = startDate.atStartOfDay().toInstant(ZoneOffset.UTC);
-		Instant endInstant = endDate.atStartOfDay().toInstant(ZoneOffset.UTC);
+		zone = zone.normalized();
+		Instant startInstant = startDate.atStartOfDay(zone).toInstant();
+		Instant endInstant = endDate.atStartOfDay(zone).toInstant();
 
 		log.debug("Query interval {} - {} ", startInstant, endInstant);
 
-		return ResponseEntity.ok(cryptoService.getAllCryptoStatsByNormalizedRange(startInstant, endInstant));
+		ZoneId queryZone = zone;
+		// a version from before a restart may be ahead of the current one, it then gets everything
+		if (since != null && since <= version) {
+			int[] changed = cryptoService.getSymbolIdsChangedSince(since);
+			if (changed.length == 0) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).header(DATA_VERSION_HEADER, String.valueOf(version)).build();
+			}
+
+			long estimatedRows = 0;
+			for (int symbolId : changed) {
+				estimatedRows += cryptoService.estimateRows(symbolId, startInstant, endInstant);
+			}
+			return ResponseEntity.ok().header(DATA_VERSION_HEADER, String.valueOf(version)).body(queryAdmissionService.execute(estimatedRows,
+					() -> cryptoService.getCryptoStatsByNormalizedRange(changed, startInstant, endInstant, queryZone)));
+		}
+
+		// admitted by the service, so identical concurrent requests take a single lane slot
+		return ResponseEntity.ok().header(DATA_VERSION_HEADER, String.valueOf(version))
+				.body(cryptoService.getAllCryptoStatsByNormalizedRange(startInstant, endInstant, queryZone));
 	}
 
 	@GetMapping("/stats/{symbol}")
@@ -66,11 +147,25 @@ public class CryptoController {
 			@Parameter(description = "Start date for the statistics period", example = "2022-01-01")
 			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 			@Parameter(description = "End date for the statistics period", example = "2022-01-31")
-			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone,
+			@Parameter(description = "Data version from the X-Data-Version header of an earlier response; 304 if the crypto has not changed since", example = "42")
+			@RequestParam(required = false) Long since,
+			WebRequest request
 	) {
 		// consideration
 		// safeguard recommendations service endpoints from not currently supported cryptos
-		if (cryptoService.isKnownSymbol(symbol)) {
+		int symbolId = cryptoService.getSymbolId(symbol);
+		if (symbolId != SymbolDictionary.UNKNOWN) {
+			long version = cryptoService.getDataVersion();
+			long symbolVersion = cryptoService.getSymbolVersion(symbolId);
+			if (request.checkNotModified(dataTag(symbolVersion))) {
+				return null;
+			}
+			if (since != null && since <= version && symbolVersion <= since) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).header(DATA_VERSION_HEADER, String.valueOf(version)).build();
+			}
 
 			if (startDate == null) {
 				startDate = LocalDate.parse(this.startDate);
@@ -79,12 +174,16 @@ public class CryptoController {
 				endDate = LocalDate.parse(this.endDate);
 			}
 
-			Instant startInstant = startDate.atStartOfDay().toInstant(ZoneOffset.UTC);
-			Instant endInstant = endDate.atStartOfDay().toInstant(ZoneOffset.UTC);
+			zone = zone.normalized();
+			Instant startInstant = startDate.atStartOfDay(zone).toInstant();
+			Instant endInstant = endDate.atStartOfDay(zone).toInstant();
 
 			log.debug("Query interval {} - {} ", startInstant, endInstant);
 
-			return ResponseEntity.ok(cryptoService.getCryptoStatsForSymbol(symbol, startInstant, endInstant));
+			ZoneId queryZone = zone;
+			return ResponseEntity.ok().header(DATA_VERSION_HEADER, String.valueOf(version)).body(queryAdmissionService.execute(
+					cryptoService.estimateRows(symbolId, startInstant, endInstant),
+					() -> cryptoService.getCryptoStatsForSymbol(symbolId, startInstant, endInstant, queryZone)));
 		} else {
 			throw new SymbolNotFoundException(symbol);
 		}
@@ -95,10 +194,17 @@ public class CryptoController {
 			description = "Retrieve the cryptocurrency that had the highest normalized range for a given day. Returns 404 if no data is available for the given date.")
 	public ResponseEntity<CryptoStats> getCryptoWithHighestRangeForDay(
 			@Parameter(description = "The date to fetch the cryptocurrency with the highest normalized range", example = "2022-01-01")
-			@PathVariable String date) {
-		Instant day = LocalDate.parse(date).atStartOfDay().toInstant(ZoneOffset.UTC);
+			@PathVariable String date,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone,
+			WebRequest request
+	) {
+		if (request.checkNotModified(dataTag(cryptoService.getDataVersion()))) {
+			return null;
+		}
 
-		CryptoStats rangeForDay = cryptoService.getCryptoWithHighestRangeForDay(day);
+		LocalDate day = LocalDate.parse(date);
+		CryptoStats rangeForDay = cryptoService.getCryptoWithHighestRangeForDay(day, zone.normalized());
 
 		if (rangeForDay != null) {
 			return ResponseEntity.ok(rangeForDay);
@@ -106,4 +212,354 @@ public class CryptoController {
 			throw new DataNotFoundException("No data available for the date: " + date);
 		}
 	}
+
+	@GetMapping("/highest-range")
+	@Operation(summary = "Get the crypto with the highest normalized range for every day of a date range",
+			description = "Returns the winning cryptocurrency and its stats for each day between start and end, both inclusive, that has data. Defaults to the configured timeframe; returns 400 for ranges of more than 3660 days and 404 if no day in the range has data.")
+	public ResponseEntity<List<DailyHighestRange>> getCryptosWithHighestRangeByDay(
+			@Parameter(description = "First day of the range", example = "2022-01-01")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+			@Parameter(description = "Last day of the range, inclusive", example = "2022-01-31")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone,
+			WebRequest request
+	) {
+		if (request.checkNotModified(dataTag(cryptoService.getDataVersion()))) {
+			return null;
+		}
+
+		LocalDate startDay = start != null ? start : LocalDate.parse(this.startDate);
+		LocalDate endDay = end != null ? end : LocalDate.parse(this.endDate);
+		if (endDay.isBefore(startDay)) {
+			throw new DateTimeException("End " + endDay + " is before start " + startDay);
+		}
+		if (ChronoUnit.DAYS.between(startDay, endDay) >= CryptoService.MAX_DAY_RANGE) {
+			throw new DateTimeException("Range from " + startDay + " to " + endDay + " exceeds " + CryptoService.MAX_DAY_RANGE + " days");
+		}
+
+		List<DailyHighestRange> days = cryptoService.getCryptosWithHighestRangeByDay(startDay, endDay, zone.normalized());
+
+		if (days.isEmpty()) {
+			throw new DataNotFoundException("No data available between " + startDay + " and " + endDay);
+		}
+		return ResponseEntity.ok(days);
+	}
+
+	@GetMapping("/correlation")
+	@Operation(summary = "Get the correlation matrix of all cryptos within a date range",
+			description = "Aligns the price series on a common time grid and returns the pairwise correlation of their returns. Returns 404 if the range holds too little data.")
+	public ResponseEntity<CorrelationMatrix> getCorrelationMatrix(
+			@Parameter(description = "Start date for the correlation period", example = "2022-01-01")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+			@Parameter(description = "End date for the correlation period", example = "2022-01-31")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+			@Parameter(description = "Spacing of the time grid as an ISO-8601 duration", example = "PT12H")
+			@RequestParam(defaultValue = "P1D") String interval,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone
+	) {
+		if (startDate == null) {
+			startDate = LocalDate.parse(this.startDate);
+		}
+		if (endDate == null) {
+			endDate = LocalDate.parse(this.endDate);
+		}
+
+		Duration gridInterval = parseGridInterval(interval);
+
+		zone = zone.normalized();
+		Instant startInstant = startDate.atStartOfDay(zone).toInstant();
+		Instant endInstant = endDate.atStartOfDay(zone).toInstant();
+
+		log.debug("Correlation interval {} - {} every {}", startInstant, endInstant, gridInterval);
+
+		CorrelationMatrix matrix = correlationService.getCorrelationMatrix(startInstant, endInstant, gridInterval);
+
+		if (matrix != null) {
+			return ResponseEntity.ok(matrix);
+		} else {
+			throw new DataNotFoundException("Not enough data to correlate between " + startDate + " and " + endDate);
+		}
+	}
+
+	@GetMapping("/{symbol}/resampled")
+	@Operation(summary = "Get the prices of a crypto on a regular time grid",
+			description = "Resamples the irregular ticks onto the grid startDate + k * interval, forward filling or interpolating between ticks. Returns 404 if the symbol is not supported or no grid point lies within its data.")
+	public ResponseEntity<ResampledPrices> getResampledPrices(
+			@Parameter(description = "The symbol of the crypto", example = "BTC")
+			@PathVariable String symbol,
+			@Parameter(description = "Start date of the grid", example = "2022-01-01")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+			@Parameter(description = "End date of the grid", example = "2022-01-31")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+			@Parameter(description = "Spacing of the time grid as an ISO-8601 duration", example = "PT12H")
+			@RequestParam(defaultValue = "PT1H") String interval,
+			@Parameter(description = "FORWARD takes the last price, LINEAR interpolates between the surrounding ticks", example = "LINEAR")
+			@RequestParam(defaultValue = "FORWARD") FillMethod fill,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone
+	) {
+		int symbolId = cryptoService.getSymbolId(symbol);
+		if (symbolId == SymbolDictionary.UNKNOWN) {
+			throw new SymbolNotFoundException(symbol);
+		}
+		if (startDate == null) {
+			startDate = LocalDate.parse(this.startDate);
+		}
+		if (endDate == null) {
+			endDate = LocalDate.parse(this.endDate);
+		}
+
+		Duration gridInterval = parseGridInterval(interval);
+
+		zone = zone.normalized();
+		Instant startInstant = startDate.atStartOfDay(zone).toInstant();
+		Instant endInstant = endDate.atStartOfDay(zone).toInstant();
+
+		ResampledPrices prices = queryAdmissionService.execute(cryptoService.estimateRows(symbolId, startInstant, endInstant),
+				() -> resamplingService.getResampledPrices(symbolId, startInstant, endInstant, gridInterval, fill));
+
+		if (prices != null) {
+			return ResponseEntity.ok(prices);
+		} else {
+			throw new DataNotFoundException("No grid point within the data of " + symbol + " between " + startDate + " and " + endDate);
+		}
+	}
+
+	@GetMapping("/coverage")
+	@Operation(summary = "Get gap and coverage statistics of all cryptos within a date range",
+			description = "Splits the range into intervals of the given length and reports per crypto how many of them hold ticks, how many gaps there are and how long the longest one is.")
+	public ResponseEntity<List<SeriesCoverage>> getCoverage(
+			@Parameter(description = "Start date for the coverage period", example = "2022-01-01")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+			@Parameter(description = "End date for the coverage period", example = "2022-01-31")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+			@Parameter(description = "Length of the intervals as an ISO-8601 duration", example = "PT12H")
+			@RequestParam(defaultValue = "PT1H") String interval,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone
+	) {
+		if (startDate == null) {
+			startDate = LocalDate.parse(this.startDate);
+		}
+		if (endDate == null) {
+			endDate = LocalDate.parse(this.endDate);
+		}
+
+		Duration gridInterval = parseGridInterval(interval);
+
+		zone = zone.normalized();
+		Instant startInstant = startDate.atStartOfDay(zone).toInstant();
+		Instant endInstant = endDate.atStartOfDay(zone).toInstant();
+
+		return ResponseEntity.ok(queryAdmissionService.execute(cryptoService.estimateRows(startInstant, endInstant),
+				() -> resamplingService.getCoverage(startInstant, endInstant, gridInterval)));
+	}
+
+	@GetMapping("/rank")
+	@Operation(summary = "Rank all cryptos within a date range by one or more metrics",
+			description = "Scores each crypto by the requested metrics (normalized-range, volatility, momentum, drawdown, sharpe) and sorts descending by the first one. Returns 400 for an unknown metric.")
+	public ResponseEntity<List<CryptoScore>> rankCryptos(
+			@Parameter(description = "Metrics to score by, the first one decides the order", example = "volatility")
+			@RequestParam(name = "metric", defaultValue = "normalized-range") List<String> metrics,
+			@Parameter(description = "Start date for the ranking period", example = "2022-01-01")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+			@Parameter(description = "End date for the ranking period", example = "2022-01-31")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone
+	) {
+		if (startDate == null) {
+			startDate = LocalDate.parse(this.startDate);
+		}
+		if (endDate == null) {
+			endDate = LocalDate.parse(this.endDate);
+		}
+
+		zone = zone.normalized();
+		Instant startInstant = startDate.atStartOfDay(zone).toInstant();
+		Instant endInstant = endDate.atStartOfDay(zone).toInstant();
+
+		log.debug("Ranking by {} over {} - {}", metrics, startInstant, endInstant);
+
+		return ResponseEntity.ok(scoringService.rank(metrics, startInstant, endInstant));
+	}
+
+	@GetMapping("/leaderboard/{window}")
+	@Operation(summary = "Get the materialized leaderboard of a named window",
+			description = "Returns all cryptos with data in the window sorted descending by normalized range. The default window is the configured timeframe, the others cover the most recent data, e.g. 24h. Returns 404 for an unknown window.")
+	public ResponseEntity<List<CryptoStats>> getLeaderboard(
+			@Parameter(description = "Name of the window", example = "24h")
+			@PathVariable String window
+	) {
+		List<CryptoStats> leaderboard = leaderboardService.getLeaderboard(window);
+
+		if (leaderboard != null) {
+			return ResponseEntity.ok(leaderboard);
+		} else {
+			throw new DataNotFoundException("Unknown leaderboard window: " + window + ", available: " + leaderboardService.getWindowNames());
+		}
+	}
+
+	@GetMapping(value = "/series", produces = ArrowStreamWriter.MEDIA_TYPE)
+	@Operation(summary = "Export the ticks of cryptos within a date range as an Arrow IPC stream",
+			description = "Streams symbol, timestamp and price columns, one record batch per crypto. Exports all cryptos unless symbols are given. Returns 404 if a symbol is not supported.")
+	public void exportSeries(
+			@Parameter(description = "Symbols to export, all cryptos if omitted", example = "BTC")
+			@RequestParam(name = "symbol", required = false) List<String> symbols,
+			@Parameter(description = "Start date for the export period", example = "2022-01-01")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+			@Parameter(description = "End date for the export period", example = "2022-01-31")
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+			@Parameter(description = "Time zone in which days start, defaults to UTC", example = "Europe/Berlin")
+			@RequestParam(defaultValue = "UTC") ZoneId zone,
+			HttpServletResponse response
+	) throws IOException {
+		if (startDate == null) {
+			startDate = LocalDate.parse(this.startDate);
+		}
+		if (endDate == null) {
+			endDate = LocalDate.parse(this.endDate);
+		}
+
+		zone = zone.normalized();
+		Instant startInstant = startDate.atStartOfDay(zone).toInstant();
+		Instant endInstant = endDate.atStartOfDay(zone).toInstant();
+
+		// resolve every symbol before the first byte is written, so an unknown one still gets a 404
+		int[] symbolIds = new int[symbols != null ? symbols.size() : 0];
+		long estimatedRows = 0;
+		for (int i = 0; i < symbolIds.length; i++) {
+			symbolIds[i] = cryptoService.getSymbolId(symbols.get(i));
+			if (symbolIds[i] == SymbolDictionary.UNKNOWN) {
+				throw new SymbolNotFoundException(symbols.get(i));
+			}
+			estimatedRows += cryptoService.estimateRows(symbolIds[i], startInstant, endInstant);
+		}
+		if (symbolIds.length == 0) {
+			estimatedRows = cryptoService.estimateRows(startInstant, endInstant);
+		}
+
+		log.debug("Exporting {} over {} - {}", symbols, startInstant, endInstant);
+
+		// the ticks are located on a lane, writing them only waits for the client and holds no lane slot
+		SeriesExport export = queryAdmissionService.execute(estimatedRows, () -> seriesExportService.getSeriesExport(symbolIds, startInstant, endInstant));
+		response.setContentType(ArrowStreamWriter.MEDIA_TYPE);
+		seriesExportService.writeArrowStream(export, response.getOutputStream());
+	}
+
+	@GetMapping(value = "/{symbol}/ticks", produces = {"text/csv", ArrowStreamWriter.MEDIA_TYPE})
+	@Operation(summary = "Stream the raw ticks of a crypto",
+			description = "Streams timestamp, symbol and price as CSV, or as an Arrow IPC stream when that is the accepted type. "
+					+ "Pages hold at most limit ticks; the X-Next-Cursor header carries the cursor of the following page. Returns 400 for an invalid cursor or a limit below 1 and 404 if the symbol is not supported.")
+	public void getTicks(
+			@Parameter(description = "The symbol of the cryptocurrency to fetch ticks for", example = "BTC")
+			@PathVariable String symbol,
+			@Parameter(description = "First instant of the range, unbounded if omitted", example = "2022-01-01T00:00:00Z")
+			@RequestParam(required = false) Instant start,
+			@Parameter(description = "Last instant of the range, unbounded if omitted", example = "2022-01-31T23:59:59Z")
+			@RequestParam(required = false) Instant end,
+			@Parameter(description = "Cursor returned in X-Next-Cursor by the previous page")
+			@RequestParam(required = false) String cursor,
+			@Parameter(description = "Maximum number of ticks in the page", example = "100000")
+			@RequestParam(defaultValue = "100000") int limit,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+			HttpServletResponse response
+	) throws IOException {
+		int symbolId = cryptoService.getSymbolId(symbol);
+		if (symbolId == SymbolDictionary.UNKNOWN) {
+			throw new SymbolNotFoundException(symbol);
+		}
+		if (limit <= 0) {
+			throw new InvalidPageLimitException(limit);
+		}
+
+		// the page is located on a lane, writing it only waits for the client and holds no lane slot
+		long estimatedRows = Math.min(limit, cryptoService.estimateRows(symbolId,
+				start != null ? start : Instant.ofEpochMilli(Long.MIN_VALUE), end != null ? end : Instant.ofEpochMilli(Long.MAX_VALUE)));
+		TickPage page = queryAdmissionService.execute(estimatedRows, () -> seriesExportService.getTickPage(symbolId, start, end, cursor, limit));
+		boolean arrow = accept != null && MediaType.parseMediaTypes(accept).stream()
+				.anyMatch(MediaType.parseMediaType(ArrowStreamWriter.MEDIA_TYPE)::equalsTypeAndSubtype);
+
+		log.debug("Streaming {} ticks of {} as {}", page.size(), symbol, arrow ? "arrow" : "csv");
+
+		response.setContentType(arrow ? ArrowStreamWriter.MEDIA_TYPE : "text/csv");
+		if (page.nextCursor() != null) {
+			response.setHeader("X-Next-Cursor", page.nextCursor());
+		}
+		if (arrow) {
+			seriesExportService.writeTicksArrow(page, response.getOutputStream());
+		} else {
+			seriesExportService.writeTicksCsv(page, response.getOutputStream());
+		}
+	}
+
+	@GetMapping(value = "/{symbol}/alerts", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@Operation(summary = "Subscribe to price and range alerts of a crypto",
+			description = "Opens a server-sent event stream. A subscribed event carries the subscription id, then an alert event is pushed whenever a new tick "
+					+ "crosses one of the given thresholds: the price rising to a level of above, falling to a level of below, or the normalized range over the "
+					+ "trailing window rising to a value of rangeAbove. Returns 404 if the symbol is not supported.")
+	public SseEmitter subscribeToAlerts(
+			@Parameter(description = "The symbol of the cryptocurrency to watch", example = "BTC")
+			@PathVariable String symbol,
+			@Parameter(description = "Price levels to be alerted about when the price rises to them", example = "40000")
+			@RequestParam(required = false) List<Double> above,
+			@Parameter(description = "Price levels to be alerted about when the price falls to them", example = "35000")
+			@RequestParam(required = false) List<Double> below,
+			@Parameter(description = "Normalized ranges to be alerted about when the range over the window rises to them", example = "0.05")
+			@RequestParam(required = false) List<Double> rangeAbove,
+			@Parameter(description = "Trailing window of the range alerts, ISO-8601 duration", example = "PT24H")
+			@RequestParam(defaultValue = "PT24H") String window
+	) {
+		Duration rangeWindow = Duration.parse(window);
+		List<AlertCondition> conditions = new ArrayList<>();
+		if (above != null) {
+			above.forEach(level -> conditions.add(AlertCondition.priceAbove(level)));
+		}
+		if (below != null) {
+			below.forEach(level -> conditions.add(AlertCondition.priceBelow(level)));
+		}
+		if (rangeAbove != null) {
+			rangeAbove.forEach(range -> conditions.add(AlertCondition.rangeAbove(range, rangeWindow)));
+		}
+
+		SseEmitter emitter = new SseEmitter(alertTimeout.toMillis());
+		// the subscribed event goes out before any alert, alerts matched while it is being sent wait for it
+		AlertSubscription subscription = alertService.subscribe(symbol, conditions, alert -> {
+			try {
+				emitter.send(SseEmitter.event().name("alert").data(alert));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, subscribed -> {
+			try {
+				emitter.send(SseEmitter.event().name("subscribed").id(String.valueOf(subscribed.getId())).data(subscribed.getId()));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		emitter.onCompletion(subscription::cancel);
+		emitter.onTimeout(subscription::cancel);
+		emitter.onError(e -> subscription.cancel());
+		// a subscriber too slow to keep up is dropped, its stream is closed so the client can reconnect
+		subscription.whenDropped(emitter::complete);
+
+		log.debug("Streaming alerts on {} for {}", subscription.getSymbol(), conditions);
+		return emitter;
+	}
+
+	// grids work in whole milliseconds, a shorter interval would be a step of zero
+	private static Duration parseGridInterval(String interval) {
+		Duration gridInterval = Duration.parse(interval);
+		if (gridInterval.toMillis() < 1) {
+			throw new DateTimeException("Interval must be at least one millisecond: " + interval);
+		}
+		return gridInterval;
+	}
+
+	// weak validator of the data a response is computed from; versions start over on restart, the epoch tells them apart
+	private String dataTag(long version) {
+		return "W/\"" + cryptoService.getDataEpoch() + "-" + version + "\"";
+	}
 }
@@ -1,8 +1,15 @@
 package com.faptic.recommendations.controller;
 
 import com.faptic.recommendations.exception.DataNotFoundException;
+import com.faptic.recommendations.exception.GridTooLargeException;
+import com.faptic.recommendations.exception.InvalidAlertException;
+import com.faptic.recommendations.exception.InvalidCursorException;
+import com.faptic.recommendations.exception.InvalidPageLimitException;
+import com.faptic.recommendations.exception.QueryRejectedException;
 import com.faptic.recommendations.exception.SymbolNotFoundException;
+import com.faptic.recommendations.exception.UnknownMetricException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -10,6 +17,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import java.time.DateTimeException;
 import java.time.format.DateTimeParseException;
 
 @Slf4j
@@ -30,6 +38,14 @@ public class RecommendationsControllerAdvice {
 		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid date format: " + e.getParsedString());
 	}
 
+	@ExceptionHandler(DateTimeException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public ResponseEntity<String> handleDateTimeException(DateTimeException e) {
+		// raised for unknown or malformed time zone ids
+		log.error("Error: ", e);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+	}
+
 	@ExceptionHandler(MethodArgumentTypeMismatchException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	public ResponseEntity<String> handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException e) {
@@ -44,6 +60,49 @@ public class RecommendationsControllerAdvice {
 		return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 	}
 
+	@ExceptionHandler(UnknownMetricException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public ResponseEntity<String> handleUnknownMetricException(UnknownMetricException e) {
+		log.error("Error: ", e);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+	}
+
+	@ExceptionHandler(InvalidCursorException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException e) {
+		log.error("Error: ", e);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+	}
+
+	@ExceptionHandler(InvalidPageLimitException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public ResponseEntity<String> handleInvalidPageLimitException(InvalidPageLimitException e) {
+		log.error("Error: ", e);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+	}
+
+	@ExceptionHandler(InvalidAlertException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public ResponseEntity<String> handleInvalidAlertException(InvalidAlertException e) {
+		log.error("Error: ", e);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+	}
+
+	@ExceptionHandler(GridTooLargeException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public ResponseEntity<String> handleGridTooLargeException(GridTooLargeException e) {
+		log.error("Error: ", e);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+	}
+
+	@ExceptionHandler(QueryRejectedException.class)
+	public ResponseEntity<String> handleQueryRejectedException(QueryRejectedException e) {
+		log.warn("Error: {}", e.getMessage());
+		return ResponseEntity.status(e.getStatus())
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+				.body(e.getMessage());
+	}
+
 	@ExceptionHandler(Exception.class)
 	@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
 	public ResponseEntity<String> handleGeneralException(Exception e) {
@@ -0,0 +1,11 @@
+package com.faptic.recommendations.exception;
+
+public class GridTooLargeException extends RuntimeException {
+	public GridTooLargeException(String symbol, long points, long maxPoints) {
+		super("Resampling " + symbol + " needs " + points + " grid points, at most " + maxPoints + " are supported; use a longer interval");
+	}
+
+	public GridTooLargeException(long points, long maxPoints) {
+		super("The grid needs " + points + " points, at most " + maxPoints + " are supported; use a longer interval");
+	}
+}
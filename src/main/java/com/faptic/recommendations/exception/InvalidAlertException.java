@@ -0,0 +1,7 @@
+package com.faptic.recommendations.exception;
+
+public class InvalidAlertException extends RuntimeException {
+	public InvalidAlertException(String message) {
+		super(message);
+	}
+}
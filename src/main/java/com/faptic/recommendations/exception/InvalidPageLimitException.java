@@ -0,0 +1,7 @@
+package com.faptic.recommendations.exception;
+
+public class InvalidPageLimitException extends RuntimeException {
+	public InvalidPageLimitException(int limit) {
+		super("Page limit must be positive: " + limit);
+	}
+}
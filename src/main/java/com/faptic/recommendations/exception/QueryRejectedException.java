@@ -0,0 +1,17 @@
+package com.faptic.recommendations.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class QueryRejectedException extends RuntimeException {
+
+	private final HttpStatus status;
+	private final long retryAfterSeconds;
+
+	public QueryRejectedException(String lane, HttpStatus status, long retryAfterSeconds) {
+		super("Query rejected by " + lane + " lane: " + status.getReasonPhrase());
+		this.status = status;
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+}
@@ -0,0 +1,7 @@
+package com.faptic.recommendations.exception;
+
+public class UnknownMetricException extends RuntimeException {
+	public UnknownMetricException(String metric) {
+		super("Unknown ranking metric: " + metric);
+	}
+}
@@ -0,0 +1,10 @@
+package com.faptic.recommendations.model;
+
+public enum AlertType {
+	// the price rises from below the threshold to or above it
+	PRICE_ABOVE,
+	// the price falls from above the threshold to or below it
+	PRICE_BELOW,
+	// the normalized range over the trailing window rises from below the threshold to or above it
+	RANGE_ABOVE
+}
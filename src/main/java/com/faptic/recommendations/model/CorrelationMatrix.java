@@ -0,0 +1,25 @@
+package com.faptic.recommendations.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorrelationMatrix {
+
+	private List<String> symbols;
+	private Instant startDate;
+	private Instant endDate;
+	// number of aligned returns each coefficient is computed from
+	private int observations;
+	// correlations[i][j] is the Pearson correlation of the returns of symbols i and j
+	private double[][] correlations;
+
+}
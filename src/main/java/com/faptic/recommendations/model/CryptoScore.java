@@ -0,0 +1,23 @@
+package com.faptic.recommendations.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CryptoScore {
+
+	private String symbol;
+	private Instant oldestTimestamp;
+	private Instant newestTimestamp;
+	// metric name to score, in the order the metrics were requested
+	private Map<String, Double> scores;
+
+}
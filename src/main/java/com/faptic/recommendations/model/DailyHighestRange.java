@@ -0,0 +1,20 @@
+package com.faptic.recommendations.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyHighestRange {
+
+	private LocalDate date;
+	// the crypto with the highest normalized range on that day
+	private CryptoStats stats;
+
+}
@@ -0,0 +1,28 @@
+package com.faptic.recommendations.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceAlert {
+
+	private String symbol;
+	private AlertType type;
+	private double threshold;
+	// trailing window of range alerts, null for price alerts
+	private Duration window;
+	// the tick that crossed the threshold
+	private Instant timestamp;
+	private double price;
+	// normalized range over the window after the tick, null for price alerts
+	private Double normalizedRange;
+
+}
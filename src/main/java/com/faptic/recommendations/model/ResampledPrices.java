@@ -0,0 +1,25 @@
+package com.faptic.recommendations.model;
+
+import com.faptic.recommendations.repository.FillMethod;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResampledPrices {
+
+	private String symbol;
+	// prices[k] is the price at startDate + k * interval
+	private Instant startDate;
+	private Duration interval;
+	private FillMethod fill;
+	private double[] prices;
+
+}
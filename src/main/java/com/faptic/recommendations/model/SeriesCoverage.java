@@ -0,0 +1,34 @@
+package com.faptic.recommendations.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeriesCoverage {
+
+	private String symbol;
+	// first and last grid point of the range
+	private Instant startDate;
+	private Instant endDate;
+	private Duration interval;
+	private int ticks;
+	// grid intervals in the range, and how many of them hold at least one tick
+	private int intervals;
+	private int coveredIntervals;
+	// runs of consecutive intervals without ticks
+	private int gaps;
+	private Duration longestGap;
+
+	public double getCoverage() {
+		return intervals > 0 ? (double) coveredIntervals / intervals : 0;
+	}
+
+}
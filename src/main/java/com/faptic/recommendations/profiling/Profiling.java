@@ -0,0 +1,85 @@
+package com.faptic.recommendations.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+
+/**
+ * Switch and per-thread context of request profiling.
+ * <p>
+ * While disabled, {@link #current()} is a single volatile read returning null, and instrumented code skips all
+ * timing, so the hooks cost next to nothing. Toggled through the {@code profiling} management endpoint.
+ */
+public final class Profiling {
+
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+	private static final ThreadLocal<RequestProfile> CURRENT = new ThreadLocal<>();
+
+	private static volatile boolean enabled;
+
+	private Profiling() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	static void setEnabled(boolean enabled) {
+		Profiling.enabled = enabled;
+	}
+
+	/**
+	 * Profile of the request served by the current thread, or null if profiling is disabled or the thread is not
+	 * serving a profiled request.
+	 */
+	public static RequestProfile current() {
+		return enabled ? CURRENT.get() : null;
+	}
+
+	/**
+	 * Carries the current profile over to the thread running the returned task, adding that thread's allocations
+	 * to it. Returns the task itself when there is nothing to carry.
+	 */
+	public static <T> Callable<T> propagate(Callable<T> task) {
+		RequestProfile profile = current();
+		if (profile == null) {
+			return task;
+		}
+
+		return () -> {
+			CURRENT.set(profile);
+			long allocated = allocatedBytes();
+			try {
+				return task.call();
+			} finally {
+				profile.addAllocatedBytes(allocatedBytes() - allocated);
+				CURRENT.remove();
+			}
+		};
+	}
+
+	static RequestProfile begin() {
+		RequestProfile profile = new RequestProfile();
+		CURRENT.set(profile);
+		return profile;
+	}
+
+	static void end() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Bytes allocated by the current thread so far, or 0 if the JVM does not track it.
+	 */
+	static long allocatedBytes() {
+		return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+	}
+
+	private static com.sun.management.ThreadMXBean threads() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+			threads.setThreadAllocatedMemoryEnabled(true);
+			return threads;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,80 @@
+package com.faptic.recommendations.profiling;
+
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/profiling}: enabling starts a JFR recording of {@link QueryEvent}s and sampled allocations,
+ * disabling stops it and dumps it to a file in {@code faptic.profiling.directory}, see {@link RecordingSummary}.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "profiling")
+public class ProfilingEndpoint {
+
+	private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+	private final Path directory;
+
+	private Recording recording;
+	private Path lastDump;
+
+	public ProfilingEndpoint(@Value("${faptic.profiling.directory:${java.io.tmpdir}/faptic-profiling}") Path directory) {
+		this.directory = directory;
+	}
+
+	@ReadOperation
+	public synchronized Map<String, Object> status() {
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("enabled", Profiling.isEnabled());
+		if (recording != null) {
+			status.put("startTime", recording.getStartTime());
+		}
+		if (lastDump != null) {
+			status.put("lastRecording", lastDump.toString());
+		}
+		return status;
+	}
+
+	@WriteOperation
+	public synchronized Map<String, Object> toggle(boolean enabled) {
+		if (enabled && recording == null) {
+			recording = new Recording();
+			recording.setName("faptic-profiling");
+			recording.enable(QueryEvent.class);
+			recording.enable("jdk.ObjectAllocationSample").with("throttle", "150/s");
+			recording.start();
+			Profiling.setEnabled(true);
+			log.info("Started profiling");
+		} else if (!enabled && recording != null) {
+			Profiling.setEnabled(false);
+			try (Recording finished = recording) {
+				finished.stop();
+				Files.createDirectories(directory);
+				lastDump = directory.resolve("faptic-" + FILE_TIME.format(Instant.now()) + ".jfr");
+				finished.dump(lastDump);
+				log.info("Stopped profiling, recording written to {}", lastDump);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				recording = null;
+			}
+		}
+		return status();
+	}
+}
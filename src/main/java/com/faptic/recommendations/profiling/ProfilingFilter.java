@@ -0,0 +1,53 @@
+package com.faptic.recommendations.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Emits a {@link QueryEvent} per API request while profiling is enabled, otherwise just passes the request on.
+ */
+@Component
+public class ProfilingFilter extends OncePerRequestFilter {
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !Profiling.isEnabled() || !request.getRequestURI().startsWith("/api/");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		QueryEvent event = new QueryEvent();
+		RequestProfile profile = Profiling.begin();
+		long allocated = Profiling.allocatedBytes();
+		event.begin();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			event.end();
+			event.shape = shape(request);
+			event.status = response.getStatus();
+			profile.commit(event, Profiling.allocatedBytes() - allocated);
+			Profiling.end();
+		}
+	}
+
+	// the matched path pattern rather than the path, so requests for different symbols or days share a shape
+	private static String shape(HttpServletRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		List<String> parameters = Collections.list(request.getParameterNames());
+		Collections.sort(parameters);
+
+		String shape = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+		return parameters.isEmpty() ? shape : shape + "?" + String.join(",", parameters);
+	}
+}
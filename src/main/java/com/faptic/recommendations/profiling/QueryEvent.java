@@ -0,0 +1,53 @@
+package com.faptic.recommendations.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one API request while profiling is enabled; its duration is the whole request.
+ */
+@Name(QueryEvent.NAME)
+@Label("Query")
+@Category({"Faptic", "Queries"})
+@Description("One request to the recommendations API with the time spent per query phase")
+@StackTrace(false)
+class QueryEvent extends Event {
+
+	static final String NAME = "com.faptic.Query";
+
+	@Label("Query Shape")
+	@Description("Method, path pattern and sorted parameter names, e.g. GET /api/cryptos/stats?endDate,startDate")
+	String shape;
+
+	@Label("Status")
+	int status;
+
+	@Label("Rows Scanned")
+	long rowsScanned;
+
+	@Label("Filter Time")
+	@Description("Time spent locating the ticks of the requested range")
+	@Timespan(Timespan.NANOSECONDS)
+	long filterTime;
+
+	@Label("Aggregate Time")
+	@Description("Time spent computing stats over the located ticks")
+	@Timespan(Timespan.NANOSECONDS)
+	long aggregateTime;
+
+	@Label("Serialize Time")
+	@Description("Time spent writing the response body")
+	@Timespan(Timespan.NANOSECONDS)
+	long serializeTime;
+
+	@Label("Allocated")
+	@Description("Bytes allocated by the request thread and the query executor thread serving it")
+	@DataAmount
+	long allocatedBytes;
+}
@@ -0,0 +1,93 @@
+package com.faptic.recommendations.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarizes the {@link QueryEvent}s of a JFR recording per query shape:
+ * <pre>
+ * java -cp target/classes com.faptic.recommendations.profiling.RecordingSummary faptic-20240101-120000.jfr
+ * </pre>
+ */
+public final class RecordingSummary {
+
+	/**
+	 * Aggregates of all requests of one shape; times are in milliseconds, means are per request.
+	 */
+	public record ShapeSummary(String shape, int requests, double p50Millis, double p99Millis, double maxMillis,
+							   double meanRows, double meanFilterMillis, double meanAggregateMillis,
+							   double meanSerializeMillis, double meanAllocatedBytes) {
+	}
+
+	private RecordingSummary() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: RecordingSummary <recording.jfr>");
+			System.exit(2);
+		}
+		print(summarize(Path.of(args[0])), System.out);
+	}
+
+	/**
+	 * Summaries of the shapes in the recording, slowest p99 first.
+	 */
+	public static List<ShapeSummary> summarize(Path recording) throws IOException {
+		Map<String, List<RecordedEvent>> byShape = new TreeMap<>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+			if (event.getEventType().getName().equals(QueryEvent.NAME)) {
+				byShape.computeIfAbsent(event.getString("shape"), shape -> new ArrayList<>()).add(event);
+			}
+		}
+
+		List<ShapeSummary> summaries = new ArrayList<>();
+		for (Map.Entry<String, List<RecordedEvent>> entry : byShape.entrySet()) {
+			List<RecordedEvent> events = entry.getValue();
+			double[] durations = events.stream().mapToDouble(event -> millis(event.getDuration())).sorted().toArray();
+			summaries.add(new ShapeSummary(entry.getKey(), events.size(),
+					percentile(durations, 0.50), percentile(durations, 0.99), durations[durations.length - 1],
+					mean(events, "rowsScanned", 1),
+					mean(events, "filterTime", 1e6),
+					mean(events, "aggregateTime", 1e6),
+					mean(events, "serializeTime", 1e6),
+					mean(events, "allocatedBytes", 1)));
+		}
+		summaries.sort(Comparator.comparingDouble(ShapeSummary::p99Millis).reversed());
+		return summaries;
+	}
+
+	public static void print(List<ShapeSummary> summaries, PrintStream out) {
+		out.printf("%-60s %8s %9s %9s %9s %10s %9s %9s %9s %12s%n",
+				"shape", "requests", "p50 ms", "p99 ms", "max ms", "rows", "filter", "aggregate", "serialize", "alloc bytes");
+		for (ShapeSummary summary : summaries) {
+			out.printf("%-60s %8d %9.3f %9.3f %9.3f %10.0f %9.3f %9.3f %9.3f %12.0f%n",
+					summary.shape(), summary.requests(), summary.p50Millis(), summary.p99Millis(), summary.maxMillis(),
+					summary.meanRows(), summary.meanFilterMillis(), summary.meanAggregateMillis(),
+					summary.meanSerializeMillis(), summary.meanAllocatedBytes());
+		}
+	}
+
+	// nearest rank
+	private static double percentile(double[] sorted, double quantile) {
+		return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+	}
+
+	private static double mean(List<RecordedEvent> events, String field, double divisor) {
+		return events.stream().mapToLong(event -> event.getLong(field)).average().orElse(0) / divisor;
+	}
+
+	private static double millis(Duration duration) {
+		return duration.toNanos() / 1e6;
+	}
+}
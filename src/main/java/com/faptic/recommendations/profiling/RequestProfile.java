@@ -0,0 +1,50 @@
+package com.faptic.recommendations.profiling;
+
+/**
+ * Phase timings and counters of the request being profiled on the current thread, see {@link Profiling#current()}.
+ * <p>
+ * Used by one thread at a time: the request thread, or the query executor thread it waits for.
+ */
+public final class RequestProfile {
+
+	private long rowsScanned;
+	private long filterNanos;
+	private long aggregateNanos;
+	private long allocatedBytes;
+	private long serializeStart;
+
+	RequestProfile() {
+	}
+
+	/**
+	 * Records time spent locating ticks, and how many ticks were found to scan.
+	 */
+	public void addFilter(long nanos, long rows) {
+		filterNanos += nanos;
+		rowsScanned += rows;
+	}
+
+	public void addAggregate(long nanos) {
+		aggregateNanos += nanos;
+	}
+
+	void addAllocatedBytes(long bytes) {
+		allocatedBytes += bytes;
+	}
+
+	void markSerializeStart() {
+		if (serializeStart == 0) {
+			serializeStart = System.nanoTime();
+		}
+	}
+
+	void commit(QueryEvent event, long allocatedOnRequestThread) {
+		long end = System.nanoTime();
+		event.rowsScanned = rowsScanned;
+		event.filterTime = filterNanos;
+		event.aggregateTime = aggregateNanos;
+		event.serializeTime = serializeStart != 0 ? end - serializeStart : 0;
+		event.allocatedBytes = allocatedBytes + allocatedOnRequestThread;
+		event.commit();
+	}
+}
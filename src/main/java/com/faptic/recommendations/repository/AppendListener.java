@@ -0,0 +1,15 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.model.CryptoRecord;
+
+import java.util.List;
+
+/**
+ * Notified by the {@link CryptoRepository} after records were appended and published.
+ * <p>
+ * Called on the appending thread; concurrent appends may notify concurrently and in any order.
+ */
+public interface AppendListener {
+
+	void onAppend(CryptoSnapshot snapshot, String symbol, List<CryptoRecord> records);
+}
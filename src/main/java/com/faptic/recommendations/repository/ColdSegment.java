@@ -0,0 +1,403 @@
+package com.faptic.recommendations.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Immutable run of time ordered ticks of one symbol, compressed into a memory mapped file.
+ * <p>
+ * Ticks are stored in blocks of {@value #BLOCK_SIZE}. Within a block timestamps are delta-of-delta encoded as
+ * zig-zag varints, which takes a single byte for regularly spaced ticks, and each price is XOR-ed with its
+ * predecessor and stored without its leading zero bytes. A sparse index on the heap keeps the time range, price
+ * extremes and file offset of every block, so aggregates over a range decode at most the two blocks at its edges.
+ * <p>
+ * The index and the symbol follow the blocks in the file, so a segment can be reopened by reading its tail only:
+ * <pre>
+ * block*  (first timestamp, last timestamp, min price, max price, offset, count)*  symbol
+ * size  block count  symbol length  index offset  magic
+ * </pre>
+ */
+final class ColdSegment {
+
+	static final int BLOCK_SIZE = 1024;
+
+	static final String FILE_SUFFIX = ".seg";
+
+	// zig-zag varint of a long plus a length byte and a full price at most
+	private static final int MAX_TICK_BYTES = 10 + 1 + Long.BYTES;
+	private static final int INDEX_ENTRY_BYTES = 4 * Long.BYTES + 2 * Integer.BYTES;
+	private static final int TRAILER_BYTES = 5 * Integer.BYTES;
+	private static final int MAGIC = 0x46534547;
+	// neither partially written nor temporary files end in FILE_SUFFIX, so they are never reopened
+	private static final String PARTIAL_SUFFIX = ".partial";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final Path file;
+	private final String symbol;
+	private final MappedByteBuffer data;
+	private final int size;
+	private final long[] firstTimestamps;
+	private final long[] lastTimestamps;
+	private final double[] minPrices;
+	private final double[] maxPrices;
+	private final int[] offsets;
+	private final int[] counts;
+
+	private ColdSegment(Path file, String symbol, MappedByteBuffer data, int size, long[] firstTimestamps, long[] lastTimestamps,
+						double[] minPrices, double[] maxPrices, int[] offsets, int[] counts) {
+		this.file = file;
+		this.symbol = symbol;
+		this.data = data;
+		this.size = size;
+		this.firstTimestamps = firstTimestamps;
+		this.lastTimestamps = lastTimestamps;
+		this.minPrices = minPrices;
+		this.maxPrices = maxPrices;
+		this.offsets = offsets;
+		this.counts = counts;
+	}
+
+	/**
+	 * Writes the ticks {@code [from, to)} of the series to a new file in the given directory and maps it.
+	 * A durable file is synced to disk before it appears under its final name and can be {@link #open reopened}
+	 * later; any other file is removed when the JVM exits.
+	 */
+	static ColdSegment write(Path directory, PriceSeries series, int from, int to, boolean durable) throws IOException {
+		int size = to - from;
+		int blocks = (int) (((long) size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+		long[] firstTimestamps = new long[blocks];
+		long[] lastTimestamps = new long[blocks];
+		double[] minPrices = new double[blocks];
+		double[] maxPrices = new double[blocks];
+		int[] offsets = new int[blocks];
+		int[] counts = new int[blocks];
+
+		byte[] symbol = series.getSymbol().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer out = ByteBuffer.allocate(bufferBytes(size, symbol.length));
+		for (int block = 0; block < blocks; block++) {
+			int start = from + block * BLOCK_SIZE;
+			int end = Math.min(start + BLOCK_SIZE, to);
+			offsets[block] = out.position();
+			counts[block] = end - start;
+			firstTimestamps[block] = series.timestampAt(start);
+			lastTimestamps[block] = series.timestampAt(end - 1);
+
+			long timestamp = series.timestampAt(start);
+			long bits = Double.doubleToRawLongBits(series.priceAt(start));
+			out.putLong(timestamp).putLong(bits);
+			double min = series.priceAt(start);
+			double max = min;
+			long delta = 0;
+
+			for (int i = start + 1; i < end; i++) {
+				long nextDelta = series.timestampAt(i) - timestamp;
+				putVarLong(out, zigZag(nextDelta - delta));
+				delta = nextDelta;
+				timestamp = series.timestampAt(i);
+
+				long nextBits = Double.doubleToRawLongBits(series.priceAt(i));
+				putSignificantBytes(out, bits ^ nextBits);
+				bits = nextBits;
+
+				min = Math.min(min, series.priceAt(i));
+				max = Math.max(max, series.priceAt(i));
+			}
+			minPrices[block] = min;
+			maxPrices[block] = max;
+		}
+
+		int indexOffset = out.position();
+		for (int block = 0; block < blocks; block++) {
+			out.putLong(firstTimestamps[block]).putLong(lastTimestamps[block])
+					.putDouble(minPrices[block]).putDouble(maxPrices[block])
+					.putInt(offsets[block]).putInt(counts[block]);
+		}
+		out.put(symbol);
+		out.putInt(size).putInt(blocks).putInt(symbol.length).putInt(indexOffset).putInt(MAGIC);
+
+		Files.createDirectories(directory);
+		Path file;
+		if (durable) {
+			// a crash while writing leaves a partial file behind, never an incomplete segment
+			Path partial = Files.createTempFile(directory, series.getSymbol() + "-", FILE_SUFFIX + PARTIAL_SUFFIX);
+			try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+				channel.write(out.flip());
+				channel.force(true);
+			}
+			String name = partial.getFileName().toString();
+			file = Files.move(partial, partial.resolveSibling(name.substring(0, name.length() - PARTIAL_SUFFIX.length())),
+					StandardCopyOption.ATOMIC_MOVE);
+		} else {
+			file = Files.createTempFile(directory, series.getSymbol() + "-", FILE_SUFFIX + TEMPORARY_SUFFIX);
+			file.toFile().deleteOnExit();
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.write(out.flip());
+			}
+		}
+
+		return new ColdSegment(file, series.getSymbol(), map(file), size, firstTimestamps, lastTimestamps, minPrices, maxPrices, offsets, counts);
+	}
+
+	/**
+	 * Bytes needed to write a segment of the given number of ticks in the worst case.
+	 *
+	 * @throws IllegalArgumentException if that exceeds the file offsets of a segment, which are ints
+	 */
+	static int bufferBytes(int ticks, int symbolBytes) {
+		int blocks = (int) (((long) ticks + BLOCK_SIZE - 1) / BLOCK_SIZE);
+		long bytes = (long) ticks * MAX_TICK_BYTES + (long) blocks * INDEX_ENTRY_BYTES + symbolBytes + TRAILER_BYTES;
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A segment of " + ticks + " ticks may need " + bytes + " bytes, more than the "
+					+ Integer.MAX_VALUE + " a segment can hold; compact more often or with a shorter hot window");
+		}
+		return (int) bytes;
+	}
+
+	/**
+	 * Maps a segment file written durably before, reading only its index.
+	 *
+	 * @throws IOException if the file cannot be read or is not a complete segment
+	 */
+	static ColdSegment open(Path file) throws IOException {
+		MappedByteBuffer data = map(file);
+		if (data.capacity() < TRAILER_BYTES || data.getInt(data.capacity() - Integer.BYTES) != MAGIC) {
+			throw new IOException("Not a complete segment file: " + file);
+		}
+
+		int trailer = data.capacity() - TRAILER_BYTES;
+		int size = data.getInt(trailer);
+		int blocks = data.getInt(trailer + Integer.BYTES);
+		int symbolLength = data.getInt(trailer + 2 * Integer.BYTES);
+		int position = data.getInt(trailer + 3 * Integer.BYTES);
+
+		long[] firstTimestamps = new long[blocks];
+		long[] lastTimestamps = new long[blocks];
+		double[] minPrices = new double[blocks];
+		double[] maxPrices = new double[blocks];
+		int[] offsets = new int[blocks];
+		int[] counts = new int[blocks];
+		for (int block = 0; block < blocks; block++, position += INDEX_ENTRY_BYTES) {
+			firstTimestamps[block] = data.getLong(position);
+			lastTimestamps[block] = data.getLong(position + Long.BYTES);
+			minPrices[block] = data.getDouble(position + 2 * Long.BYTES);
+			maxPrices[block] = data.getDouble(position + 3 * Long.BYTES);
+			offsets[block] = data.getInt(position + 4 * Long.BYTES);
+			counts[block] = data.getInt(position + 4 * Long.BYTES + Integer.BYTES);
+		}
+
+		byte[] symbol = new byte[symbolLength];
+		data.get(position, symbol);
+		return new ColdSegment(file, new String(symbol, StandardCharsets.UTF_8), data, size, firstTimestamps, lastTimestamps,
+				minPrices, maxPrices, offsets, counts);
+	}
+
+	private static MappedByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	Path file() {
+		return file;
+	}
+
+	String symbol() {
+		return symbol;
+	}
+
+	int size() {
+		return size;
+	}
+
+	long oldest() {
+		return firstTimestamps[0];
+	}
+
+	long newest() {
+		return lastTimestamps[lastTimestamps.length - 1];
+	}
+
+	long fileBytes() {
+		return data.capacity();
+	}
+
+	/**
+	 * Aggregate of the ticks within {@code [from, to]}, or null if there are none.
+	 */
+	RangeAggregate aggregate(long from, long to) {
+		RangeAggregate result = null;
+		long[] timestamps = null;
+		double[] prices = null;
+
+		for (int block = firstBlockEndingAtOrAfter(from); block < counts.length && firstTimestamps[block] <= to; block++) {
+			if (firstTimestamps[block] >= from && lastTimestamps[block] <= to) {
+				result = RangeAggregate.merge(result, new RangeAggregate(counts[block], firstTimestamps[block], lastTimestamps[block],
+						minPrices[block], maxPrices[block]));
+				continue;
+			}
+
+			// a block at the edge of the range, only these are decompressed
+			if (timestamps == null) {
+				timestamps = new long[BLOCK_SIZE];
+				prices = new double[BLOCK_SIZE];
+			}
+			decode(block, timestamps, prices, 0);
+			for (int i = 0; i < counts[block]; i++) {
+				if (timestamps[i] >= from && timestamps[i] <= to) {
+					result = RangeAggregate.merge(result, new RangeAggregate(1, timestamps[i], timestamps[i], prices[i], prices[i]));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Passes the ticks within {@code [from, to]} to the consumer in time order, decoding only the blocks overlapping the range.
+	 */
+	void scan(long from, long to, PriceStore.TickConsumer consumer) {
+		long[] timestamps = null;
+		double[] prices = null;
+
+		for (int block = firstBlockEndingAtOrAfter(from); block < counts.length && firstTimestamps[block] <= to; block++) {
+			if (timestamps == null) {
+				timestamps = new long[BLOCK_SIZE];
+				prices = new double[BLOCK_SIZE];
+			}
+			decode(block, timestamps, prices, 0);
+			for (int i = 0; i < counts[block]; i++) {
+				if (timestamps[i] >= from && timestamps[i] <= to) {
+					consumer.accept(timestamps[i], prices[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Upper bound of the number of ticks within {@code [from, to]}, from the block index alone.
+	 */
+	long estimateTicks(long from, long to) {
+		long ticks = 0;
+		for (int block = firstBlockEndingAtOrAfter(from); block < counts.length && firstTimestamps[block] <= to; block++) {
+			ticks += counts[block];
+		}
+		return ticks;
+	}
+
+	/**
+	 * Upper bound of the time by which at least {@code count} ticks at or after {@code from} are held, from the block
+	 * index alone; {@link Long#MAX_VALUE} if there are fewer.
+	 */
+	long estimateEnd(long from, long count) {
+		long ticks = 0;
+		for (int block = firstBlockEndingAtOrAfter(from); block < counts.length; block++) {
+			// a block starting before from may hold ticks before it and is not counted
+			if (firstTimestamps[block] >= from) {
+				ticks += counts[block];
+				if (ticks >= count) {
+					return lastTimestamps[block];
+				}
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Lower bound of the number of ticks at or after {@code from}, from the block index alone.
+	 */
+	long minTicksFrom(long from) {
+		long ticks = 0;
+		for (int block = firstBlockEndingAtOrAfter(from); block < counts.length; block++) {
+			if (firstTimestamps[block] >= from) {
+				ticks += counts[block];
+			}
+		}
+		return ticks;
+	}
+
+	/**
+	 * Decompresses all ticks into the given arrays starting at the given index.
+	 */
+	void decodeAll(long[] timestamps, double[] prices, int at) {
+		for (int block = 0; block < counts.length; block++) {
+			decode(block, timestamps, prices, at);
+			at += counts[block];
+		}
+	}
+
+	void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	private void decode(int block, long[] timestamps, double[] prices, int at) {
+		int position = offsets[block];
+		long timestamp = data.getLong(position);
+		long bits = data.getLong(position + Long.BYTES);
+		position += 2 * Long.BYTES;
+		timestamps[at] = timestamp;
+		prices[at] = Double.longBitsToDouble(bits);
+
+		long delta = 0;
+		for (int i = 1; i < counts[block]; i++) {
+			long zigZag = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data.get(position++);
+				zigZag |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			delta += (zigZag >>> 1) ^ -(zigZag & 1);
+			timestamp += delta;
+
+			int length = data.get(position++);
+			long xor = 0;
+			for (int k = 0; k < length; k++) {
+				xor = xor << 8 | (data.get(position++) & 0xFF);
+			}
+			bits ^= xor;
+
+			timestamps[at + i] = timestamp;
+			prices[at + i] = Double.longBitsToDouble(bits);
+		}
+	}
+
+	private int firstBlockEndingAtOrAfter(long epochMilli) {
+		int index = Arrays.binarySearch(lastTimestamps, epochMilli);
+		if (index < 0) {
+			return -index - 1;
+		}
+		// equal timestamps may end several blocks
+		while (index > 0 && lastTimestamps[index - 1] == epochMilli) {
+			index--;
+		}
+		return index;
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static void putVarLong(ByteBuffer out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	private static void putSignificantBytes(ByteBuffer out, long value) {
+		int length = (Long.SIZE - Long.numberOfLeadingZeros(value) + 7) / 8;
+		out.put((byte) length);
+		for (int k = length - 1; k >= 0; k--) {
+			out.put((byte) (value >>> (8 * k)));
+		}
+	}
+}
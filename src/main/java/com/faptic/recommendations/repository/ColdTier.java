@@ -0,0 +1,212 @@
+package com.faptic.recommendations.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Older history of one symbol, held in compressed memory mapped {@link ColdSegment} files rather than on the heap.
+ * <p>
+ * Immutable; every compaction adds a segment and yields a new tier. Segments of late ticks may overlap in time,
+ * the aggregates and the materialised series do not depend on their order. As a {@link PriceStore} it is the
+ * on-disk one: ranges are located through the sparse block index of each segment.
+ */
+public final class ColdTier implements PriceStore {
+
+	private final List<ColdSegment> segments;
+	private final long oldest;
+	private final long newest;
+
+	private ColdTier(List<ColdSegment> segments) {
+		this.segments = segments;
+		long earliest = Long.MAX_VALUE;
+		long latest = Long.MIN_VALUE;
+		for (ColdSegment segment : segments) {
+			earliest = Math.min(earliest, segment.oldest());
+			latest = Math.max(latest, segment.newest());
+		}
+		this.oldest = earliest;
+		this.newest = latest;
+	}
+
+	static ColdTier of(ColdSegment segment) {
+		return new ColdTier(List.of(segment));
+	}
+
+	/**
+	 * Tier of segments of one symbol reopened from disk, in time order of their oldest ticks.
+	 */
+	static ColdTier of(List<ColdSegment> segments) {
+		List<ColdSegment> ordered = new ArrayList<>(segments);
+		ordered.sort(Comparator.comparingLong(ColdSegment::oldest));
+		return new ColdTier(List.copyOf(ordered));
+	}
+
+	ColdTier with(ColdSegment segment) {
+		List<ColdSegment> next = new ArrayList<>(segments);
+		next.add(segment);
+		return new ColdTier(List.copyOf(next));
+	}
+
+	@Override
+	public long getOldest() {
+		return oldest;
+	}
+
+	/**
+	 * Time of the newest cold tick; the cold tier holds nothing later.
+	 */
+	@Override
+	public long getNewest() {
+		return newest;
+	}
+
+	public long size() {
+		long size = 0;
+		for (ColdSegment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	public long fileBytes() {
+		long bytes = 0;
+		for (ColdSegment segment : segments) {
+			bytes += segment.fileBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Aggregate of the cold ticks within {@code [from, to]}, or null if there are none.
+	 */
+	@Override
+	public RangeAggregate aggregate(long from, long to) {
+		RangeAggregate result = null;
+		for (ColdSegment segment : segments) {
+			if (segment.oldest() <= to && segment.newest() >= from) {
+				result = RangeAggregate.merge(result, segment.aggregate(from, to));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Upper bound of the number of cold ticks within {@code [from, to]}, found without decompressing anything.
+	 */
+	@Override
+	public long estimateTicks(long from, long to) {
+		long ticks = 0;
+		for (ColdSegment segment : segments) {
+			ticks += segment.estimateTicks(from, to);
+		}
+		return ticks;
+	}
+
+	/**
+	 * Upper bound of the time by which the cold tier holds at least {@code count} ticks at or after {@code from}.
+	 * Segments in time order count as one run of blocks; of segments of late ticks, which overlap in time, only the
+	 * earliest such time of any one segment is certain.
+	 */
+	@Override
+	public long estimateEnd(long from, long count) {
+		boolean ordered = true;
+		long previousNewest = Long.MIN_VALUE;
+		for (ColdSegment segment : segments) {
+			ordered &= segment.oldest() >= previousNewest;
+			previousNewest = Math.max(previousNewest, segment.newest());
+		}
+
+		long end = Long.MAX_VALUE;
+		long remaining = count;
+		for (ColdSegment segment : segments) {
+			if (!ordered) {
+				end = Math.min(end, segment.estimateEnd(from, count));
+			} else if (segment.newest() >= from) {
+				end = segment.estimateEnd(from, remaining);
+				if (end != Long.MAX_VALUE) {
+					return end;
+				}
+				remaining -= segment.minTicksFrom(from);
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Passes the cold ticks within {@code [from, to]} to the consumer in time order, decoding only the blocks
+	 * overlapping the range.
+	 */
+	@Override
+	public void scan(long from, long to, TickConsumer consumer) {
+		List<ColdSegment> overlapping = new ArrayList<>();
+		boolean ordered = true;
+		long previousNewest = Long.MIN_VALUE;
+		for (ColdSegment segment : segments) {
+			if (segment.oldest() <= to && segment.newest() >= from) {
+				ordered &= segment.oldest() >= previousNewest;
+				previousNewest = Math.max(previousNewest, segment.newest());
+				overlapping.add(segment);
+			}
+		}
+
+		if (ordered) {
+			for (ColdSegment segment : overlapping) {
+				segment.scan(from, to, consumer);
+			}
+			return;
+		}
+
+		// segments of late ticks overlap in time, only their ticks within the range are merged
+		PriceSeries merged = PriceSeries.empty("");
+		for (ColdSegment segment : overlapping) {
+			Ticks ticks = new Ticks((int) segment.estimateTicks(from, to));
+			segment.scan(from, to, ticks);
+			merged = merged.withTicks(Arrays.copyOf(ticks.timestamps, ticks.count), Arrays.copyOf(ticks.prices, ticks.count));
+		}
+		merged.scan(from, to, consumer);
+	}
+
+	/**
+	 * The complete series: all cold ticks decompressed and merged with the given hot ones.
+	 */
+	PriceSeries materialize(PriceSeries hot) {
+		PriceSeries series = hot;
+		for (ColdSegment segment : segments) {
+			long[] timestamps = new long[segment.size()];
+			double[] prices = new double[segment.size()];
+			segment.decodeAll(timestamps, prices, 0);
+			series = series.withTicks(timestamps, prices);
+		}
+		return series;
+	}
+
+	/**
+	 * The cold ticks within {@code [from, to]} decompressed and merged with the given hot ones.
+	 */
+	PriceSeries materialize(PriceSeries hot, long from, long to) {
+		Ticks ticks = new Ticks((int) estimateTicks(from, to));
+		scan(from, to, ticks);
+		return hot.withTicks(Arrays.copyOf(ticks.timestamps, ticks.count), Arrays.copyOf(ticks.prices, ticks.count));
+	}
+
+	private static final class Ticks implements TickConsumer {
+
+		private final long[] timestamps;
+		private final double[] prices;
+		private int count;
+
+		private Ticks(int capacity) {
+			timestamps = new long[capacity];
+			prices = new double[capacity];
+		}
+
+		@Override
+		public void accept(long timestamp, double price) {
+			timestamps[count] = timestamp;
+			prices[count] = price;
+			count++;
+		}
+	}
+}
@@ -2,30 +2,83 @@ package com.faptic.recommendations.repository;
 
 import com.faptic.recommendations.model.CryptoRecord;
 import jakarta.annotation.PostConstruct;
-import lombok.Getter;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 @Slf4j
-@Getter
 @Repository
 public class CryptoRepository {
 
-	private final Map<String, List<CryptoRecord>> cryptoRecords = new HashMap<>();
+	// readers take the current snapshot and never block, writers publish a new one with compare-and-set
+	private final AtomicReference<CryptoSnapshot> snapshot = new AtomicReference<>(CryptoSnapshot.EMPTY);
+
+	private final List<AppendListener> appendListeners = new CopyOnWriteArrayList<>();
+
+	// snapshot versions start over with every instance, validators built from them carry this as well
+	private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+	// zones for which daily rollups are precomputed on every series
+	@Value("${faptic.zones:UTC}")
+	private List<ZoneId> zones = List.of(ZoneOffset.UTC);
+
+	// lazy mode only indexes the CSV files at startup and loads a series on first use,
+	// keeping the least recently used ones within memory-budget
+	@Value("${faptic.loading.lazy:false}")
+	private boolean lazy;
+
+	@Value("${faptic.loading.memory-budget:256MB}")
+	private DataSize memoryBudget = DataSize.ofMegabytes(256);
+
+	// tiered storage keeps the last hot-window of each crypto on the heap and moves older ticks
+	// to compressed memory mapped files in cold-directory, in batches of at least compaction-ticks
+	@Value("${faptic.storage.tiered:false}")
+	private boolean tiered;
+
+	@Value("${faptic.storage.hot-window:30d}")
+	private Duration hotWindow = Duration.ofDays(30);
+
+	@Value("${faptic.storage.compaction-ticks:1024}")
+	private int compactionTicks = ColdSegment.BLOCK_SIZE;
+
+	// a directory under java.io.tmpdir unless configured, which persistent storage requires
+	@Value("${faptic.storage.cold-directory:#{null}}")
+	private Path coldDirectory;
+
+	// persistent storage keeps the cold segments across restarts and reopens them at startup, reading only their
+	// indexes; the CSV files of cryptos found there are skipped. Implies tiered storage
+	@Value("${faptic.storage.persistent:false}")
+	private boolean persistent;
+
+	// complete series of tiered cryptos, merged on demand; entries of replaced tiers age out
+	private SeriesCache<TieredSeries> mergedSeries;
 
 	@PostConstruct
 	public void init() throws Exception {
@@ -38,23 +91,236 @@ public class CryptoRepository {
 		}
 	}
 
+	public CryptoSnapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Whether series are loaded on first use rather than all at startup.
+	 */
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * Identifies this instance's sequence of snapshot versions; versions of different epochs are unrelated.
+	 */
+	public String getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * Read-only view of the records of the current snapshot, keyed by symbol.
+	 */
+	public Map<String, List<CryptoRecord>> getCryptoRecords() {
+		return snapshot.get().getCryptoRecords();
+	}
+
+	/**
+	 * Registers a listener that is notified after every subsequent {@link #append}.
+	 */
+	public void addAppendListener(AppendListener listener) {
+		appendListeners.add(listener);
+	}
+
+	/**
+	 * Adds records to the series of the given symbol and publishes a new snapshot.
+	 * Safe to call from any thread; concurrent writers retry on the latest snapshot instead of locking.
+	 * <p>
+	 * In lazy mode the appended series stays resident, as it can no longer be reloaded from its file.
+	 * With tiered storage records are added to the hot series, which is compacted once enough ticks fell out of
+	 * the hot window.
+	 */
+	public CryptoSnapshot append(String symbol, List<CryptoRecord> records) {
+		CryptoSnapshot next = update(current -> {
+			int symbolId = current.getSymbols().idOf(symbol);
+			PriceSeries series = symbolId != SymbolDictionary.UNKNOWN ? current.getHotSeries(symbolId) : PriceSeries.empty(symbol, zones);
+			return current.withSeries(series.append(records));
+		});
+
+		String canonicalSymbol = next.getSymbols().symbolOf(next.getSymbols().idOf(symbol));
+		if (next.getLazySeries() != null) {
+			next.getLazySeries().invalidate(canonicalSymbol);
+		}
+		for (AppendListener listener : appendListeners) {
+			listener.onAppend(next, symbol, records);
+		}
+
+		if (tiered && !lazy) {
+			compact(canonicalSymbol, compactionTicks);
+		}
+		return next;
+	}
+
+	/**
+	 * Moves the ticks of the symbol older than the hot window, counted from its newest tick, to a new cold segment,
+	 * provided there are at least the given number of them. Readers keep seeing the same data throughout.
+	 */
+	synchronized void compact(String symbol, int minTicks) {
+		moveToColdTier(symbol, hot -> {
+			int split = hot.indexAtOrAfter(hot.timestampAt(hot.size() - 1) - hotWindow.toMillis());
+			return split >= minTicks ? split : 0;
+		});
+	}
+
+	/**
+	 * With persistent storage, moves the ticks still in the hot window to the cold tier, so the next start finds all
+	 * data on disk. Ticks appended since the last compaction are lost if the process ends without this; calling it
+	 * again writes only the ticks appended since.
+	 */
+	@PreDestroy
+	public synchronized void flush() {
+		if (!persistent) {
+			return;
+		}
+
+		CryptoSnapshot current = snapshot.get();
+		for (int symbolId = 0; symbolId < current.symbolCount(); symbolId++) {
+			moveToColdTier(current.getSymbols().symbolOf(symbolId), PriceSeries::size);
+		}
+		log.debug("Flushed the hot tier of {} cryptos to {}", current.symbolCount(), coldDirectory);
+	}
+
+	// moves the oldest ticks of the symbol's hot series, as many as the given function returns for it, to a new segment
+	private void moveToColdTier(String symbol, ToIntFunction<PriceSeries> ticksToMove) {
+		while (true) {
+			CryptoSnapshot current = snapshot.get();
+			int symbolId = current.getSymbols().idOf(symbol);
+			PriceSeries hot = current.getHotSeries(symbolId);
+			if (hot.size() == 0) {
+				return;
+			}
+
+			int split = ticksToMove.applyAsInt(hot);
+			if (split == 0) {
+				return;
+			}
+
+			ColdSegment segment;
+			try {
+				segment = ColdSegment.write(coldDirectory, hot, 0, split, persistent);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			if (snapshot.compareAndSet(current, current.withColdSegment(symbolId, segment, hot.slice(split, hot.size()), mergedSeries()))) {
+				log.debug("Moved {} ticks of {} to cold storage", split, symbol);
+				return;
+			}
+
+			// an append won the race, the ticks are split again from its snapshot
+			try {
+				segment.delete();
+			} catch (IOException e) {
+				log.warn("Failed to delete unused cold segment of {}", symbol, e);
+			}
+		}
+	}
+
+	private synchronized SeriesCache<TieredSeries> mergedSeries() {
+		if (mergedSeries == null) {
+			mergedSeries = new SeriesCache<>(memoryBudget.toBytes(), TieredSeries::materialize);
+		}
+		return mergedSeries;
+	}
+
+	private CryptoSnapshot update(UnaryOperator<CryptoSnapshot> change) {
+		while (true) {
+			CryptoSnapshot current = snapshot.get();
+			CryptoSnapshot next = change.apply(current);
+			if (snapshot.compareAndSet(current, next)) {
+				return next;
+			}
+		}
+	}
+
 	private void loadCryptoData() throws Exception {
 		ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
 		Resource[] resources = resolver.getResources("classpath:prices/*.csv");
 		Pattern pattern = Pattern.compile("^[A-Z]+_values\\.csv$");
+		List<String> cryptoNames = new ArrayList<>();
 
 		for (Resource resource : resources) {
 			String filename = resource.getFilename();
 
 			if (filename != null && pattern.matcher(filename).find()) {
-				String cryptoName = filename.replace("_values.csv", "");
-				List<CryptoRecord> records = readCryptoData("prices/" + cryptoName);
-				cryptoRecords.put(cryptoName, records);
-				log.debug("Read data for {}", cryptoName);
+				cryptoNames.add(filename.replace("_values.csv", ""));
 			} else {
 				log.warn("Skipped file with unmatched format: {}", filename);
 			}
 		}
+
+		if (lazy && persistent) {
+			log.warn("Persistent storage is not supported together with lazy loading, reading the CSV files only");
+			persistent = false;
+		}
+		if (persistent && coldDirectory == null) {
+			throw new IllegalStateException("Persistent storage requires faptic.storage.cold-directory to be set");
+		}
+		if (coldDirectory == null) {
+			coldDirectory = Path.of(System.getProperty("java.io.tmpdir"), "faptic-cold");
+		}
+		if (persistent) {
+			tiered = true;
+			openPersistedSegments();
+		}
+
+		if (lazy && tiered) {
+			log.warn("Tiered storage is not supported together with lazy loading, keeping all loaded data on the heap");
+		}
+
+		if (lazy) {
+			SeriesCache<String> cache = new SeriesCache<>(memoryBudget.toBytes(), this::loadSeries);
+			update(current -> current.withLazySeries(cryptoNames, cache));
+			log.debug("Indexed {} cryptos for lazy loading within {}", cryptoNames.size(), memoryBudget);
+			return;
+		}
+
+		for (String cryptoName : cryptoNames) {
+			if (snapshot.get().getSymbols().idOf(cryptoName) != SymbolDictionary.UNKNOWN) {
+				log.debug("Skipped CSV file of {}, its data is persisted", cryptoName);
+				continue;
+			}
+
+			List<CryptoRecord> records = readCryptoData("prices/" + cryptoName);
+			append(cryptoName, records);
+			log.debug("Read data for {}", cryptoName);
+			if (tiered) {
+				// the initial load moves all history out of the hot window, however little it is
+				compact(cryptoName, 1);
+			}
+		}
+	}
+
+	// one cold tier per crypto from all segment files in cold-directory, nothing but their indexes is read
+	private void openPersistedSegments() throws IOException {
+		if (!Files.isDirectory(coldDirectory)) {
+			return;
+		}
+
+		Map<String, List<ColdSegment>> segmentsBySymbol = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(coldDirectory, "*" + ColdSegment.FILE_SUFFIX)) {
+			for (Path file : files) {
+				ColdSegment segment = ColdSegment.open(file);
+				segmentsBySymbol.computeIfAbsent(segment.symbol(), symbol -> new ArrayList<>()).add(segment);
+			}
+		}
+
+		for (Map.Entry<String, List<ColdSegment>> entry : segmentsBySymbol.entrySet()) {
+			ColdTier tier = ColdTier.of(entry.getValue());
+			update(current -> current.withColdTier(PriceSeries.empty(entry.getKey(), zones), tier, mergedSeries()));
+			log.debug("Opened {} persisted ticks of {}", tier.size(), entry.getKey());
+		}
+	}
+
+	private PriceSeries loadSeries(String cryptoName) {
+		try {
+			PriceSeries series = PriceSeries.empty(cryptoName, zones).append(readCryptoData("prices/" + cryptoName));
+			log.debug("Loaded data for {}", cryptoName);
+			return series;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 
 
@@ -98,4 +364,3 @@ public class CryptoRepository {
 		return records;
 	}
 }
-
@@ -0,0 +1,306 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.model.CryptoRecord;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of all price series held by the {@link CryptoRepository}.
+ * <p>
+ * Series are indexed by the dense symbol ids of the snapshot's {@link SymbolDictionary}.
+ * A new snapshot is published for every data change. Series that did not change are shared
+ * between consecutive snapshots, only the touched symbol is copied. Each symbol also records the version in which
+ * its data last changed, so readers can tell which symbols changed since a version they have seen.
+ * <p>
+ * In lazy mode a symbol may have no series in the snapshot; it is then served from a {@link SeriesCache}
+ * that loads it on first use and may evict it again. The symbol stays known either way.
+ * <p>
+ * With tiered storage the snapshot holds the recent ticks of a symbol as its hot series and older ones in a
+ * {@link ColdTier}. {@link #getSeries(int)} then returns the complete series, merged on demand and kept in a
+ * {@link SeriesCache}. Readers of a time range use {@link #aggregate(int, long, long)}, {@link #scan(int, long, long, PriceStore.TickConsumer)}
+ * or {@link #getSeries(int, long, long)} instead, which read the cold tier only if the range reaches into it.
+ */
+public final class CryptoSnapshot {
+
+	static final CryptoSnapshot EMPTY = new CryptoSnapshot(0, new long[0], SymbolDictionary.EMPTY, new PriceSeries[0], new ColdTier[0], null, null);
+
+	private final long version;
+	// version of the snapshot in which each symbol's data last changed, by symbol id
+	private final long[] symbolVersions;
+	private final SymbolDictionary symbols;
+	private final PriceSeries[] series;
+	// source of the symbols without a series of their own, null unless loading lazily
+	private final SeriesCache<String> lazySeries;
+	// older history per symbol id, null entries for symbols held on the heap entirely
+	private final ColdTier[] coldTiers;
+	// complete series of the symbols with a cold tier, null unless storage is tiered
+	private final SeriesCache<TieredSeries> mergedSeries;
+
+	// materialised on first use, most readers work on the columns directly
+	private volatile Map<String, List<CryptoRecord>> cryptoRecords;
+
+	private CryptoSnapshot(long version, long[] symbolVersions, SymbolDictionary symbols, PriceSeries[] series, ColdTier[] coldTiers,
+						   SeriesCache<String> lazySeries, SeriesCache<TieredSeries> mergedSeries) {
+		this.version = version;
+		this.symbolVersions = symbolVersions;
+		this.symbols = symbols;
+		this.series = series;
+		this.coldTiers = coldTiers;
+		this.lazySeries = lazySeries;
+		this.mergedSeries = mergedSeries;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Version of the snapshot in which the data of the given symbol id last changed; increases with every change
+	 * of that symbol and never exceeds {@link #getVersion()}.
+	 */
+	public long getSymbolVersion(int symbolId) {
+		return symbolVersions[symbolId];
+	}
+
+	/**
+	 * Ids of the symbols whose data changed after the given version, in id order.
+	 */
+	public int[] symbolsChangedSince(long sinceVersion) {
+		int[] changed = new int[symbolVersions.length];
+		int count = 0;
+		for (int symbolId = 0; symbolId < symbolVersions.length; symbolId++) {
+			if (symbolVersions[symbolId] > sinceVersion) {
+				changed[count++] = symbolId;
+			}
+		}
+		return Arrays.copyOf(changed, count);
+	}
+
+	public SymbolDictionary getSymbols() {
+		return symbols;
+	}
+
+	public int symbolCount() {
+		return series.length;
+	}
+
+	/**
+	 * Series of the given symbol id. In lazy mode this may load the series, which can take a while on first use;
+	 * with tiered storage it may decompress and merge the cold tier.
+	 */
+	public PriceSeries getSeries(int symbolId) {
+		if (coldTiers[symbolId] != null) {
+			return mergedSeries.get(new TieredSeries(coldTiers[symbolId], getHotSeries(symbolId)));
+		}
+		return getHotSeries(symbolId);
+	}
+
+	/**
+	 * Ticks of the given symbol id held on the heap: the whole series, or the recent ticks with tiered storage.
+	 */
+	public PriceSeries getHotSeries(int symbolId) {
+		PriceSeries priceSeries = series[symbolId];
+		return priceSeries != null ? priceSeries : lazySeries.get(symbols.symbolOf(symbolId));
+	}
+
+	/**
+	 * Older history of the given symbol id, or null if all its ticks are in the hot series.
+	 */
+	public ColdTier getColdTier(int symbolId) {
+		return coldTiers[symbolId];
+	}
+
+	/**
+	 * Series holding at least every tick of the given symbol id within {@code [from, to]}. Ranges after the newest
+	 * cold tick are served by the hot series; ranges reaching into the cold tier merge only the ticks within the
+	 * range, unless they cover the whole history, which is the cached complete series.
+	 */
+	public PriceSeries getSeries(int symbolId, long from, long to) {
+		PriceSeries hot = getHotSeries(symbolId);
+		ColdTier cold = coldTiers[symbolId];
+		if (cold == null || from > cold.getNewest() || to < cold.getOldest()) {
+			return hot;
+		}
+		if (from <= Math.min(cold.getOldest(), hot.getOldest()) && to >= Math.max(cold.getNewest(), hot.getNewest())) {
+			return getSeries(symbolId);
+		}
+		return cold.materialize(hot.slice(hot.indexAtOrAfter(from), hot.indexAfter(to)), from, to);
+	}
+
+	/**
+	 * Series holding every tick of the given symbol id from the last one at or before {@code from} on, so that grids
+	 * starting at {@code from} fill from the same tick as on the complete series. That is the hot series when it
+	 * reaches back that far and all cold ticks are older, the complete series otherwise.
+	 */
+	public PriceSeries getSeriesFrom(int symbolId, long from) {
+		PriceSeries hot = getHotSeries(symbolId);
+		ColdTier cold = coldTiers[symbolId];
+		if (cold == null || (hot.getOldest() <= from && cold.getNewest() < hot.getOldest())) {
+			return hot;
+		}
+		return getSeries(symbolId);
+	}
+
+	/**
+	 * Time of the oldest tick of the given symbol id in either tier, {@link Long#MAX_VALUE} if there are none.
+	 */
+	public long getOldest(int symbolId) {
+		ColdTier cold = coldTiers[symbolId];
+		long oldest = getHotSeries(symbolId).getOldest();
+		return cold != null ? Math.min(cold.getOldest(), oldest) : oldest;
+	}
+
+	/**
+	 * Time of the newest tick of the given symbol id in either tier, {@link Long#MIN_VALUE} if there are none.
+	 */
+	public long getNewest(int symbolId) {
+		ColdTier cold = coldTiers[symbolId];
+		long newest = getHotSeries(symbolId).getNewest();
+		return cold != null ? Math.max(cold.getNewest(), newest) : newest;
+	}
+
+	/**
+	 * Upper bound of the number of ticks of the given symbol id within {@code [from, to]}, found by binary search in
+	 * the hot series and the block index of the cold tier, nothing is decompressed.
+	 */
+	public long estimateTicks(int symbolId, long from, long to) {
+		long ticks = getHotSeries(symbolId).estimateTicks(from, to);
+		ColdTier cold = coldTiers[symbolId];
+		return cold != null ? ticks + cold.estimateTicks(from, to) : ticks;
+	}
+
+	/**
+	 * Upper bound of the time by which the given symbol id has at least {@code count} ticks at or after {@code from},
+	 * the earlier one of either tier; {@link Long#MAX_VALUE} if it has fewer. Nothing is decompressed.
+	 */
+	public long estimateEnd(int symbolId, long from, long count) {
+		long end = getHotSeries(symbolId).estimateEnd(from, count);
+		ColdTier cold = coldTiers[symbolId];
+		return cold != null ? Math.min(end, cold.estimateEnd(from, count)) : end;
+	}
+
+	/**
+	 * Upper bound of the number of ticks of all symbols within {@code [from, to]}.
+	 */
+	public long estimateTicks(long from, long to) {
+		long ticks = 0;
+		for (int symbolId = 0; symbolId < series.length; symbolId++) {
+			ticks += estimateTicks(symbolId, from, to);
+		}
+		return ticks;
+	}
+
+	/**
+	 * Aggregate of the ticks of the given symbol id within {@code [from, to]}, or null if there are none. The cold
+	 * tier contributes its block aggregates only if the range reaches into it.
+	 */
+	public RangeAggregate aggregate(int symbolId, long from, long to) {
+		RangeAggregate hot = getHotSeries(symbolId).aggregate(from, to);
+		ColdTier cold = coldTiers[symbolId];
+		if (cold == null || from > cold.getNewest() || to < cold.getOldest()) {
+			return hot;
+		}
+		return RangeAggregate.merge(cold.aggregate(from, to), hot);
+	}
+
+	/**
+	 * Passes the ticks of the given symbol id within {@code [from, to]} to the consumer in time order. Ranges after the
+	 * newest cold tick read the hot series alone; otherwise the cold tier is scanned first if its ticks all precede the
+	 * hot ones in the range, and only the ticks within the range are merged if they do not.
+	 */
+	public void scan(int symbolId, long from, long to, PriceStore.TickConsumer consumer) {
+		PriceSeries hot = getHotSeries(symbolId);
+		ColdTier cold = coldTiers[symbolId];
+		if (cold == null || from > cold.getNewest() || to < cold.getOldest()) {
+			hot.scan(from, to, consumer);
+		} else if (hot.estimateTicks(from, cold.getNewest()) == 0) {
+			cold.scan(from, to, consumer);
+			hot.scan(from, to, consumer);
+		} else {
+			getSeries(symbolId, from, to).scan(from, to, consumer);
+		}
+	}
+
+	/**
+	 * Series of the given symbol ignoring case, or null if the symbol is unknown.
+	 */
+	public PriceSeries getSeries(String symbol) {
+		int symbolId = symbols.idOf(symbol);
+		return symbolId != SymbolDictionary.UNKNOWN ? getSeries(symbolId) : null;
+	}
+
+	public Map<String, List<CryptoRecord>> getCryptoRecords() {
+		Map<String, List<CryptoRecord>> records = cryptoRecords;
+		if (records == null) {
+			Map<String, List<CryptoRecord>> view = new LinkedHashMap<>();
+			for (int symbolId = 0; symbolId < series.length; symbolId++) {
+				view.put(symbols.symbolOf(symbolId), getSeries(symbolId).toRecords());
+			}
+			records = Collections.unmodifiableMap(view);
+			// keeping the view would pin every lazily loaded or merged series
+			if (lazySeries == null && mergedSeries == null) {
+				cryptoRecords = records;
+			}
+		}
+		return records;
+	}
+
+	CryptoSnapshot withSeries(PriceSeries priceSeries) {
+		SymbolDictionary nextSymbols = symbols.with(priceSeries.getSymbol());
+		int symbolId = nextSymbols.idOf(priceSeries.getSymbol());
+
+		PriceSeries[] nextSeries = Arrays.copyOf(series, nextSymbols.size());
+		nextSeries[symbolId] = priceSeries;
+		long[] nextSymbolVersions = Arrays.copyOf(symbolVersions, nextSymbols.size());
+		nextSymbolVersions[symbolId] = version + 1;
+		return new CryptoSnapshot(version + 1, nextSymbolVersions, nextSymbols, nextSeries, Arrays.copyOf(coldTiers, nextSymbols.size()),
+				lazySeries, mergedSeries);
+	}
+
+	/**
+	 * Moves the ticks of a symbol's hot series that the given segment holds to its cold tier; the given hot series
+	 * holds the remaining ones. The data does not change, so neither does the version.
+	 */
+	CryptoSnapshot withColdSegment(int symbolId, ColdSegment segment, PriceSeries hot, SeriesCache<TieredSeries> cache) {
+		PriceSeries[] nextSeries = series.clone();
+		nextSeries[symbolId] = hot;
+		ColdTier[] nextColdTiers = coldTiers.clone();
+		nextColdTiers[symbolId] = coldTiers[symbolId] != null ? coldTiers[symbolId].with(segment) : ColdTier.of(segment);
+		return new CryptoSnapshot(version, symbolVersions, symbols, nextSeries, nextColdTiers, lazySeries, cache);
+	}
+
+	/**
+	 * Adds a symbol whose history so far is held by the given cold tier, e.g. one reopened from disk, next to the
+	 * given hot series.
+	 */
+	CryptoSnapshot withColdTier(PriceSeries hot, ColdTier tier, SeriesCache<TieredSeries> cache) {
+		CryptoSnapshot next = withSeries(hot);
+		ColdTier[] nextColdTiers = next.coldTiers.clone();
+		nextColdTiers[next.symbols.idOf(hot.getSymbol())] = tier;
+		return new CryptoSnapshot(next.version, next.symbolVersions, next.symbols, next.series, nextColdTiers, lazySeries, cache);
+	}
+
+	/**
+	 * Registers symbols whose series are not held by the snapshot but loaded on demand from the given cache.
+	 */
+	CryptoSnapshot withLazySeries(Collection<String> lazySymbols, SeriesCache<String> cache) {
+		SymbolDictionary nextSymbols = symbols.withAll(lazySymbols);
+		long[] nextSymbolVersions = Arrays.copyOf(symbolVersions, nextSymbols.size());
+		Arrays.fill(nextSymbolVersions, symbolVersions.length, nextSymbolVersions.length, version + 1);
+		return new CryptoSnapshot(version + 1, nextSymbolVersions, nextSymbols, Arrays.copyOf(series, nextSymbols.size()),
+				Arrays.copyOf(coldTiers, nextSymbols.size()), cache, mergedSeries);
+	}
+
+	SeriesCache<String> getLazySeries() {
+		return lazySeries;
+	}
+
+	SeriesCache<TieredSeries> getMergedSeries() {
+		return mergedSeries;
+	}
+}
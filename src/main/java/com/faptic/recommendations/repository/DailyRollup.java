@@ -0,0 +1,251 @@
+package com.faptic.recommendations.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Per-day aggregates of a {@link PriceSeries}, with day boundaries taken in a specific time zone.
+ * <p>
+ * Each day covers the contiguous tick range {@code [startIndex, endIndex)} of its series, so day
+ * level answers need no scan, and any slice of the series can be aggregated from the whole days it
+ * contains plus the few ticks at its edges.
+ */
+public final class DailyRollup {
+
+	private final ZoneId zone;
+	private final long[] epochDays;
+	private final int[] startIndexes;
+	private final int[] endIndexes;
+	private final double[] minPrices;
+	private final double[] maxPrices;
+
+	private DailyRollup(ZoneId zone, long[] epochDays, int[] startIndexes, int[] endIndexes, double[] minPrices, double[] maxPrices) {
+		this.zone = zone;
+		this.epochDays = epochDays;
+		this.startIndexes = startIndexes;
+		this.endIndexes = endIndexes;
+		this.minPrices = minPrices;
+		this.maxPrices = maxPrices;
+	}
+
+	static DailyRollup of(PriceSeries series, ZoneId zone) {
+		Builder builder = new Builder(zone, series.size());
+		for (int i = 0; i < series.size(); i++) {
+			builder.add(i, series.timestampAt(i), series.priceAt(i));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Rollup of a series whose ticks before {@code firstChanged} are those of the series this one rolls up, e.g. one
+	 * with ticks appended. Days before the one holding the tick before {@code firstChanged} are kept, so appending
+	 * after the tail only rolls up the last day and the new ones.
+	 */
+	DailyRollup extend(PriceSeries series, int firstChanged) {
+		// the day of the tick before the first changed one may continue, it is rolled up again from its start
+		int keptDays = Math.max(0, lastDayStartingBefore(firstChanged));
+		int from = keptDays < epochDays.length ? startIndexes[keptDays] : 0;
+
+		Builder builder = new Builder(zone, keptDays + series.size() - from);
+		for (int day = 0; day < keptDays; day++) {
+			builder.addDay(epochDays[day], startIndexes[day], endIndexes[day], minPrices[day], maxPrices[day]);
+		}
+		for (int i = from; i < series.size(); i++) {
+			builder.add(i, series.timestampAt(i), series.priceAt(i));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Rollup of the given slice, the ticks {@code [from, to)} of the series this one rolls up. Whole days are kept,
+	 * only the days cut at the edges are rolled up again.
+	 */
+	DailyRollup slice(PriceSeries slice, int from, int to) {
+		Builder builder = new Builder(zone, to - from);
+		int firstDay = firstDayStartingAtOrAfter(from);
+		int lastDay = lastDayEndingAtOrBefore(to);
+		int head = firstDay <= lastDay ? startIndexes[firstDay] : to;
+		for (int i = from; i < head; i++) {
+			builder.add(i - from, slice.timestampAt(i - from), slice.priceAt(i - from));
+		}
+		for (int day = firstDay; day <= lastDay; day++) {
+			builder.addDay(epochDays[day], startIndexes[day] - from, endIndexes[day] - from, minPrices[day], maxPrices[day]);
+		}
+		for (int i = firstDay <= lastDay ? endIndexes[lastDay] : to; i < to; i++) {
+			builder.add(i - from, slice.timestampAt(i - from), slice.priceAt(i - from));
+		}
+		return builder.build();
+	}
+
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	public int dayCount() {
+		return epochDays.length;
+	}
+
+	/**
+	 * Position of the given local day in this rollup, or -1 if the series has no ticks on that day.
+	 */
+	public int indexOfDay(LocalDate day) {
+		int index = Arrays.binarySearch(epochDays, day.toEpochDay());
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Position of the first day with ticks at or after the given local day, {@link #dayCount()} if there is none.
+	 */
+	public int indexOfDayAtOrAfter(LocalDate day) {
+		int index = Arrays.binarySearch(epochDays, day.toEpochDay());
+		return index >= 0 ? index : -index - 1;
+	}
+
+	public LocalDate dayAt(int index) {
+		return LocalDate.ofEpochDay(epochDays[index]);
+	}
+
+	public int startIndexAt(int index) {
+		return startIndexes[index];
+	}
+
+	public int endIndexAt(int index) {
+		return endIndexes[index];
+	}
+
+	public double minPriceAt(int index) {
+		return minPrices[index];
+	}
+
+	public double maxPriceAt(int index) {
+		return maxPrices[index];
+	}
+
+	/**
+	 * Minimum price of the ticks {@code [from, to)} of the rolled up series; the slice must not be empty.
+	 */
+	public double minPrice(PriceSeries series, int from, int to) {
+		int firstDay = firstDayStartingAtOrAfter(from);
+		int lastDay = lastDayEndingAtOrBefore(to);
+		if (firstDay > lastDay) {
+			return scanMin(series, from, to);
+		}
+
+		double min = Math.min(scanMin(series, from, startIndexes[firstDay]), scanMin(series, endIndexes[lastDay], to));
+		for (int day = firstDay; day <= lastDay; day++) {
+			min = Math.min(min, minPrices[day]);
+		}
+		return min;
+	}
+
+	/**
+	 * Maximum price of the ticks {@code [from, to)} of the rolled up series; the slice must not be empty.
+	 */
+	public double maxPrice(PriceSeries series, int from, int to) {
+		int firstDay = firstDayStartingAtOrAfter(from);
+		int lastDay = lastDayEndingAtOrBefore(to);
+		if (firstDay > lastDay) {
+			return scanMax(series, from, to);
+		}
+
+		double max = Math.max(scanMax(series, from, startIndexes[firstDay]), scanMax(series, endIndexes[lastDay], to));
+		for (int day = firstDay; day <= lastDay; day++) {
+			max = Math.max(max, maxPrices[day]);
+		}
+		return max;
+	}
+
+	private int firstDayStartingAtOrAfter(int tickIndex) {
+		int index = Arrays.binarySearch(startIndexes, tickIndex);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private int lastDayEndingAtOrBefore(int tickIndex) {
+		int index = Arrays.binarySearch(endIndexes, tickIndex);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	private int lastDayStartingBefore(int tickIndex) {
+		int index = Arrays.binarySearch(startIndexes, tickIndex);
+		return index >= 0 ? index - 1 : -index - 2;
+	}
+
+	private static double scanMin(PriceSeries series, int from, int to) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			min = Math.min(min, series.priceAt(i));
+		}
+		return min;
+	}
+
+	private static double scanMax(PriceSeries series, int from, int to) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			max = Math.max(max, series.priceAt(i));
+		}
+		return max;
+	}
+
+	// collects days in time order, from ticks or from whole days of another rollup
+	private static final class Builder {
+
+		private final ZoneId zone;
+		private final long[] epochDays;
+		private final int[] startIndexes;
+		private final int[] endIndexes;
+		private final double[] minPrices;
+		private final double[] maxPrices;
+		private int days = -1;
+		private long nextDayStart = Long.MIN_VALUE;
+
+		private Builder(ZoneId zone, int capacity) {
+			this.zone = zone;
+			epochDays = new long[capacity];
+			startIndexes = new int[capacity];
+			endIndexes = new int[capacity];
+			minPrices = new double[capacity];
+			maxPrices = new double[capacity];
+		}
+
+		private void add(int index, long timestamp, double price) {
+			// resolve the local date only when a day boundary is crossed, not for every tick
+			if (timestamp >= nextDayStart) {
+				LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone);
+				nextDayStart = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+				days++;
+				epochDays[days] = day.toEpochDay();
+				startIndexes[days] = index;
+				minPrices[days] = price;
+				maxPrices[days] = price;
+			} else {
+				minPrices[days] = Math.min(minPrices[days], price);
+				maxPrices[days] = Math.max(maxPrices[days], price);
+			}
+			endIndexes[days] = index + 1;
+		}
+
+		// the next tick added is on a later day
+		private void addDay(long epochDay, int startIndex, int endIndex, double minPrice, double maxPrice) {
+			days++;
+			epochDays[days] = epochDay;
+			startIndexes[days] = startIndex;
+			endIndexes[days] = endIndex;
+			minPrices[days] = minPrice;
+			maxPrices[days] = maxPrice;
+			nextDayStart = Long.MIN_VALUE;
+		}
+
+		private DailyRollup build() {
+			int count = days + 1;
+			return new DailyRollup(zone,
+					Arrays.copyOf(epochDays, count),
+					Arrays.copyOf(startIndexes, count),
+					Arrays.copyOf(endIndexes, count),
+					Arrays.copyOf(minPrices, count),
+					Arrays.copyOf(maxPrices, count));
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package com.faptic.recommendations.repository;
+
+/**
+ * How a {@link ResampledSeries} derives the price at a grid point lying between two ticks.
+ */
+public enum FillMethod {
+
+	// price of the last tick at or before the grid point
+	FORWARD,
+
+	// linear interpolation between the ticks around the grid point
+	LINEAR
+}
@@ -0,0 +1,308 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.model.CryptoRecord;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Immutable, time ordered price series of a single symbol, stored as primitive columns.
+ * <p>
+ * Instances are never modified after construction: {@link #append(List)} returns a new series,
+ * so a published series can be read by any number of threads without synchronisation.
+ * As a {@link PriceStore} it is the in-memory one, locating ranges by binary search.
+ */
+public final class PriceSeries implements PriceStore {
+
+	private static final int MAX_RESAMPLED_GRIDS = 16;
+
+	private final String symbol;
+	private final long[] timestamps;
+	private final double[] prices;
+	// keyed by normalized zone, derived from those of the series this one was made from for the same zones
+	private final Map<ZoneId, DailyRollup> dailyRollups;
+	// derived on first use per grid and dropped together with this series once ticks are appended
+	private final Map<Grid, ResampledSeries> resampled = new ConcurrentHashMap<>();
+
+	private PriceSeries(String symbol, long[] timestamps, double[] prices, Collection<ZoneId> zones) {
+		this.symbol = symbol;
+		this.timestamps = timestamps;
+		this.prices = prices;
+
+		Map<ZoneId, DailyRollup> rollups = new HashMap<>();
+		for (ZoneId zone : zones) {
+			rollups.put(zone.normalized(), DailyRollup.of(this, zone.normalized()));
+		}
+		this.dailyRollups = Map.copyOf(rollups);
+	}
+
+	// rollups derived from the given ones, which were built for the series this one was made from
+	private PriceSeries(String symbol, long[] timestamps, double[] prices, Map<ZoneId, DailyRollup> previous,
+						BiFunction<DailyRollup, PriceSeries, DailyRollup> derive) {
+		this.symbol = symbol;
+		this.timestamps = timestamps;
+		this.prices = prices;
+
+		Map<ZoneId, DailyRollup> rollups = new HashMap<>();
+		previous.forEach((zone, rollup) -> rollups.put(zone, derive.apply(rollup, this)));
+		this.dailyRollups = Map.copyOf(rollups);
+	}
+
+	public static PriceSeries empty(String symbol) {
+		return empty(symbol, List.of());
+	}
+
+	/**
+	 * Empty series that maintains daily rollups for the given zones.
+	 */
+	public static PriceSeries empty(String symbol, Collection<ZoneId> zones) {
+		return new PriceSeries(symbol, new long[0], new double[0], zones);
+	}
+
+	public static PriceSeries of(String symbol, List<CryptoRecord> records) {
+		return empty(symbol).append(records);
+	}
+
+	/**
+	 * Returns a new series containing this series' ticks merged with the given records.
+	 * Records are kept in timestamp order; on equal timestamps existing ticks come first.
+	 */
+	public PriceSeries append(List<CryptoRecord> records) {
+		if (records.isEmpty()) {
+			return this;
+		}
+
+		List<CryptoRecord> incoming = new ArrayList<>(records);
+		incoming.sort(Comparator.comparing(CryptoRecord::getTimestamp));
+
+		long[] incomingTimestamps = new long[incoming.size()];
+		double[] incomingPrices = new double[incoming.size()];
+		for (int j = 0; j < incoming.size(); j++) {
+			incomingTimestamps[j] = incoming.get(j).getTimestamp().toEpochMilli();
+			incomingPrices[j] = incoming.get(j).getPrice();
+		}
+		return withTicks(incomingTimestamps, incomingPrices);
+	}
+
+	/**
+	 * Returns a new series containing this series' ticks merged with the given time ordered ticks,
+	 * existing ticks first on equal timestamps. The rollups are extended from the day of the first merged tick on,
+	 * so ticks after the tail only touch the last day.
+	 */
+	PriceSeries withTicks(long[] incomingTimestamps, double[] incomingPrices) {
+		int size = timestamps.length + incomingTimestamps.length;
+		long[] mergedTimestamps = new long[size];
+		double[] mergedPrices = new double[size];
+
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < size; k++) {
+			if (j >= incomingTimestamps.length || (i < timestamps.length && timestamps[i] <= incomingTimestamps[j])) {
+				mergedTimestamps[k] = timestamps[i];
+				mergedPrices[k] = prices[i];
+				i++;
+			} else {
+				mergedTimestamps[k] = incomingTimestamps[j];
+				mergedPrices[k] = incomingPrices[j];
+				j++;
+			}
+		}
+
+		// ticks before the first merged one are unchanged
+		int firstChanged = incomingTimestamps.length > 0 ? indexAfter(incomingTimestamps[0]) : timestamps.length;
+		return new PriceSeries(symbol, mergedTimestamps, mergedPrices, dailyRollups, (rollup, series) -> rollup.extend(series, firstChanged));
+	}
+
+	/**
+	 * Returns a new series with the ticks {@code [from, to)} of this one, maintaining the same rollups.
+	 */
+	PriceSeries slice(int from, int to) {
+		return new PriceSeries(symbol, Arrays.copyOfRange(timestamps, from, to), Arrays.copyOfRange(prices, from, to), dailyRollups,
+				(rollup, series) -> rollup.slice(series, from, to));
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	public int size() {
+		return timestamps.length;
+	}
+
+	public long timestampAt(int index) {
+		return timestamps[index];
+	}
+
+	public double priceAt(int index) {
+		return prices[index];
+	}
+
+	/**
+	 * Bulk copies the timestamps of the ticks {@code [from, to)} into the given buffer.
+	 */
+	public void copyTimestamps(int from, int to, LongBuffer target) {
+		target.put(timestamps, from, to - from);
+	}
+
+	/**
+	 * Bulk copies the prices of the ticks {@code [from, to)} into the given buffer.
+	 */
+	public void copyPrices(int from, int to, DoubleBuffer target) {
+		target.put(prices, from, to - from);
+	}
+
+	/**
+	 * Index of the first tick at or after the given time, or {@link #size()} if there is none.
+	 */
+	public int indexAtOrAfter(long epochMilli) {
+		int index = Arrays.binarySearch(timestamps, epochMilli);
+		if (index < 0) {
+			return -index - 1;
+		}
+		// step back over equal timestamps, binarySearch gives no guarantee which one it finds
+		while (index > 0 && timestamps[index - 1] == epochMilli) {
+			index--;
+		}
+		return index;
+	}
+
+	/**
+	 * Index of the first tick strictly after the given time, or {@link #size()} if there is none.
+	 */
+	public int indexAfter(long epochMilli) {
+		int index = indexAtOrAfter(epochMilli);
+		while (index < timestamps.length && timestamps[index] == epochMilli) {
+			index++;
+		}
+		return index;
+	}
+
+	@Override
+	public long getOldest() {
+		return timestamps.length > 0 ? timestamps[0] : Long.MAX_VALUE;
+	}
+
+	@Override
+	public long getNewest() {
+		return timestamps.length > 0 ? timestamps[timestamps.length - 1] : Long.MIN_VALUE;
+	}
+
+	@Override
+	public RangeAggregate aggregate(long from, long to) {
+		int start = indexAtOrAfter(from);
+		int end = indexAfter(to);
+		if (start >= end) {
+			return null;
+		}
+
+		double minPrice;
+		double maxPrice;
+		// the rollup of any zone covers every tick, its extremes do not depend on the day boundaries
+		DailyRollup rollup = dailyRollups.isEmpty() ? null : dailyRollups.values().iterator().next();
+		if (rollup != null) {
+			minPrice = rollup.minPrice(this, start, end);
+			maxPrice = rollup.maxPrice(this, start, end);
+		} else {
+			minPrice = prices[start];
+			maxPrice = minPrice;
+			for (int i = start + 1; i < end; i++) {
+				minPrice = Math.min(minPrice, prices[i]);
+				maxPrice = Math.max(maxPrice, prices[i]);
+			}
+		}
+		return new RangeAggregate(end - start, timestamps[start], timestamps[end - 1], minPrice, maxPrice);
+	}
+
+	@Override
+	public long estimateTicks(long from, long to) {
+		return Math.max(0, indexAfter(to) - indexAtOrAfter(from));
+	}
+
+	@Override
+	public long estimateEnd(long from, long count) {
+		long last = indexAtOrAfter(from) + count - 1;
+		return count > 0 && last < timestamps.length ? timestamps[(int) last] : Long.MAX_VALUE;
+	}
+
+	@Override
+	public void scan(long from, long to, TickConsumer consumer) {
+		for (int i = indexAtOrAfter(from), end = indexAfter(to); i < end; i++) {
+			consumer.accept(timestamps[i], prices[i]);
+		}
+	}
+
+	/**
+	 * Daily aggregates with day boundaries in the given zone, or null if they are not maintained for it.
+	 */
+	public DailyRollup getDailyRollup(ZoneId zone) {
+		return dailyRollups.get(zone.normalized());
+	}
+
+	/**
+	 * Prices on the regular grid {@code origin + k * step} (milliseconds), with the tick count of every grid interval.
+	 * Computed once per grid and fill method; grids with the same step whose origins differ by whole steps are the same.
+	 *
+	 * @throws com.faptic.recommendations.exception.GridTooLargeException if the grid exceeds {@link ResampledSeries#MAX_POINTS}
+	 */
+	public ResampledSeries resample(long step, long origin, FillMethod fillMethod) {
+		Grid grid = new Grid(step, Math.floorMod(origin, step), fillMethod);
+		ResampledSeries cached = resampled.get(grid);
+		if (cached != null) {
+			return cached;
+		}
+
+		if (resampled.size() >= MAX_RESAMPLED_GRIDS) {
+			resampled.clear();
+		}
+		return resampled.computeIfAbsent(grid, key -> ResampledSeries.of(this, step, origin, fillMethod));
+	}
+
+	/**
+	 * Grid of {@link #resample(long, long, FillMethod)} for a caller that only reads the points within
+	 * {@code [from, to]}. Returns the cached grid of the whole history while that one stays within
+	 * {@link ResampledSeries#MAX_POINTS}; otherwise builds an uncached grid of the range alone, so the limit only applies
+	 * to the range.
+	 *
+	 * @throws com.faptic.recommendations.exception.GridTooLargeException if the grid of the range exceeds {@link ResampledSeries#MAX_POINTS}
+	 */
+	public ResampledSeries resample(long step, long origin, FillMethod fillMethod, long from, long to) {
+		if (timestamps.length == 0 || (timestamps[timestamps.length - 1] - timestamps[0]) / step < ResampledSeries.MAX_POINTS) {
+			return resample(step, origin, fillMethod);
+		}
+		return ResampledSeries.of(this, step, origin, fillMethod, from, to);
+	}
+
+	/**
+	 * Approximate heap footprint of the columns and daily rollups of this series.
+	 */
+	public long estimatedBytes() {
+		long bytes = (long) timestamps.length * (Long.BYTES + Double.BYTES);
+		for (DailyRollup rollup : dailyRollups.values()) {
+			bytes += (long) rollup.dayCount() * (Long.BYTES + 2 * Integer.BYTES + 2 * Double.BYTES);
+		}
+		return bytes;
+	}
+
+	public List<CryptoRecord> toRecords() {
+		List<CryptoRecord> records = new ArrayList<>(timestamps.length);
+		for (int i = 0; i < timestamps.length; i++) {
+			records.add(new CryptoRecord(Instant.ofEpochMilli(timestamps[i]), symbol, prices[i]));
+		}
+		return Collections.unmodifiableList(records);
+	}
+
+	private record Grid(long step, long offset, FillMethod fillMethod) {
+	}
+}
@@ -0,0 +1,49 @@
+package com.faptic.recommendations.repository;
+
+/**
+ * Read access to the time ordered ticks of one symbol, independent of where they are held.
+ * <p>
+ * {@link PriceSeries} holds ticks on the heap, {@link ColdTier} in memory mapped segment files. All time ranges are
+ * closed and in epoch milliseconds. Aggregates are answered from the store's own indexes where it has them, so a
+ * caller that only needs extremes pushes the work down instead of reading the ticks.
+ */
+public interface PriceStore {
+
+	/**
+	 * Time of the oldest tick, {@link Long#MAX_VALUE} if there are none.
+	 */
+	long getOldest();
+
+	/**
+	 * Time of the newest tick, {@link Long#MIN_VALUE} if there are none.
+	 */
+	long getNewest();
+
+	/**
+	 * Aggregate of the ticks within {@code [from, to]}, or null if there are none.
+	 */
+	RangeAggregate aggregate(long from, long to);
+
+	/**
+	 * Upper bound of the number of ticks within {@code [from, to]}, found without reading them.
+	 */
+	long estimateTicks(long from, long to);
+
+	/**
+	 * Upper bound of the time by which the store holds at least {@code count} ticks at or after {@code from}, found
+	 * without reading them; {@link Long#MAX_VALUE} if it holds fewer.
+	 */
+	long estimateEnd(long from, long count);
+
+	/**
+	 * Passes the ticks within {@code [from, to]} to the consumer in time order, reading nothing outside the range
+	 * but what the store's index granularity requires.
+	 */
+	void scan(long from, long to, TickConsumer consumer);
+
+	@FunctionalInterface
+	interface TickConsumer {
+
+		void accept(long timestamp, double price);
+	}
+}
@@ -0,0 +1,21 @@
+package com.faptic.recommendations.repository;
+
+/**
+ * Tick count, oldest and newest time and price extremes of the ticks of a series within a time range.
+ */
+public record RangeAggregate(long ticks, long oldest, long newest, double minPrice, double maxPrice) {
+
+	/**
+	 * Combines the aggregates of two disjoint sets of ticks; either may be null for an empty set.
+	 */
+	public static RangeAggregate merge(RangeAggregate a, RangeAggregate b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		return new RangeAggregate(a.ticks + b.ticks, Math.min(a.oldest, b.oldest), Math.max(a.newest, b.newest),
+				Math.min(a.minPrice, b.minPrice), Math.max(a.maxPrice, b.maxPrice));
+	}
+}
@@ -0,0 +1,135 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.exception.GridTooLargeException;
+
+/**
+ * Prices of a {@link PriceSeries} on a regular time grid, together with the number of ticks in each grid interval.
+ * <p>
+ * Grid points are {@code origin + k * step}; the grid covers the points from the first tick to the last one.
+ * Interval {@code k} spans {@code [point k, point k + 1)}, an interval without ticks is a gap in the series.
+ * Built in a single pass over the ticks and cached by the series per grid, see
+ * {@link PriceSeries#resample(long, long, FillMethod)}.
+ */
+public final class ResampledSeries {
+
+	public static final long MAX_POINTS = 1_000_000;
+
+	private final long step;
+	private final long firstPoint;
+	private final FillMethod fillMethod;
+	private final double[] prices;
+	private final int[] tickCounts;
+
+	private ResampledSeries(long step, long firstPoint, FillMethod fillMethod, double[] prices, int[] tickCounts) {
+		this.step = step;
+		this.firstPoint = firstPoint;
+		this.fillMethod = fillMethod;
+		this.prices = prices;
+		this.tickCounts = tickCounts;
+	}
+
+	static ResampledSeries of(PriceSeries series, long step, long origin, FillMethod fillMethod) {
+		return of(series, step, origin, fillMethod, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Grid limited to the points within {@code [from, to]} as well as to the ticks of the series.
+	 */
+	static ResampledSeries of(PriceSeries series, long step, long origin, FillMethod fillMethod, long from, long to) {
+		int size = series.size();
+		if (size == 0) {
+			return new ResampledSeries(step, origin, fillMethod, new double[0], new int[0]);
+		}
+
+		// first grid point at or after the first tick, last one at or before the last tick
+		long firstPoint = series.timestampAt(0) + Math.floorMod(origin - series.timestampAt(0), step);
+		long lastPoint = series.timestampAt(size - 1) - Math.floorMod(series.timestampAt(size - 1) - origin, step);
+		if (from > firstPoint) {
+			firstPoint = from + Math.floorMod(origin - from, step);
+		}
+		if (to < lastPoint) {
+			lastPoint = to - Math.floorMod(to - origin, step);
+		}
+		long points = firstPoint <= lastPoint ? (lastPoint - firstPoint) / step + 1 : 0;
+		if (points > MAX_POINTS) {
+			throw new GridTooLargeException(series.getSymbol(), points, MAX_POINTS);
+		}
+
+		double[] prices = new double[(int) points];
+		int[] tickCounts = new int[(int) points];
+
+		// cursors only move forward: after is the first tick past the grid point, begin the first tick of its interval
+		int after = series.indexAtOrAfter(firstPoint);
+		int begin = series.indexAtOrAfter(firstPoint);
+		for (int k = 0; k < points; k++) {
+			long point = firstPoint + k * step;
+			while (after < size && series.timestampAt(after) <= point) {
+				after++;
+			}
+
+			double previous = series.priceAt(after - 1);
+			if (fillMethod == FillMethod.LINEAR && after < size) {
+				long previousTime = series.timestampAt(after - 1);
+				double fraction = (double) (point - previousTime) / (series.timestampAt(after) - previousTime);
+				prices[k] = previous + (series.priceAt(after) - previous) * fraction;
+			} else {
+				prices[k] = previous;
+			}
+
+			int next = begin;
+			while (next < size && series.timestampAt(next) < point + step) {
+				next++;
+			}
+			tickCounts[k] = next - begin;
+			begin = next;
+		}
+
+		return new ResampledSeries(step, firstPoint, fillMethod, prices, tickCounts);
+	}
+
+	public long getStep() {
+		return step;
+	}
+
+	public FillMethod getFillMethod() {
+		return fillMethod;
+	}
+
+	public int size() {
+		return prices.length;
+	}
+
+	public long timeAt(int index) {
+		return firstPoint + index * step;
+	}
+
+	public double priceAt(int index) {
+		return prices[index];
+	}
+
+	public int tickCountAt(int index) {
+		return tickCounts[index];
+	}
+
+	/**
+	 * Index of the first grid point at or after the given time, or {@link #size()} if there is none.
+	 */
+	public int indexAtOrAfter(long epochMilli) {
+		if (epochMilli <= firstPoint) {
+			return 0;
+		}
+		long index = (epochMilli - firstPoint + step - 1) / step;
+		return (int) Math.min(index, prices.length);
+	}
+
+	/**
+	 * Index past the last grid point at or before the given time.
+	 */
+	public int indexAfter(long epochMilli) {
+		if (epochMilli < firstPoint) {
+			return 0;
+		}
+		long index = (epochMilli - firstPoint) / step + 1;
+		return (int) Math.min(index, prices.length);
+	}
+}
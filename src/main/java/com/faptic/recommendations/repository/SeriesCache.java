@@ -0,0 +1,118 @@
+package com.faptic.recommendations.repository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Least recently used set of price series loaded on demand, bounded by their estimated heap footprint.
+ * <p>
+ * An evicted series is loaded again on its next use. Loading always yields the same data, so eviction is invisible
+ * to readers apart from the load latency. The most recently used series is never evicted, a series larger than the
+ * whole budget still loads and is dropped once another one is used.
+ */
+final class SeriesCache<K> {
+
+	private final long budgetBytes;
+	private final Function<K, PriceSeries> loader;
+
+	// access ordered, guarded by this
+	private final Map<K, PriceSeries> resident = new LinkedHashMap<>(16, 0.75f, true);
+	private long residentBytes;
+	private long loads;
+	private long evictions;
+
+	// concurrent misses for one key share a single load
+	private final ConcurrentMap<K, CompletableFuture<PriceSeries>> loading = new ConcurrentHashMap<>();
+
+	SeriesCache(long budgetBytes, Function<K, PriceSeries> loader) {
+		this.budgetBytes = budgetBytes;
+		this.loader = loader;
+	}
+
+	PriceSeries get(K key) {
+		synchronized (this) {
+			PriceSeries series = resident.get(key);
+			if (series != null) {
+				return series;
+			}
+		}
+
+		CompletableFuture<PriceSeries> load = new CompletableFuture<>();
+		CompletableFuture<PriceSeries> existing = loading.putIfAbsent(key, load);
+		if (existing != null) {
+			return join(existing);
+		}
+
+		// the file is read outside the lock, readers of resident series are never blocked by a load
+		try {
+			PriceSeries series = loader.apply(key);
+			admit(key, series);
+			load.complete(series);
+			return series;
+		} catch (RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, load);
+		}
+	}
+
+	/**
+	 * Drops the given key, e.g. once its series is held by the snapshot itself.
+	 */
+	synchronized void invalidate(K key) {
+		PriceSeries series = resident.remove(key);
+		if (series != null) {
+			residentBytes -= series.estimatedBytes();
+		}
+	}
+
+	synchronized int residentCount() {
+		return resident.size();
+	}
+
+	synchronized long residentBytes() {
+		return residentBytes;
+	}
+
+	synchronized long loadCount() {
+		return loads;
+	}
+
+	synchronized long evictionCount() {
+		return evictions;
+	}
+
+	private synchronized void admit(K key, PriceSeries series) {
+		PriceSeries replaced = resident.put(key, series);
+		if (replaced != null) {
+			residentBytes -= replaced.estimatedBytes();
+		}
+		residentBytes += series.estimatedBytes();
+		loads++;
+
+		Iterator<PriceSeries> eldest = resident.values().iterator();
+		while (residentBytes > budgetBytes && resident.size() > 1) {
+			residentBytes -= eldest.next().estimatedBytes();
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	private static PriceSeries join(CompletableFuture<PriceSeries> load) {
+		try {
+			return load.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw e;
+		}
+	}
+}
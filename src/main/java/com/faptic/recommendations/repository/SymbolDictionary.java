@@ -0,0 +1,119 @@
+package com.faptic.recommendations.repository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable mapping between symbols and dense int ids, assigned in ingestion order.
+ * <p>
+ * Lookups are case-insensitive and do not allocate: the probe hashes and compares the
+ * incoming characters directly instead of normalising the string first.
+ */
+public final class SymbolDictionary {
+
+	public static final int UNKNOWN = -1;
+
+	static final SymbolDictionary EMPTY = new SymbolDictionary(new String[0], new int[8]);
+
+	private final String[] symbols;
+	// open addressing table of id + 1, 0 marks a free slot; always at most half full
+	private final int[] slots;
+
+	private SymbolDictionary(String[] symbols, int[] slots) {
+		this.symbols = symbols;
+		this.slots = slots;
+	}
+
+	/**
+	 * Id of the given symbol ignoring case, or {@link #UNKNOWN}.
+	 */
+	public int idOf(CharSequence symbol) {
+		if (symbol == null) {
+			return UNKNOWN;
+		}
+		// a free slot holds 0, which maps to UNKNOWN
+		return slots[probe(symbols, slots, symbol)] - 1;
+	}
+
+	public String symbolOf(int id) {
+		return symbols[id];
+	}
+
+	public int size() {
+		return symbols.length;
+	}
+
+	public List<String> getSymbols() {
+		return Collections.unmodifiableList(Arrays.asList(symbols));
+	}
+
+	/**
+	 * Returns a dictionary that also contains the given symbol, or this one if it is already known.
+	 */
+	SymbolDictionary with(String symbol) {
+		return withAll(List.of(symbol));
+	}
+
+	/**
+	 * Returns a dictionary that also contains the given symbols in iteration order, or this one if all are known.
+	 * The table is built once, however many symbols are added.
+	 */
+	SymbolDictionary withAll(Collection<String> added) {
+		String[] grownSymbols = Arrays.copyOf(symbols, symbols.length + added.size());
+
+		int capacity = slots.length;
+		while (capacity < grownSymbols.length * 2) {
+			capacity *= 2;
+		}
+
+		int[] grownSlots = new int[capacity];
+		int count = 0;
+		for (String symbol : symbols) {
+			grownSlots[probe(grownSymbols, grownSlots, symbol)] = ++count;
+		}
+		for (String symbol : added) {
+			int slot = probe(grownSymbols, grownSlots, symbol);
+			if (grownSlots[slot] == 0) {
+				grownSymbols[count] = symbol;
+				grownSlots[slot] = ++count;
+			}
+		}
+
+		if (count == symbols.length) {
+			return this;
+		}
+		return new SymbolDictionary(Arrays.copyOf(grownSymbols, count), grownSlots);
+	}
+
+	// slot holding the given symbol, or the free slot where it would be inserted
+	private static int probe(String[] symbols, int[] slots, CharSequence symbol) {
+		int mask = slots.length - 1;
+		int slot = hash(symbol) & mask;
+		while (slots[slot] != 0 && !equalsIgnoreCase(symbols[slots[slot] - 1], symbol)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(CharSequence symbol) {
+		int hash = 0;
+		for (int i = 0; i < symbol.length(); i++) {
+			hash = 31 * hash + Character.toUpperCase(symbol.charAt(i));
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equalsIgnoreCase(String symbol, CharSequence candidate) {
+		if (symbol.length() != candidate.length()) {
+			return false;
+		}
+		for (int i = 0; i < symbol.length(); i++) {
+			if (Character.toUpperCase(symbol.charAt(i)) != Character.toUpperCase(candidate.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,12 @@
+package com.faptic.recommendations.repository;
+
+/**
+ * Cache key for the complete series of a tiered symbol. Both tiers are immutable and compared by identity,
+ * so a key matches only for the exact hot series and cold tier it was merged from.
+ */
+record TieredSeries(ColdTier cold, PriceSeries hot) {
+
+	PriceSeries materialize() {
+		return cold.materialize(hot);
+	}
+}
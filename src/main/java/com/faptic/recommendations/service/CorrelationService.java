@@ -0,0 +1,183 @@
+package com.faptic.recommendations.service;
+
+import com.faptic.recommendations.exception.GridTooLargeException;
+import com.faptic.recommendations.model.CorrelationMatrix;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.FillMethod;
+import com.faptic.recommendations.repository.PriceSeries;
+import com.faptic.recommendations.repository.ResampledSeries;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+@Service
+@RequiredArgsConstructor
+public class CorrelationService {
+
+	private static final int MAX_CACHED_MATRICES = 256;
+
+	private final CryptoRepository cryptoRepository;
+
+	private final QueryAdmissionService queryAdmissionService;
+
+	// keyed by snapshot version as well, so a data change never serves a stale matrix
+	private final Map<CacheKey, CorrelationMatrix> cache = new ConcurrentHashMap<>();
+
+	// concurrent cache misses for the same key compute the matrix once, on a query lane slot of their own
+	private final SingleFlight<CacheKey, CorrelationMatrix> misses = new SingleFlight<>();
+
+	/**
+	 * Pairwise Pearson correlation of the log returns of all cryptos with data in {@code [startDate, endDate]}.
+	 * <p>
+	 * Series are aligned on a common grid of the given interval, starting once every series has a price;
+	 * each grid point takes the last price at or before it. Returns null if fewer than two returns fit the range.
+	 * Matrices are cached per data version; a miss is computed once on the query lane matching its estimated rows.
+	 *
+	 * @throws GridTooLargeException if the grid has more than {@link ResampledSeries#MAX_POINTS} points
+	 */
+	public CorrelationMatrix getCorrelationMatrix(Instant startDate, Instant endDate, Duration interval) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		CacheKey key = new CacheKey(snapshot.getVersion(), startDate, endDate, interval);
+
+		CorrelationMatrix cached = cache.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		return misses.execute(key, () -> {
+			CorrelationMatrix matrix = queryAdmissionService.execute(snapshot.estimateTicks(startDate.toEpochMilli(), endDate.toEpochMilli()),
+					() -> calculateCorrelationMatrix(snapshot, startDate, endDate, interval));
+			if (cache.size() >= MAX_CACHED_MATRICES) {
+				cache.clear();
+			}
+			if (matrix != null) {
+				cache.put(key, matrix);
+			}
+			return matrix;
+		});
+	}
+
+	private CorrelationMatrix calculateCorrelationMatrix(CryptoSnapshot snapshot, Instant startDate, Instant endDate, Duration interval) {
+		long start = startDate.toEpochMilli();
+		long end = endDate.toEpochMilli();
+		long step = interval.toMillis();
+
+		List<PriceSeries> series = new ArrayList<>();
+		long gridStart = start;
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			PriceSeries candidate = snapshot.getSeriesFrom(symbolId, start);
+			if (candidate.indexAtOrAfter(start) < candidate.indexAfter(end)) {
+				series.add(candidate);
+				gridStart = Math.max(gridStart, candidate.timestampAt(0));
+			}
+		}
+
+		long points = gridStart <= end ? (end - gridStart) / step + 1 : 0;
+		// checked before any per series array is sized from it
+		if (points > ResampledSeries.MAX_POINTS) {
+			throw new GridTooLargeException(points, ResampledSeries.MAX_POINTS);
+		}
+		if (series.isEmpty() || points < 3) {
+			return null;
+		}
+
+		int observations = (int) points - 1;
+		double[][] returns = new double[series.size()][];
+		for (int i = 0; i < series.size(); i++) {
+			returns[i] = standardizedReturns(series.get(i), gridStart, step, (int) points);
+		}
+
+		int n = series.size();
+		double[][] correlations = new double[n][n];
+		// pairs of the upper triangle, including the diagonal, are independent of each other
+		IntStream.range(0, n * n).parallel()
+				.filter(pair -> pair / n <= pair % n)
+				.forEach(pair -> {
+					int i = pair / n;
+					int j = pair % n;
+					double correlation = Math.max(-1.0, Math.min(1.0, dot(returns[i], returns[j])));
+					correlations[i][j] = correlation;
+					correlations[j][i] = correlation;
+				});
+
+		return CorrelationMatrix.builder()
+				.symbols(series.stream().map(PriceSeries::getSymbol).toList())
+				.startDate(Instant.ofEpochMilli(gridStart))
+				.endDate(Instant.ofEpochMilli(gridStart + (points - 1) * step))
+				.observations(observations)
+				.correlations(correlations)
+				.build();
+	}
+
+	// log returns between consecutive grid points, centered and scaled to unit length,
+	// so the correlation of two series is just the dot product of their vectors
+	private static double[] standardizedReturns(PriceSeries series, long gridStart, long step, int points) {
+		double[] returns = new double[points - 1];
+
+		// forward filled grid cached by the series, gridStart is one of its points as every series has a price there
+		ResampledSeries grid = series.resample(step, gridStart, FillMethod.FORWARD, gridStart, gridStart + (points - 1) * step);
+		int offset = grid.indexAtOrAfter(gridStart);
+		double last = series.priceAt(series.size() - 1);
+
+		double previous = 0;
+		for (int k = 0; k < points; k++) {
+			// past the last tick the grid ends, its price holds
+			double price = offset + k < grid.size() ? grid.priceAt(offset + k) : last;
+			if (k > 0) {
+				returns[k - 1] = Math.log(price / previous);
+			}
+			previous = price;
+		}
+
+		double mean = 0;
+		for (double value : returns) {
+			mean += value;
+		}
+		mean /= returns.length;
+
+		double sumOfSquares = 0;
+		for (int k = 0; k < returns.length; k++) {
+			returns[k] -= mean;
+			sumOfSquares += returns[k] * returns[k];
+		}
+
+		// a flat series has no defined correlation, NaN propagates through the dot product
+		double scale = sumOfSquares > 0 ? 1 / Math.sqrt(sumOfSquares) : Double.NaN;
+		for (int k = 0; k < returns.length; k++) {
+			returns[k] *= scale;
+		}
+		return returns;
+	}
+
+	// four independent accumulators break the add dependency chain and let the JIT keep the loop in SIMD registers
+	private static double dot(double[] a, double[] b) {
+		double sum0 = 0;
+		double sum1 = 0;
+		double sum2 = 0;
+		double sum3 = 0;
+
+		int k = 0;
+		int bound = a.length & ~3;
+		for (; k < bound; k += 4) {
+			sum0 += a[k] * b[k];
+			sum1 += a[k + 1] * b[k + 1];
+			sum2 += a[k + 2] * b[k + 2];
+			sum3 += a[k + 3] * b[k + 3];
+		}
+		for (; k < a.length; k++) {
+			sum0 += a[k] * b[k];
+		}
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	private record CacheKey(long version, Instant startDate, Instant endDate, Duration interval) {
+	}
+}
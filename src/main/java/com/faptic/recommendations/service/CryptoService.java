@@ -1,77 +1,478 @@
 package com.faptic.recommendations.service;
 
-import com.faptic.recommendations.model.CryptoRecord;
 import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.model.DailyHighestRange;
+import com.faptic.recommendations.profiling.Profiling;
+import com.faptic.recommendations.profiling.RequestProfile;
 import com.faptic.recommendations.repository.CryptoRepository;
-import lombok.RequiredArgsConstructor;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.DailyRollup;
+import com.faptic.recommendations.repository.PriceSeries;
+import com.faptic.recommendations.repository.PriceStore;
+import com.faptic.recommendations.repository.RangeAggregate;
+import com.faptic.recommendations.repository.SymbolDictionary;
+import com.faptic.recommendations.service.leaderboard.LeaderboardService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class CryptoService {
 
+	// longest range of days, about ten years, a single day range query may cover
+	public static final int MAX_DAY_RANGE = 3660;
+
 	private final CryptoRepository cryptoRepository;
 
+	private final LeaderboardService leaderboardService;
+
+	private final QueryAdmissionService queryAdmissionService;
+
+	// series reads answered by the hot tier alone, and reads that had to consult the cold tier
+	private final Counter hotTierHits;
+	private final Counter coldTierHits;
+
+	// identical all-symbol queries arriving together share one scan, results are shared and must not be modified;
+	// only the caller leading a scan takes a slot of a query lane, the others wait for it outside the lanes
+	private final SingleFlight<RangeQuery, List<CryptoStats>> rangeQueries = new SingleFlight<>();
+	private final SingleFlight<DayQuery, CryptoStats> dayQueries = new SingleFlight<>();
+	private final SingleFlight<DayRangeQuery, List<DailyHighestRange>> dayRangeQueries = new SingleFlight<>();
+
+	public CryptoService(CryptoRepository cryptoRepository, LeaderboardService leaderboardService, QueryAdmissionService queryAdmissionService,
+						 MeterRegistry meterRegistry) {
+		this.cryptoRepository = cryptoRepository;
+		this.leaderboardService = leaderboardService;
+		this.queryAdmissionService = queryAdmissionService;
+		this.hotTierHits = Counter.builder("faptic.storage.tier.hits")
+				.tag("tier", "hot")
+				.description("Series reads answered from the in-memory hot tier alone")
+				.register(meterRegistry);
+		this.coldTierHits = Counter.builder("faptic.storage.tier.hits")
+				.tag("tier", "cold")
+				.description("Series reads that consulted the memory mapped cold tier")
+				.register(meterRegistry);
+		Gauge.builder("faptic.storage.tier.hot.ratio", this, CryptoService::hotTierRatio)
+				.description("Share of series reads answered from the hot tier alone")
+				.register(meterRegistry);
+	}
+
 	// Requirement 1:
 	// return a descending sorted list of all the cryptos, comparing the normalized range (i.e. (max-min)/min)
 	public List<CryptoStats> getAllCryptoStatsByNormalizedRange(Instant startDate, Instant endDate) {
-		return cryptoRepository.getCryptoRecords().values().stream()
-				.flatMap(List::stream)
-				.filter(record -> !record.getTimestamp().isBefore(startDate) && !record.getTimestamp().isAfter(endDate))
-				.collect(Collectors.groupingBy(CryptoRecord::getSymbol))
-				.entrySet().stream()
-				.map(entry -> calculateStats(entry.getValue()))
-				.sorted(Comparator.comparing(CryptoStats::getNormalizedRange).reversed())
-				.collect(Collectors.toList());
+		return getAllCryptoStatsByNormalizedRange(startDate, endDate, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Same as {@link #getAllCryptoStatsByNormalizedRange(Instant, Instant)}, aggregating whole days of the
+	 * range from the daily rollups of the given zone when they are maintained.
+	 * A range matching a materialized leaderboard window is answered from it without any computation.
+	 * Concurrent identical calls share a single computation and receive the same read-only list; it runs on the
+	 * query lane matching its estimated rows.
+	 */
+	public List<CryptoStats> getAllCryptoStatsByNormalizedRange(Instant startDate, Instant endDate, ZoneId zone) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		List<CryptoStats> materialized = leaderboardService.getLeaderboard(snapshot, startDate, endDate);
+		if (materialized != null) {
+			return materialized;
+		}
+		return rangeQueries.execute(new RangeQuery(snapshot.getVersion(), startDate, endDate, zone.normalized()),
+				() -> queryAdmissionService.execute(snapshot.estimateTicks(startDate.toEpochMilli(), endDate.toEpochMilli()),
+						() -> calculateAllStats(snapshot, startDate, endDate, zone)));
+	}
+
+	private List<CryptoStats> calculateAllStats(CryptoSnapshot snapshot, Instant startDate, Instant endDate, ZoneId zone) {
+		List<CryptoStats> result = new ArrayList<>(snapshot.symbolCount());
+
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			CryptoStats stats = calculateStats(snapshot, symbolId, startDate, endDate, zone);
+			if (stats != null) {
+				result.add(stats);
+			}
+		}
+
+		result.sort(Comparator.comparing(CryptoStats::getNormalizedRange).reversed());
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Stats of the given cryptos only, sorted like {@link #getAllCryptoStatsByNormalizedRange(Instant, Instant, ZoneId)};
+	 * cryptos without ticks in the range are left out.
+	 */
+	public List<CryptoStats> getCryptoStatsByNormalizedRange(int[] symbolIds, Instant startDate, Instant endDate, ZoneId zone) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		List<CryptoStats> result = new ArrayList<>(symbolIds.length);
+		for (int symbolId : symbolIds) {
+			CryptoStats stats = calculateStats(snapshot, symbolId, startDate, endDate, zone);
+			if (stats != null) {
+				result.add(stats);
+			}
+		}
+
+		result.sort(Comparator.comparing(CryptoStats::getNormalizedRange).reversed());
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Version of the current data, increased by every change of any crypto. Versions are only comparable within
+	 * one {@link #getDataEpoch() epoch}.
+	 */
+	public long getDataVersion() {
+		return cryptoRepository.getSnapshot().getVersion();
+	}
+
+	/**
+	 * Version of the current data in which the given crypto last changed, at most {@link #getDataVersion()}.
+	 */
+	public long getSymbolVersion(int symbolId) {
+		return cryptoRepository.getSnapshot().getSymbolVersion(symbolId);
+	}
+
+	/**
+	 * Ids of the cryptos whose data changed after the given version, in id order.
+	 */
+	public int[] getSymbolIdsChangedSince(long sinceVersion) {
+		return cryptoRepository.getSnapshot().symbolsChangedSince(sinceVersion);
+	}
+
+	/**
+	 * Identifies the lineage of data versions; it changes when the service restarts and versions start over.
+	 */
+	public String getDataEpoch() {
+		return cryptoRepository.getEpoch();
 	}
 
 	// Requirement 2:
 	// return the oldest/newest/min/max values for a requested crypto
 	public CryptoStats getCryptoStatsForSymbol(String symbol, Instant startDate, Instant endDate) {
-		List<CryptoRecord> filteredRecords = cryptoRepository.getCryptoRecords().getOrDefault(symbol, List.of()).stream()
-				.filter(record -> !record.getTimestamp().isBefore(startDate) && !record.getTimestamp().isAfter(endDate))
-				.collect(Collectors.toList());
+		return getCryptoStatsForSymbol(getSymbolId(symbol), startDate, endDate, ZoneOffset.UTC);
+	}
 
-		return calculateStats(filteredRecords);
+	public CryptoStats getCryptoStatsForSymbol(int symbolId, Instant startDate, Instant endDate, ZoneId zone) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		if (symbolId < 0 || symbolId >= snapshot.symbolCount()) {
+			return new CryptoStats();
+		}
+
+		CryptoStats stats = calculateStats(snapshot, symbolId, startDate, endDate, zone);
+		return stats != null ? stats : new CryptoStats();
 	}
 
 	// Requirement 3:
 	// return the crypto with the highest normalized range for a specific day
 	public CryptoStats getCryptoWithHighestRangeForDay(Instant day) {
-		return cryptoRepository.getCryptoRecords().values().stream()
-				.flatMap(List::stream)
-				.filter(record -> record.getTimestamp().truncatedTo(ChronoUnit.DAYS).equals(day.truncatedTo(ChronoUnit.DAYS)))
-				.collect(Collectors.groupingBy(CryptoRecord::getSymbol))
-				.entrySet().stream()
-				.map(entry -> calculateStats(entry.getValue()))
-				.max(Comparator.comparing(CryptoStats::getNormalizedRange))
-				.orElse(null);
+		return getCryptoWithHighestRangeForDay(LocalDate.ofInstant(day, ZoneOffset.UTC), ZoneOffset.UTC);
+	}
+
+	/**
+	 * Crypto with the highest normalized range on the given local day of the given zone, or null if there is no data.
+	 * Uses the daily rollups when they are maintained for the zone, otherwise slices the day out of each series.
+	 * Concurrent identical calls share a single computation on the query lane matching its estimated rows.
+	 */
+	public CryptoStats getCryptoWithHighestRangeForDay(LocalDate day, ZoneId zone) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		long dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+		long nextDayStart = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+		return dayQueries.execute(new DayQuery(snapshot.getVersion(), day, zone.normalized()),
+				() -> queryAdmissionService.execute(snapshot.estimateTicks(dayStart, nextDayStart),
+						() -> calculateHighestRangeForDay(snapshot, day, zone)));
+	}
+
+	private CryptoStats calculateHighestRangeForDay(CryptoSnapshot snapshot, LocalDate day, ZoneId zone) {
+		long dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+		long nextDayStart = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+		CryptoStats highest = null;
+
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			PriceSeries series = snapshot.getHotSeries(symbolId);
+			DailyRollup rollup = series.getDailyRollup(zone);
+			PriceStore cold = snapshot.getColdTier(symbolId);
+
+			CryptoStats stats;
+			if (cold != null && dayStart <= cold.getNewest()) {
+				stats = calculateStats(snapshot, symbolId, Instant.ofEpochMilli(dayStart), Instant.ofEpochMilli(nextDayStart - 1), zone);
+			} else if (rollup != null) {
+				hotTierHits.increment();
+				int dayIndex = rollup.indexOfDay(day);
+				stats = dayIndex >= 0 ? calculateStats(series, rollup, dayIndex) : null;
+			} else {
+				hotTierHits.increment();
+				stats = calculateStats(series, series.indexAtOrAfter(dayStart), series.indexAtOrAfter(nextDayStart), null);
+			}
+
+			if (stats != null && (highest == null || stats.getNormalizedRange() > highest.getNormalizedRange())) {
+				highest = stats;
+			}
+		}
+
+		return highest;
+	}
+
+	/**
+	 * Crypto with the highest normalized range for every local day in {@code [startDay, endDay]} with data, in day order.
+	 * <p>
+	 * Each crypto is visited once for the whole range: with a daily rollup for the zone its days are read from the
+	 * rollup, otherwise its ticks in the range are scanned once and grouped by day. Cryptos whose cold tier overlaps
+	 * the range have each day aggregated by both tiers, so no more than the blocks at the day boundaries is read from
+	 * disk. Concurrent identical calls share a single computation on the query lane matching its estimated rows.
+	 * <p>
+	 * The range is first narrowed to the days holding data, callers bound it by {@link #MAX_DAY_RANGE}.
+	 */
+	public List<DailyHighestRange> getCryptosWithHighestRangeByDay(LocalDate startDay, LocalDate endDay, ZoneId zone) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		long rangeStart = startDay.atStartOfDay(zone).toInstant().toEpochMilli();
+		long rangeEnd = endDay.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+		return dayRangeQueries.execute(new DayRangeQuery(snapshot.getVersion(), startDay, endDay, zone.normalized()),
+				() -> queryAdmissionService.execute(snapshot.estimateTicks(rangeStart, rangeEnd),
+						() -> calculateHighestRangeByDay(snapshot, startDay, endDay, zone)));
+	}
+
+	private List<DailyHighestRange> calculateHighestRangeByDay(CryptoSnapshot snapshot, LocalDate requestedStartDay, LocalDate requestedEndDay, ZoneId zone) {
+		long oldest = Long.MAX_VALUE;
+		long newest = Long.MIN_VALUE;
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			oldest = Math.min(oldest, snapshot.getOldest(symbolId));
+			newest = Math.max(newest, snapshot.getNewest(symbolId));
+		}
+		if (oldest > newest) {
+			return List.of();
+		}
+
+		// days without data on either side of the range need neither a slot nor a visit
+		LocalDate firstDataDay = LocalDate.ofInstant(Instant.ofEpochMilli(oldest), zone);
+		LocalDate lastDataDay = LocalDate.ofInstant(Instant.ofEpochMilli(newest), zone);
+		LocalDate startDay = requestedStartDay.isBefore(firstDataDay) ? firstDataDay : requestedStartDay;
+		LocalDate endDay = requestedEndDay.isAfter(lastDataDay) ? lastDataDay : requestedEndDay;
+		if (endDay.isBefore(startDay)) {
+			return List.of();
+		}
+
+		long rangeStart = startDay.atStartOfDay(zone).toInstant().toEpochMilli();
+		long rangeEnd = endDay.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+		CryptoStats[] highest = new CryptoStats[(int) (endDay.toEpochDay() - startDay.toEpochDay() + 1)];
+
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			PriceSeries series = snapshot.getHotSeries(symbolId);
+			PriceStore cold = snapshot.getColdTier(symbolId);
+			if (cold != null && rangeStart <= cold.getNewest()) {
+				coldTierHits.increment();
+				aggregateDays(series.getSymbol(), List.of(cold, series), startDay, zone, highest);
+				continue;
+			}
+
+			hotTierHits.increment();
+			DailyRollup rollup = series.getDailyRollup(zone);
+			if (rollup != null) {
+				for (int dayIndex = rollup.indexOfDayAtOrAfter(startDay); dayIndex < rollup.dayCount() && !rollup.dayAt(dayIndex).isAfter(endDay); dayIndex++) {
+					keepHighest(highest, (int) (rollup.dayAt(dayIndex).toEpochDay() - startDay.toEpochDay()), calculateStats(series, rollup, dayIndex));
+				}
+			} else {
+				scanDays(series, series.indexAtOrAfter(rangeStart), series.indexAtOrAfter(rangeEnd), startDay, zone, highest);
+			}
+		}
+
+		List<DailyHighestRange> days = new ArrayList<>();
+		for (int i = 0; i < highest.length; i++) {
+			if (highest[i] != null) {
+				days.add(new DailyHighestRange(startDay.plusDays(i), highest[i]));
+			}
+		}
+		return days;
+	}
+
+	// pushes the aggregation of every day down to the stores holding the crypto's ticks, whose results merge in any order
+	private static void aggregateDays(String symbol, List<PriceStore> stores, LocalDate startDay, ZoneId zone, CryptoStats[] highest) {
+		long dayStart = startDay.atStartOfDay(zone).toInstant().toEpochMilli();
+		for (int dayIndex = 0; dayIndex < highest.length; dayIndex++) {
+			long nextDayStart = startDay.plusDays(dayIndex + 1).atStartOfDay(zone).toInstant().toEpochMilli();
+			RangeAggregate day = null;
+			for (PriceStore store : stores) {
+				day = RangeAggregate.merge(day, store.aggregate(dayStart, nextDayStart - 1));
+			}
+			if (day != null) {
+				keepHighest(highest, dayIndex, toStats(symbol, day));
+			}
+			dayStart = nextDayStart;
+		}
+	}
+
+	// groups the ticks [from, to) by local day in a single pass, keeping each day's stats if they beat the current winner
+	private static void scanDays(PriceSeries series, int from, int to, LocalDate startDay, ZoneId zone, CryptoStats[] highest) {
+		int dayFrom = from;
+		while (dayFrom < to) {
+			LocalDate day = Instant.ofEpochMilli(series.timestampAt(dayFrom)).atZone(zone).toLocalDate();
+			long nextDayStart = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+			double minPrice = series.priceAt(dayFrom);
+			double maxPrice = minPrice;
+			int dayTo = dayFrom + 1;
+			for (; dayTo < to && series.timestampAt(dayTo) < nextDayStart; dayTo++) {
+				double price = series.priceAt(dayTo);
+				minPrice = Math.min(minPrice, price);
+				maxPrice = Math.max(maxPrice, price);
+			}
+
+			keepHighest(highest, (int) (day.toEpochDay() - startDay.toEpochDay()), new CryptoStats(series.getSymbol(),
+					Instant.ofEpochMilli(series.timestampAt(dayFrom)), Instant.ofEpochMilli(series.timestampAt(dayTo - 1)), minPrice, maxPrice));
+			dayFrom = dayTo;
+		}
+	}
+
+	// same tie breaking as the single day query: the first crypto in symbol id order wins
+	private static void keepHighest(CryptoStats[] highest, int dayIndex, CryptoStats stats) {
+		if (highest[dayIndex] == null || stats.getNormalizedRange() > highest[dayIndex].getNormalizedRange()) {
+			highest[dayIndex] = stats;
+		}
+	}
+
+	/**
+	 * Number of ticks an all-symbol query over {@code [startDate, endDate]} touches, found by binary search only.
+	 */
+	public long estimateRows(Instant startDate, Instant endDate) {
+		return cryptoRepository.getSnapshot().estimateTicks(startDate.toEpochMilli(), endDate.toEpochMilli());
+	}
+
+	/**
+	 * Number of ticks of one symbol within {@code [startDate, endDate]}.
+	 */
+	public long estimateRows(int symbolId, Instant startDate, Instant endDate) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		if (symbolId < 0 || symbolId >= snapshot.symbolCount()) {
+			return 0;
+		}
+		return snapshot.estimateTicks(symbolId, startDate.toEpochMilli(), endDate.toEpochMilli());
+	}
+
+	/**
+	 * Resolves a symbol, ignoring case, to the id used by the id based methods.
+	 * Returns {@link SymbolDictionary#UNKNOWN} if the symbol is not supported.
+	 */
+	public int getSymbolId(String symbol) {
+		return cryptoRepository.getSnapshot().getSymbols().idOf(symbol);
 	}
 
 	public boolean isKnownSymbol(String symbol) {
-		return cryptoRepository.getCryptoRecords().containsKey(symbol.toUpperCase());
+		return getSymbolId(symbol) != SymbolDictionary.UNKNOWN;
 	}
 
-	private CryptoStats calculateStats(List<CryptoRecord> records) {
-		if (records.isEmpty()) {
-			return new CryptoStats();
+	private double hotTierRatio() {
+		double hot = hotTierHits.count();
+		double total = hot + coldTierHits.count();
+		return total > 0 ? hot / total : Double.NaN;
+	}
+
+	/**
+	 * Query plan for the stats of one crypto over {@code [startDate, endDate]}: ranges after the newest cold tick
+	 * are answered from the hot tier alone, others combine the hot tier with the cold tier's block aggregates.
+	 */
+	private CryptoStats calculateStats(CryptoSnapshot snapshot, int symbolId, Instant startDate, Instant endDate, ZoneId zone) {
+		PriceSeries hot = snapshot.getHotSeries(symbolId);
+		CryptoStats hotStats = calculateStats(hot, startDate, endDate, zone);
+
+		PriceStore cold = snapshot.getColdTier(symbolId);
+		if (cold == null || startDate.toEpochMilli() > cold.getNewest()) {
+			hotTierHits.increment();
+			return hotStats;
 		}
 
-		String symbol = records.get(0).getSymbol();
+		coldTierHits.increment();
+		RequestProfile profile = Profiling.current();
+		long aggregateStart = profile != null ? System.nanoTime() : 0;
+		RangeAggregate coldAggregate = cold.aggregate(startDate.toEpochMilli(), endDate.toEpochMilli());
+		if (profile != null) {
+			// block aggregates locate and fold in one pass, the whole call counts as aggregation
+			profile.addFilter(0, coldAggregate != null ? coldAggregate.ticks() : 0);
+			profile.addAggregate(System.nanoTime() - aggregateStart);
+		}
+		if (coldAggregate == null) {
+			return hotStats;
+		}
 
-		double minPrice = records.stream().min(Comparator.comparingDouble(CryptoRecord::getPrice)).orElseThrow().getPrice();
-		double maxPrice = records.stream().max(Comparator.comparingDouble(CryptoRecord::getPrice)).orElseThrow().getPrice();
-		Instant oldest = records.stream().min(Comparator.comparing(CryptoRecord::getTimestamp)).orElseThrow().getTimestamp();
-		Instant newest = records.stream().max(Comparator.comparing(CryptoRecord::getTimestamp)).orElseThrow().getTimestamp();
+		CryptoStats coldStats = toStats(hot.getSymbol(), coldAggregate);
+		if (hotStats == null) {
+			return coldStats;
+		}
 
-		return new CryptoStats(symbol, oldest, newest, minPrice, maxPrice);
+		return new CryptoStats(hot.getSymbol(),
+				coldStats.getOldestTimestamp().isBefore(hotStats.getOldestTimestamp()) ? coldStats.getOldestTimestamp() : hotStats.getOldestTimestamp(),
+				coldStats.getNewestTimestamp().isAfter(hotStats.getNewestTimestamp()) ? coldStats.getNewestTimestamp() : hotStats.getNewestTimestamp(),
+				Math.min(coldStats.getMinPrice(), hotStats.getMinPrice()),
+				Math.max(coldStats.getMaxPrice(), hotStats.getMaxPrice()));
 	}
 
+	private CryptoStats calculateStats(PriceSeries series, Instant startDate, Instant endDate, ZoneId zone) {
+		RequestProfile profile = Profiling.current();
+		if (profile == null) {
+			return calculateStats(series, series.indexAtOrAfter(startDate.toEpochMilli()), series.indexAfter(endDate.toEpochMilli()),
+					series.getDailyRollup(zone));
+		}
+
+		long filterStart = System.nanoTime();
+		int from = series.indexAtOrAfter(startDate.toEpochMilli());
+		int to = series.indexAfter(endDate.toEpochMilli());
+		long aggregateStart = System.nanoTime();
+		profile.addFilter(aggregateStart - filterStart, Math.max(0, to - from));
+		CryptoStats stats = calculateStats(series, from, to, series.getDailyRollup(zone));
+		profile.addAggregate(System.nanoTime() - aggregateStart);
+		return stats;
+	}
+
+	private static CryptoStats toStats(String symbol, RangeAggregate aggregate) {
+		return new CryptoStats(symbol, Instant.ofEpochMilli(aggregate.oldest()), Instant.ofEpochMilli(aggregate.newest()),
+				aggregate.minPrice(), aggregate.maxPrice());
+	}
+
+	private CryptoStats calculateStats(PriceSeries series, DailyRollup rollup, int dayIndex) {
+		Instant oldest = Instant.ofEpochMilli(series.timestampAt(rollup.startIndexAt(dayIndex)));
+		Instant newest = Instant.ofEpochMilli(series.timestampAt(rollup.endIndexAt(dayIndex) - 1));
+
+		return new CryptoStats(series.getSymbol(), oldest, newest, rollup.minPriceAt(dayIndex), rollup.maxPriceAt(dayIndex));
+	}
 
+	// stats over the ticks [from, to) of a series, null if the slice is empty
+	private CryptoStats calculateStats(PriceSeries series, int from, int to, DailyRollup rollup) {
+		if (from >= to) {
+			return null;
+		}
+
+		double minPrice;
+		double maxPrice;
+		if (rollup != null) {
+			minPrice = rollup.minPrice(series, from, to);
+			maxPrice = rollup.maxPrice(series, from, to);
+		} else {
+			minPrice = series.priceAt(from);
+			maxPrice = minPrice;
+			for (int i = from + 1; i < to; i++) {
+				double price = series.priceAt(i);
+				minPrice = Math.min(minPrice, price);
+				maxPrice = Math.max(maxPrice, price);
+			}
+		}
+
+		// series are time ordered, so the slice bounds are the oldest and newest ticks
+		Instant oldest = Instant.ofEpochMilli(series.timestampAt(from));
+		Instant newest = Instant.ofEpochMilli(series.timestampAt(to - 1));
+
+		return new CryptoStats(series.getSymbol(), oldest, newest, minPrice, maxPrice);
+	}
+
+	private record RangeQuery(long version, Instant startDate, Instant endDate, ZoneId zone) {
+	}
+
+	private record DayQuery(long version, LocalDate day, ZoneId zone) {
+	}
+
+	private record DayRangeQuery(long version, LocalDate startDay, LocalDate endDay, ZoneId zone) {
+	}
 }
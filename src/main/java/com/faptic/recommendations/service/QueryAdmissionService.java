@@ -0,0 +1,147 @@
+package com.faptic.recommendations.service;
+
+import com.faptic.recommendations.exception.QueryRejectedException;
+import com.faptic.recommendations.profiling.Profiling;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs queries on one of two bounded executors, chosen by the number of rows the query is estimated to touch,
+ * so wide all-symbol scans cannot occupy the threads that serve cheap lookups.
+ * <p>
+ * A lane whose queue has reached its shedding threshold answers 429 straight away; a lane that is completely
+ * saturated answers 503. Both carry a Retry-After hint.
+ */
+@Slf4j
+@Service
+public class QueryAdmissionService {
+
+	private final Lane cheap;
+	private final Lane expensive;
+	private final long expensiveRowsThreshold;
+	private final long retryAfterSeconds;
+
+	public QueryAdmissionService(
+			MeterRegistry meterRegistry,
+			@Value("${faptic.admission.expensive-rows-threshold:10000}") long expensiveRowsThreshold,
+			@Value("${faptic.admission.retry-after-seconds:1}") long retryAfterSeconds,
+			@Value("${faptic.admission.cheap.threads:8}") int cheapThreads,
+			@Value("${faptic.admission.cheap.queue-capacity:200}") int cheapQueueCapacity,
+			@Value("${faptic.admission.cheap.shed-queue-depth:150}") int cheapShedQueueDepth,
+			@Value("${faptic.admission.expensive.threads:2}") int expensiveThreads,
+			@Value("${faptic.admission.expensive.queue-capacity:20}") int expensiveQueueCapacity,
+			@Value("${faptic.admission.expensive.shed-queue-depth:10}") int expensiveShedQueueDepth) {
+		this.expensiveRowsThreshold = expensiveRowsThreshold;
+		this.retryAfterSeconds = retryAfterSeconds;
+		this.cheap = new Lane("cheap", cheapThreads, cheapQueueCapacity, cheapShedQueueDepth, meterRegistry);
+		this.expensive = new Lane("expensive", expensiveThreads, expensiveQueueCapacity, expensiveShedQueueDepth, meterRegistry);
+	}
+
+	/**
+	 * Runs the query on the lane matching its estimated cost and waits for its result.
+	 * Exceptions thrown by the query are rethrown unchanged.
+	 */
+	public <T> T execute(long estimatedRows, Callable<T> query) {
+		Lane lane = estimatedRows >= expensiveRowsThreshold ? expensive : cheap;
+		return lane.execute(Profiling.propagate(query));
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		cheap.executor.shutdown();
+		expensive.executor.shutdown();
+	}
+
+	private final class Lane {
+
+		private final String name;
+		private final ThreadPoolExecutor executor;
+		private final int shedQueueDepth;
+		private final Counter shed;
+		private final Counter rejected;
+		private final Timer waitTime;
+
+		private Lane(String name, int threads, int queueCapacity, int shedQueueDepth, MeterRegistry meterRegistry) {
+			this.name = name;
+			this.shedQueueDepth = shedQueueDepth;
+			this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("query-" + name + "-"));
+
+			Gauge.builder("faptic.admission.queue.depth", executor, e -> e.getQueue().size())
+					.tag("lane", name)
+					.description("Queries waiting for a thread")
+					.register(meterRegistry);
+			Gauge.builder("faptic.admission.active", executor, ThreadPoolExecutor::getActiveCount)
+					.tag("lane", name)
+					.description("Queries being executed")
+					.register(meterRegistry);
+			this.shed = Counter.builder("faptic.admission.rejected")
+					.tag("lane", name)
+					.tag("reason", "shed")
+					.description("Queries answered with 429 because the queue passed its shedding depth")
+					.register(meterRegistry);
+			this.rejected = Counter.builder("faptic.admission.rejected")
+					.tag("lane", name)
+					.tag("reason", "saturated")
+					.description("Queries answered with 503 because the executor was full")
+					.register(meterRegistry);
+			this.waitTime = Timer.builder("faptic.admission.wait")
+					.tag("lane", name)
+					.description("Time queries spent queued before execution")
+					.register(meterRegistry);
+		}
+
+		private <T> T execute(Callable<T> query) {
+			if (executor.getQueue().size() >= shedQueueDepth) {
+				shed.increment();
+				log.warn("Shedding query on {} lane, queue depth {}", name, executor.getQueue().size());
+				throw new QueryRejectedException(name, HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds);
+			}
+
+			long submittedAt = System.nanoTime();
+			Future<T> future;
+			try {
+				future = executor.submit(() -> {
+					waitTime.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+					return query.call();
+				});
+			} catch (RejectedExecutionException e) {
+				rejected.increment();
+				log.warn("Rejecting query on saturated {} lane", name);
+				throw new QueryRejectedException(name, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds);
+			}
+
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				future.cancel(true);
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for query", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException runtimeException) {
+					throw runtimeException;
+				}
+				if (e.getCause() instanceof Error error) {
+					throw error;
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+	}
+}
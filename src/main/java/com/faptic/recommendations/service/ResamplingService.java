@@ -0,0 +1,114 @@
+package com.faptic.recommendations.service;
+
+import com.faptic.recommendations.model.ResampledPrices;
+import com.faptic.recommendations.model.SeriesCoverage;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.FillMethod;
+import com.faptic.recommendations.repository.PriceSeries;
+import com.faptic.recommendations.repository.ResampledSeries;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class ResamplingService {
+
+	private final CryptoRepository cryptoRepository;
+
+	/**
+	 * Prices of a crypto on the grid {@code startDate + k * interval} within {@code [startDate, endDate]}, limited to
+	 * the grid points between its first and last tick. Returns null if there is no such grid point.
+	 */
+	public ResampledPrices getResampledPrices(int symbolId, Instant startDate, Instant endDate, Duration interval, FillMethod fill) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		if (symbolId < 0 || symbolId >= snapshot.symbolCount()) {
+			return null;
+		}
+
+		PriceSeries series = snapshot.getSeriesFrom(symbolId, startDate.toEpochMilli());
+		ResampledSeries grid = series.resample(interval.toMillis(), startDate.toEpochMilli(), fill, startDate.toEpochMilli(), endDate.toEpochMilli());
+		int from = grid.indexAtOrAfter(startDate.toEpochMilli());
+		int to = grid.indexAfter(endDate.toEpochMilli());
+		if (from >= to) {
+			return null;
+		}
+
+		double[] prices = new double[to - from];
+		for (int k = from; k < to; k++) {
+			prices[k - from] = grid.priceAt(k);
+		}
+
+		return ResampledPrices.builder()
+				.symbol(series.getSymbol())
+				.startDate(Instant.ofEpochMilli(grid.timeAt(from)))
+				.interval(interval)
+				.fill(fill)
+				.prices(prices)
+				.build();
+	}
+
+	/**
+	 * Gap and coverage statistics of every crypto with grid points in {@code [startDate, endDate]}, on the grid
+	 * {@code startDate + k * interval}. The tick counts per interval are shared with resampling, so repeated calls
+	 * with the same interval only scan the cached counts.
+	 */
+	public List<SeriesCoverage> getCoverage(Instant startDate, Instant endDate, Duration interval) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		List<SeriesCoverage> result = new ArrayList<>(snapshot.symbolCount());
+
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			PriceSeries series = snapshot.getSeriesFrom(symbolId, startDate.toEpochMilli());
+			// the fill method does not affect tick counts, forward fill is what correlation uses as well
+			ResampledSeries grid = series.resample(interval.toMillis(), startDate.toEpochMilli(), FillMethod.FORWARD,
+					startDate.toEpochMilli(), endDate.toEpochMilli());
+			int from = grid.indexAtOrAfter(startDate.toEpochMilli());
+			int to = grid.indexAfter(endDate.toEpochMilli());
+			if (from < to) {
+				result.add(coverage(series.getSymbol(), grid, from, to, interval));
+			}
+		}
+
+		return result;
+	}
+
+	private static SeriesCoverage coverage(String symbol, ResampledSeries grid, int from, int to, Duration interval) {
+		int ticks = 0;
+		int covered = 0;
+		int gaps = 0;
+		int run = 0;
+		int longestRun = 0;
+
+		for (int k = from; k < to; k++) {
+			int count = grid.tickCountAt(k);
+			ticks += count;
+			if (count > 0) {
+				covered++;
+				run = 0;
+			} else {
+				if (run == 0) {
+					gaps++;
+				}
+				run++;
+				longestRun = Math.max(longestRun, run);
+			}
+		}
+
+		return SeriesCoverage.builder()
+				.symbol(symbol)
+				.startDate(Instant.ofEpochMilli(grid.timeAt(from)))
+				.endDate(Instant.ofEpochMilli(grid.timeAt(to - 1)))
+				.interval(interval)
+				.ticks(ticks)
+				.intervals(to - from)
+				.coveredIntervals(covered)
+				.gaps(gaps)
+				.longestGap(interval.multipliedBy(longestRun))
+				.build();
+	}
+}
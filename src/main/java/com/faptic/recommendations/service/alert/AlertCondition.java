@@ -0,0 +1,24 @@
+package com.faptic.recommendations.service.alert;
+
+import com.faptic.recommendations.model.AlertType;
+
+import java.time.Duration;
+
+/**
+ * A threshold a subscriber wants to be alerted about; {@code window} is the trailing window of range alerts and
+ * null for price alerts.
+ */
+public record AlertCondition(AlertType type, double threshold, Duration window) {
+
+	public static AlertCondition priceAbove(double level) {
+		return new AlertCondition(AlertType.PRICE_ABOVE, level, null);
+	}
+
+	public static AlertCondition priceBelow(double level) {
+		return new AlertCondition(AlertType.PRICE_BELOW, level, null);
+	}
+
+	public static AlertCondition rangeAbove(double normalizedRange, Duration window) {
+		return new AlertCondition(AlertType.RANGE_ABOVE, normalizedRange, window);
+	}
+}
@@ -0,0 +1,238 @@
+package com.faptic.recommendations.service.alert;
+
+import com.faptic.recommendations.exception.InvalidAlertException;
+import com.faptic.recommendations.exception.SymbolNotFoundException;
+import com.faptic.recommendations.model.AlertType;
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.PriceAlert;
+import com.faptic.recommendations.repository.AppendListener;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.SymbolDictionary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Price and range alerts pushed to subscribers as new ticks are appended.
+ * <p>
+ * Conditions are indexed per crypto by threshold, so evaluating a tick finds the crossed conditions by a range
+ * lookup instead of testing every subscription: O(log n + k) per tick and index, for n conditions and k alerts.
+ * An alert fires each time its threshold is crossed, and is re-armed by the value moving back across it.
+ * Alerts are queued per subscription and delivered in tick order by a small pool of delivery threads, so slow
+ * subscribers never hold up appends; one that falls {@link AlertSubscription#MAX_PENDING_ALERTS} alerts behind is
+ * dropped rather than buffered without bound.
+ */
+@Slf4j
+@Service
+public class AlertService implements AppendListener {
+
+	public static final int MAX_CONDITIONS_PER_SUBSCRIPTION = 64;
+
+	// a subscriber blocked in its sink holds one of them, the others keep delivering
+	private static final int DELIVERY_THREADS = 4;
+
+	private final CryptoRepository cryptoRepository;
+	private final Map<Integer, SymbolAlerts> alerts = new ConcurrentHashMap<>();
+	private final AtomicLong subscriptionIds = new AtomicLong();
+	private final AtomicInteger activeConditions = new AtomicInteger();
+	private final Counter sent;
+	private final Counter dropped;
+
+	// at most one drain task per subscription is queued, so the queue is bounded by the subscriptions
+	private final ExecutorService delivery = Executors.newFixedThreadPool(DELIVERY_THREADS, new CustomizableThreadFactory("alerts-"));
+
+	public AlertService(CryptoRepository cryptoRepository, MeterRegistry meterRegistry) {
+		this.cryptoRepository = cryptoRepository;
+
+		Gauge.builder("faptic.alerts.conditions", activeConditions, AtomicInteger::get)
+				.description("Alert conditions of active subscriptions")
+				.register(meterRegistry);
+		this.sent = Counter.builder("faptic.alerts.sent")
+				.description("Alerts delivered to subscribers")
+				.register(meterRegistry);
+		this.dropped = Counter.builder("faptic.alerts.dropped")
+				.description("Subscriptions dropped because their subscriber fell too far behind or a delivery failed")
+				.register(meterRegistry);
+	}
+
+	@PostConstruct
+	public void init() {
+		cryptoRepository.addAppendListener(this);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		delivery.shutdown();
+	}
+
+	/**
+	 * Registers conditions on a crypto; the sink receives an alert whenever a new tick crosses one of them.
+	 * Thresholds already exceeded when subscribing only fire once crossed again.
+	 */
+	public AlertSubscription subscribe(String symbol, List<AlertCondition> conditions, Consumer<PriceAlert> sink) {
+		return subscribe(symbol, conditions, sink, subscription -> {
+		});
+	}
+
+	/**
+	 * Registers conditions on a crypto like {@link #subscribe(String, List, Consumer)}, then passes the subscription to
+	 * {@code onSubscribed} before any alert reaches the sink, e.g. to tell the subscriber its id. Alerts matched in the
+	 * meantime wait in the subscription's queue. If {@code onSubscribed} throws, the subscription is cancelled.
+	 */
+	public AlertSubscription subscribe(String symbol, List<AlertCondition> conditions, Consumer<PriceAlert> sink,
+									   Consumer<AlertSubscription> onSubscribed) {
+		validate(conditions);
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		int symbolId = snapshot.getSymbols().idOf(symbol);
+		if (symbolId == SymbolDictionary.UNKNOWN) {
+			throw new SymbolNotFoundException(symbol);
+		}
+
+		AlertSubscription subscription = new AlertSubscription(subscriptionIds.incrementAndGet(),
+				snapshot.getSymbols().symbolOf(symbolId), conditions, sink, this);
+		while (true) {
+			SymbolAlerts symbolAlerts = alerts.computeIfAbsent(symbolId, SymbolAlerts::new);
+			synchronized (symbolAlerts) {
+				// an index emptied by a concurrent cancel is dropped from the map, retry on its replacement
+				if (alerts.get(symbolId) != symbolAlerts) {
+					continue;
+				}
+				for (AlertCondition condition : conditions) {
+					symbolAlerts.add(cryptoRepository.getSnapshot(), new Registration(subscription, condition));
+				}
+			}
+			break;
+		}
+		activeConditions.addAndGet(conditions.size());
+		log.debug("Subscription {} to alerts on {}: {}", subscription.getId(), subscription.getSymbol(), conditions);
+
+		try {
+			onSubscribed.accept(subscription);
+		} catch (RuntimeException e) {
+			subscription.cancel();
+			throw e;
+		}
+		release(subscription);
+		return subscription;
+	}
+
+	void unsubscribe(AlertSubscription subscription) {
+		int symbolId = cryptoRepository.getSnapshot().getSymbols().idOf(subscription.getSymbol());
+		SymbolAlerts symbolAlerts = alerts.get(symbolId);
+		if (symbolAlerts == null) {
+			return;
+		}
+		synchronized (symbolAlerts) {
+			for (AlertCondition condition : subscription.getConditions()) {
+				symbolAlerts.remove(new Registration(subscription, condition));
+			}
+			if (symbolAlerts.isEmpty()) {
+				alerts.remove(symbolId, symbolAlerts);
+			}
+		}
+		activeConditions.addAndGet(-subscription.getConditions().size());
+		log.debug("Subscription {} to alerts on {} cancelled", subscription.getId(), subscription.getSymbol());
+	}
+
+	@Override
+	public void onAppend(CryptoSnapshot snapshot, String symbol, List<CryptoRecord> records) {
+		CryptoSnapshot latest = cryptoRepository.getSnapshot();
+		SymbolAlerts symbolAlerts = alerts.get(latest.getSymbols().idOf(symbol));
+		if (symbolAlerts == null) {
+			return;
+		}
+
+		List<Registration> matched = new ArrayList<>();
+		List<PriceAlert> matchedAlerts = new ArrayList<>();
+		// queued under the lock, so alerts of consecutive appends are delivered in tick order; only after the
+		// evaluation though, as dropping a subscription changes the index it iterates
+		synchronized (symbolAlerts) {
+			symbolAlerts.evaluate(latest, (registration, alert) -> {
+				matched.add(registration);
+				matchedAlerts.add(alert);
+			});
+			for (int i = 0; i < matched.size(); i++) {
+				enqueue(matched.get(i).subscription(), matchedAlerts.get(i));
+			}
+		}
+	}
+
+	private void enqueue(AlertSubscription subscription, PriceAlert alert) {
+		if (subscription.isCancelled()) {
+			return;
+		}
+		if (!subscription.offer(alert)) {
+			log.debug("Dropping subscription {}, {} alerts are pending", subscription.getId(), AlertSubscription.MAX_PENDING_ALERTS);
+			dropped.increment();
+			// stops matching at once, the drop handler may block on the stream and runs on a delivery thread
+			subscription.cancel();
+			delivery.execute(subscription::drop);
+			return;
+		}
+		if (subscription.startDraining()) {
+			delivery.execute(() -> drain(subscription));
+		}
+	}
+
+	// ends the hold a subscription starts with, delivering what was matched during it
+	private void release(AlertSubscription subscription) {
+		subscription.stopDraining();
+		if (subscription.hasPending() && subscription.startDraining()) {
+			delivery.execute(() -> drain(subscription));
+		}
+	}
+
+	private void drain(AlertSubscription subscription) {
+		do {
+			PriceAlert alert;
+			while ((alert = subscription.poll()) != null) {
+				try {
+					subscription.deliver(alert);
+					sent.increment();
+				} catch (RuntimeException e) {
+					log.debug("Dropping subscription {} after failed delivery", subscription.getId(), e);
+					dropped.increment();
+					subscription.drop();
+				}
+			}
+			subscription.stopDraining();
+			// an alert queued after the last poll found the drain still running, it is picked up here
+		} while (subscription.hasPending() && subscription.startDraining());
+	}
+
+	private static void validate(List<AlertCondition> conditions) {
+		if (conditions.isEmpty()) {
+			throw new InvalidAlertException("At least one alert condition is required");
+		}
+		if (conditions.size() > MAX_CONDITIONS_PER_SUBSCRIPTION) {
+			throw new InvalidAlertException("At most " + MAX_CONDITIONS_PER_SUBSCRIPTION + " alert conditions are allowed per subscription");
+		}
+		for (AlertCondition condition : conditions) {
+			if (!Double.isFinite(condition.threshold())) {
+				throw new InvalidAlertException("Alert threshold must be a finite number: " + condition.threshold());
+			}
+			if (condition.type() == AlertType.RANGE_ABOVE && condition.window() == null) {
+				throw new InvalidAlertException("Range alerts require a window");
+			}
+			if (condition.window() != null && (condition.window().isNegative() || condition.window().isZero())) {
+				throw new InvalidAlertException("Range alert window must be positive: " + condition.window());
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.faptic.recommendations.service.alert;
+
+import com.faptic.recommendations.model.PriceAlert;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Conditions of one subscriber on one crypto, active until cancelled.
+ * <p>
+ * Matched alerts wait in a bounded queue of the subscription until a delivery thread passes them to the sink;
+ * a subscriber that falls {@link #MAX_PENDING_ALERTS} alerts behind is dropped.
+ */
+public final class AlertSubscription {
+
+	public static final int MAX_PENDING_ALERTS = 256;
+
+	private final long id;
+	private final String symbol;
+	private final List<AlertCondition> conditions;
+	private final Consumer<PriceAlert> sink;
+	private final AlertService alertService;
+
+	private final Queue<PriceAlert> pending = new ArrayBlockingQueue<>(MAX_PENDING_ALERTS);
+	// set while a delivery thread drains the queue, so alerts reach the sink one at a time and in order; also set
+	// from the start until the subscriber was told of the subscription, which holds back alerts matched before
+	private final AtomicBoolean draining = new AtomicBoolean(true);
+
+	private final AtomicBoolean dropped = new AtomicBoolean();
+	private final AtomicBoolean dropHandled = new AtomicBoolean();
+
+	private volatile boolean cancelled;
+	private volatile Runnable dropHandler;
+
+	AlertSubscription(long id, String symbol, List<AlertCondition> conditions, Consumer<PriceAlert> sink, AlertService alertService) {
+		this.id = id;
+		this.symbol = symbol;
+		this.conditions = List.copyOf(conditions);
+		this.sink = sink;
+		this.alertService = alertService;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	public List<AlertCondition> getConditions() {
+		return conditions;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Removes the conditions from the index; alerts already matched may still be delivered. Idempotent.
+	 */
+	public void cancel() {
+		if (!cancelled) {
+			cancelled = true;
+			alertService.unsubscribe(this);
+		}
+	}
+
+	/**
+	 * Registers a callback run once the service drops the subscription, because its subscriber fell too far behind
+	 * or a delivery failed, e.g. to close the stream it was delivering to. Runs at once if it was already dropped.
+	 */
+	public void whenDropped(Runnable handler) {
+		dropHandler = handler;
+		if (dropped.get()) {
+			runDropHandler();
+		}
+	}
+
+	boolean offer(PriceAlert alert) {
+		return pending.offer(alert);
+	}
+
+	PriceAlert poll() {
+		return pending.poll();
+	}
+
+	boolean hasPending() {
+		return !pending.isEmpty();
+	}
+
+	boolean startDraining() {
+		return draining.compareAndSet(false, true);
+	}
+
+	void stopDraining() {
+		draining.set(false);
+	}
+
+	void deliver(PriceAlert alert) {
+		if (!cancelled) {
+			sink.accept(alert);
+		}
+	}
+
+	/**
+	 * Cancels the subscription, discards its pending alerts and runs the drop handler.
+	 */
+	void drop() {
+		cancel();
+		pending.clear();
+		dropped.set(true);
+		runDropHandler();
+	}
+
+	// a handler registered concurrently with the drop may be seen by both, it still runs once
+	private void runDropHandler() {
+		Runnable handler = dropHandler;
+		if (handler != null && dropHandled.compareAndSet(false, true)) {
+			handler.run();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.faptic.recommendations.service.alert;
+
+import com.faptic.recommendations.service.leaderboard.MonotonicDeque;
+
+import java.time.Duration;
+
+/**
+ * Normalized range of one crypto over a trailing window ending at its newest tick, with the range thresholds
+ * subscribed for that window. Each tick costs amortised O(1) plus the threshold lookup.
+ */
+final class RangeTracker {
+
+	private final long windowMillis;
+	private final MonotonicDeque minimum = new MonotonicDeque(true);
+	private final MonotonicDeque maximum = new MonotonicDeque(false);
+	private final ThresholdIndex thresholds = new ThresholdIndex();
+	private double range = Double.NaN;
+
+	RangeTracker(Duration window) {
+		this.windowMillis = window.toMillis();
+	}
+
+	ThresholdIndex getThresholds() {
+		return thresholds;
+	}
+
+	/**
+	 * Range including the last pushed tick, NaN before the first tick.
+	 */
+	double getRange() {
+		return range;
+	}
+
+	/**
+	 * Adds a tick, which must not be older than any tick pushed before, and returns the new range.
+	 */
+	double push(long timestamp, double price) {
+		minimum.evictUpTo(timestamp - windowMillis);
+		maximum.evictUpTo(timestamp - windowMillis);
+		minimum.push(timestamp, price);
+		maximum.push(timestamp, price);
+		range = (maximum.front() - minimum.front()) / minimum.front();
+		return range;
+	}
+}
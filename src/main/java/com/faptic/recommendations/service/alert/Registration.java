@@ -0,0 +1,5 @@
+package com.faptic.recommendations.service.alert;
+
+// one condition of a subscription in a threshold index; subscriptions compare by identity
+record Registration(AlertSubscription subscription, AlertCondition condition) {
+}
@@ -0,0 +1,136 @@
+package com.faptic.recommendations.service.alert;
+
+import com.faptic.recommendations.model.AlertType;
+import com.faptic.recommendations.model.PriceAlert;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Active conditions on one crypto and the state they are evaluated against: the newest tick seen, and the range
+ * over every subscribed window. Registration and evaluation read the latest snapshot under the lock of this
+ * object, so every tick newer than the last one seen is evaluated exactly once.
+ */
+final class SymbolAlerts {
+
+	private final int symbolId;
+
+	private final ThresholdIndex above = new ThresholdIndex();
+	private final ThresholdIndex below = new ThresholdIndex();
+	private final Map<Duration, RangeTracker> ranges = new HashMap<>();
+
+	// newest tick evaluated, no tick yet while the timestamp is Long.MIN_VALUE
+	private long lastTimestamp = Long.MIN_VALUE;
+	private double lastPrice = Double.NaN;
+	private boolean started;
+
+	SymbolAlerts(int symbolId) {
+		this.symbolId = symbolId;
+	}
+
+	synchronized void add(CryptoSnapshot snapshot, Registration registration) {
+		if (!started) {
+			long newest = snapshot.getNewest(symbolId);
+			if (newest != Long.MIN_VALUE) {
+				// the newest tick is in the hot tier unless all ticks were compacted, e.g. after a restart
+				snapshot.scan(symbolId, newest, newest, (timestamp, price) -> lastPrice = price);
+				lastTimestamp = newest;
+			}
+			started = true;
+		}
+
+		AlertCondition condition = registration.condition();
+		switch (condition.type()) {
+			case PRICE_ABOVE -> above.add(registration);
+			case PRICE_BELOW -> below.add(registration);
+			case RANGE_ABOVE -> ranges.computeIfAbsent(condition.window(), window -> startRange(snapshot, window))
+					.getThresholds().add(registration);
+		}
+	}
+
+	synchronized void remove(Registration registration) {
+		AlertCondition condition = registration.condition();
+		switch (condition.type()) {
+			case PRICE_ABOVE -> above.remove(registration);
+			case PRICE_BELOW -> below.remove(registration);
+			case RANGE_ABOVE -> {
+				RangeTracker tracker = ranges.get(condition.window());
+				if (tracker != null) {
+					tracker.getThresholds().remove(registration);
+					if (tracker.getThresholds().isEmpty()) {
+						ranges.remove(condition.window());
+					}
+				}
+			}
+		}
+	}
+
+	synchronized boolean isEmpty() {
+		return above.isEmpty() && below.isEmpty() && ranges.isEmpty();
+	}
+
+	/**
+	 * Evaluates the ticks of the snapshot newer than the newest one seen, in time order, passing every crossed
+	 * condition to the sink. Older ticks, i.e. backfilled history, do not trigger alerts.
+	 */
+	synchronized void evaluate(CryptoSnapshot snapshot, AlertSink sink) {
+		// appended ticks are in the hot tier unless a concurrent compaction already moved them
+		String symbol = snapshot.getSymbols().symbolOf(symbolId);
+		snapshot.scan(symbolId, lastTimestamp + 1, Long.MAX_VALUE, (timestamp, price) -> {
+			if (!Double.isNaN(lastPrice)) {
+				double previous = lastPrice;
+				above.crossedRising(previous, price, registration -> sink.accept(registration, priceAlert(symbol, registration, timestamp, price)));
+				below.crossedFalling(previous, price, registration -> sink.accept(registration, priceAlert(symbol, registration, timestamp, price)));
+			}
+
+			for (RangeTracker tracker : ranges.values()) {
+				double previous = tracker.getRange();
+				double range = tracker.push(timestamp, price);
+				tracker.getThresholds().crossedRising(previous, range, registration -> sink.accept(registration,
+						rangeAlert(symbol, registration, timestamp, price, range)));
+			}
+
+			lastTimestamp = timestamp;
+			lastPrice = price;
+		});
+	}
+
+	// the window of ticks up to the newest one seen, without alerting for thresholds it already exceeds
+	private RangeTracker startRange(CryptoSnapshot snapshot, Duration window) {
+		RangeTracker tracker = new RangeTracker(window);
+		if (lastTimestamp != Long.MIN_VALUE) {
+			snapshot.scan(symbolId, lastTimestamp - window.toMillis() + 1, lastTimestamp, tracker::push);
+		}
+		return tracker;
+	}
+
+	private static PriceAlert priceAlert(String symbol, Registration registration, long timestamp, double price) {
+		return PriceAlert.builder()
+				.symbol(symbol)
+				.type(registration.condition().type())
+				.threshold(registration.condition().threshold())
+				.timestamp(Instant.ofEpochMilli(timestamp))
+				.price(price)
+				.build();
+	}
+
+	private static PriceAlert rangeAlert(String symbol, Registration registration, long timestamp, double price, double range) {
+		return PriceAlert.builder()
+				.symbol(symbol)
+				.type(AlertType.RANGE_ABOVE)
+				.threshold(registration.condition().threshold())
+				.window(registration.condition().window())
+				.timestamp(Instant.ofEpochMilli(timestamp))
+				.price(price)
+				.normalizedRange(range)
+				.build();
+	}
+
+	interface AlertSink {
+
+		void accept(Registration registration, PriceAlert alert);
+	}
+}
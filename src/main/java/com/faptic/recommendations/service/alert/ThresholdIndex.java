@@ -0,0 +1,65 @@
+package com.faptic.recommendations.service.alert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Thresholds of one kind sorted by value. A move from one value to another crosses exactly the thresholds in the
+ * interval between them, so finding them costs O(log n + k) for n thresholds and k matches.
+ */
+final class ThresholdIndex {
+
+	private final NavigableMap<Double, List<Registration>> thresholds = new TreeMap<>();
+	private int size;
+
+	void add(Registration registration) {
+		thresholds.computeIfAbsent(registration.condition().threshold(), threshold -> new ArrayList<>()).add(registration);
+		size++;
+	}
+
+	void remove(Registration registration) {
+		List<Registration> registrations = thresholds.get(registration.condition().threshold());
+		if (registrations != null && registrations.remove(registration)) {
+			size--;
+			if (registrations.isEmpty()) {
+				thresholds.remove(registration.condition().threshold());
+			}
+		}
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Thresholds in {@code (from, to]}, i.e. reached by a rise from {@code from} to {@code to}.
+	 */
+	void crossedRising(double from, double to, Consumer<Registration> action) {
+		if (to > from) {
+			forEach(thresholds.subMap(from, false, to, true), action);
+		}
+	}
+
+	/**
+	 * Thresholds in {@code [to, from)}, i.e. reached by a fall from {@code from} to {@code to}.
+	 */
+	void crossedFalling(double from, double to, Consumer<Registration> action) {
+		if (to < from) {
+			forEach(thresholds.subMap(to, true, from, false), action);
+		}
+	}
+
+	private static void forEach(Map<Double, List<Registration>> crossed, Consumer<Registration> action) {
+		for (List<Registration> registrations : crossed.values()) {
+			registrations.forEach(action);
+		}
+	}
+}
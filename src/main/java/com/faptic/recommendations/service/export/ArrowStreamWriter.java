@@ -0,0 +1,216 @@
+package com.faptic.recommendations.service.export;
+
+import com.faptic.recommendations.repository.PriceSeries;
+import com.google.flatbuffers.FlatBufferBuilder;
+import org.apache.arrow.flatbuf.DictionaryBatch;
+import org.apache.arrow.flatbuf.DictionaryEncoding;
+import org.apache.arrow.flatbuf.DictionaryKind;
+import org.apache.arrow.flatbuf.Endianness;
+import org.apache.arrow.flatbuf.Field;
+import org.apache.arrow.flatbuf.FieldNode;
+import org.apache.arrow.flatbuf.FloatingPoint;
+import org.apache.arrow.flatbuf.Int;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.MetadataVersion;
+import org.apache.arrow.flatbuf.Precision;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.TimeUnit;
+import org.apache.arrow.flatbuf.Timestamp;
+import org.apache.arrow.flatbuf.Type;
+import org.apache.arrow.flatbuf.Utf8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes price series as an Arrow IPC stream.
+ * <p>
+ * The schema has three non-nullable columns: {@code symbol} (utf8, dictionary encoded), {@code timestamp}
+ * (timestamp in milliseconds, UTC) and {@code price} (float64). The symbol dictionary is sent once, followed by
+ * one record batch per series slice. Batch bodies are bulk copied from the primitive columns of {@link PriceSeries}
+ * through a single reusable buffer, flushed downstream chunk by chunk; no object is created per tick.
+ * <p>
+ * Call {@link #writeSchema()}, {@link #writeDictionary(List)}, any number of {@link #writeBatch}, then {@link #writeEnd()}.
+ */
+public final class ArrowStreamWriter {
+
+	public static final String MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+
+	private static final long SYMBOL_DICTIONARY_ID = 0;
+	// marks the start of every message, and with a zero length the end of the stream
+	private static final int CONTINUATION = 0xFFFFFFFF;
+	// buffers in a message body start at multiples of 8 bytes
+	private static final int ALIGNMENT = 8;
+	private static final byte[] PADDING = new byte[ALIGNMENT];
+
+	private final OutputStream out;
+	private final ByteBuffer chunk = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+	public ArrowStreamWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	public void writeSchema() throws IOException {
+		FlatBufferBuilder builder = new FlatBufferBuilder(512);
+
+		Utf8.startUtf8(builder);
+		int utf8 = Utf8.endUtf8(builder);
+		int symbolIndexType = Int.createInt(builder, 32, true);
+		int dictionary = DictionaryEncoding.createDictionaryEncoding(builder, SYMBOL_DICTIONARY_ID, symbolIndexType, false, DictionaryKind.DenseArray);
+		int symbol = field(builder, "symbol", Type.Utf8, utf8, dictionary);
+
+		int timestampType = Timestamp.createTimestamp(builder, TimeUnit.MILLISECOND, builder.createString("UTC"));
+		int timestamp = field(builder, "timestamp", Type.Timestamp, timestampType, 0);
+
+		int priceType = FloatingPoint.createFloatingPoint(builder, Precision.DOUBLE);
+		int price = field(builder, "price", Type.FloatingPoint, priceType, 0);
+
+		int fields = Schema.createFieldsVector(builder, new int[]{symbol, timestamp, price});
+		int schema = Schema.createSchema(builder, Endianness.Little, fields, 0, 0);
+		writeMessage(builder, MessageHeader.Schema, schema, 0);
+	}
+
+	/**
+	 * Writes the symbol dictionary; {@link #writeBatch} refers to symbols by their index in this list.
+	 */
+	public void writeDictionary(List<String> symbols) throws IOException {
+		int count = symbols.size();
+		byte[][] encoded = new byte[count][];
+		int dataLength = 0;
+		for (int i = 0; i < count; i++) {
+			encoded[i] = symbols.get(i).getBytes(StandardCharsets.UTF_8);
+			dataLength += encoded[i].length;
+		}
+
+		long offsetsLength = (long) Integer.BYTES * (count + 1);
+		long dataStart = align(offsetsLength);
+
+		FlatBufferBuilder builder = new FlatBufferBuilder(256);
+		int nodes = fieldNodes(builder, 1, count);
+		RecordBatch.startBuffersVector(builder, 3);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, dataStart, dataLength);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, 0, offsetsLength);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, 0, 0);
+		int buffers = builder.endVector();
+		int data = RecordBatch.createRecordBatch(builder, count, nodes, buffers, 0, 0);
+		int batch = DictionaryBatch.createDictionaryBatch(builder, SYMBOL_DICTIONARY_ID, data, false);
+		writeMessage(builder, MessageHeader.DictionaryBatch, batch, dataStart + align(dataLength));
+
+		ByteBuffer body = ByteBuffer.allocate((int) (dataStart + align(dataLength))).order(ByteOrder.LITTLE_ENDIAN);
+		int offset = 0;
+		body.putInt(offset);
+		for (byte[] symbol : encoded) {
+			offset += symbol.length;
+			body.putInt(offset);
+		}
+		body.position((int) dataStart);
+		for (byte[] symbol : encoded) {
+			body.put(symbol);
+		}
+		out.write(body.array());
+	}
+
+	/**
+	 * Writes the ticks {@code [from, to)} of the given series as one record batch.
+	 */
+	public void writeBatch(int symbolIndex, PriceSeries series, int from, int to) throws IOException {
+		int rows = to - from;
+		long indexesLength = (long) Integer.BYTES * rows;
+		long valuesLength = (long) Long.BYTES * rows;
+		long timestampsStart = align(indexesLength);
+		long pricesStart = timestampsStart + valuesLength;
+
+		FlatBufferBuilder builder = new FlatBufferBuilder(256);
+		int nodes = fieldNodes(builder, 3, rows);
+		// validity bitmaps are empty, none of the columns has nulls
+		RecordBatch.startBuffersVector(builder, 6);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, pricesStart, valuesLength);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, pricesStart, 0);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, timestampsStart, valuesLength);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, timestampsStart, 0);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, 0, indexesLength);
+		org.apache.arrow.flatbuf.Buffer.createBuffer(builder, 0, 0);
+		int buffers = builder.endVector();
+		int batch = RecordBatch.createRecordBatch(builder, rows, nodes, buffers, 0, 0);
+		writeMessage(builder, MessageHeader.RecordBatch, batch, pricesStart + valuesLength);
+
+		writeSymbolIndexes(symbolIndex, rows);
+		writePadding(indexesLength);
+
+		for (int i = from; i < to; ) {
+			int count = Math.min(to - i, chunk.capacity() / Long.BYTES);
+			chunk.clear();
+			series.copyTimestamps(i, i + count, chunk.asLongBuffer());
+			out.write(chunk.array(), 0, count * Long.BYTES);
+			out.flush();
+			i += count;
+		}
+
+		for (int i = from; i < to; ) {
+			int count = Math.min(to - i, chunk.capacity() / Double.BYTES);
+			chunk.clear();
+			series.copyPrices(i, i + count, chunk.asDoubleBuffer());
+			out.write(chunk.array(), 0, count * Double.BYTES);
+			out.flush();
+			i += count;
+		}
+	}
+
+	public void writeEnd() throws IOException {
+		chunk.clear();
+		chunk.putInt(CONTINUATION).putInt(0);
+		out.write(chunk.array(), 0, chunk.position());
+		out.flush();
+	}
+
+	private void writeSymbolIndexes(int symbolIndex, int rows) throws IOException {
+		chunk.clear();
+		int count = Math.min(rows, chunk.capacity() / Integer.BYTES);
+		for (int i = 0; i < count; i++) {
+			chunk.putInt(symbolIndex);
+		}
+		for (int remaining = rows; remaining > 0; remaining -= count) {
+			out.write(chunk.array(), 0, Math.min(remaining, count) * Integer.BYTES);
+		}
+	}
+
+	private void writeMessage(FlatBufferBuilder builder, byte headerType, int header, long bodyLength) throws IOException {
+		int message = Message.createMessage(builder, MetadataVersion.V5, headerType, header, bodyLength, 0);
+		builder.finish(message);
+		byte[] metadata = builder.sizedByteArray();
+
+		chunk.clear();
+		chunk.putInt(CONTINUATION).putInt((int) align(metadata.length));
+		out.write(chunk.array(), 0, chunk.position());
+		out.write(metadata);
+		writePadding(metadata.length);
+	}
+
+	private void writePadding(long length) throws IOException {
+		out.write(PADDING, 0, (int) (align(length) - length));
+	}
+
+	private static int field(FlatBufferBuilder builder, String name, byte typeType, int type, int dictionary) {
+		int nameOffset = builder.createString(name);
+		int children = Field.createChildrenVector(builder, new int[0]);
+		return Field.createField(builder, nameOffset, false, typeType, type, dictionary, children, 0);
+	}
+
+	private static int fieldNodes(FlatBufferBuilder builder, int fields, long length) {
+		RecordBatch.startNodesVector(builder, fields);
+		for (int i = 0; i < fields; i++) {
+			FieldNode.createFieldNode(builder, length, 0);
+		}
+		return builder.endVector();
+	}
+
+	private static long align(long length) {
+		return (length + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+}
@@ -0,0 +1,18 @@
+package com.faptic.recommendations.service.export;
+
+import com.faptic.recommendations.repository.PriceSeries;
+
+import java.util.List;
+
+/**
+ * Ticks of several cryptos located for an Arrow export: the symbol dictionary and one batch per crypto with ticks in
+ * the range.
+ */
+public record SeriesExport(List<String> symbols, List<Batch> batches) {
+
+	/**
+	 * The ticks {@code [from, to)} of the series of a crypto, identified by its index in the dictionary.
+	 */
+	public record Batch(int symbolId, PriceSeries series, int from, int to) {
+	}
+}
@@ -0,0 +1,136 @@
+package com.faptic.recommendations.service.export;
+
+import com.faptic.recommendations.exception.InvalidCursorException;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.PriceSeries;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class SeriesExportService {
+
+	private final CryptoRepository cryptoRepository;
+
+	/**
+	 * Locates the ticks within {@code [startDate, endDate]} of the given symbols, or of all symbols if none are given,
+	 * in the current snapshot. Symbols are dictionary encoded with their symbol id as index.
+	 */
+	public SeriesExport getSeriesExport(int[] symbolIds, Instant startDate, Instant endDate) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		long start = startDate.toEpochMilli();
+		long end = endDate.toEpochMilli();
+
+		List<SeriesExport.Batch> batches = new ArrayList<>();
+		int count = symbolIds.length > 0 ? symbolIds.length : snapshot.symbolCount();
+		for (int i = 0; i < count; i++) {
+			int symbolId = symbolIds.length > 0 ? symbolIds[i] : i;
+			PriceSeries series = snapshot.getSeries(symbolId, start, end);
+			int from = series.indexAtOrAfter(start);
+			int to = series.indexAfter(end);
+			if (from < to) {
+				batches.add(new SeriesExport.Batch(symbolId, series, from, to));
+			}
+		}
+		return new SeriesExport(snapshot.getSymbols().getSymbols(), batches);
+	}
+
+	/**
+	 * Writes the located ticks as an Arrow IPC stream, one record batch per crypto.
+	 */
+	public void writeArrowStream(SeriesExport export, OutputStream out) throws IOException {
+		ArrowStreamWriter writer = new ArrowStreamWriter(out);
+		writer.writeSchema();
+		writer.writeDictionary(export.symbols());
+		for (SeriesExport.Batch batch : export.batches()) {
+			writer.writeBatch(batch.symbolId(), batch.series(), batch.from(), batch.to());
+		}
+		writer.writeEnd();
+	}
+
+	/**
+	 * Page of at most {@code limit} ticks of a symbol within {@code [startDate, endDate]}, where a null bound leaves the
+	 * range open on that side. The page starts at the given cursor, or at the start of the range without one.
+	 * <p>
+	 * Cursors point at a tick by its timestamp and its position among ticks with that same timestamp, so they stay
+	 * valid while new ticks are appended.
+	 */
+	public TickPage getTickPage(int symbolId, Instant startDate, Instant endDate, String cursor, int limit) {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		long start = startDate != null ? startDate.toEpochMilli() : Long.MIN_VALUE;
+		long end = endDate != null ? endDate.toEpochMilli() : Long.MAX_VALUE;
+
+		long pageStart = start;
+		int skip = 0;
+		if (cursor != null) {
+			Cursor position = decodeCursor(cursor);
+			if (position.timestamp() >= start) {
+				pageStart = position.timestamp();
+				skip = position.skip();
+			}
+		}
+
+		// cursors address ticks by timestamp, so a series holding the page and the tick after it pages the same as the
+		// whole range; only that much of the cold tier is merged, however long the history
+		long pageBound = Math.max(pageStart, Math.min(end, snapshot.estimateEnd(symbolId, pageStart, (long) skip + limit + 1)));
+		PriceSeries series = snapshot.getSeries(symbolId, pageStart, pageBound);
+
+		int to = series.indexAfter(pageBound);
+		int from = (int) Math.min(to, (long) series.indexAtOrAfter(pageStart) + skip);
+		int pageEnd = (int) Math.min(to, (long) from + limit);
+		return new TickPage(series, from, pageEnd, pageEnd < to ? encodeCursor(series, pageEnd) : null);
+	}
+
+	public void writeTicksCsv(TickPage page, OutputStream out) throws IOException {
+		TickCsvWriter writer = new TickCsvWriter(out);
+		writer.writeHeader();
+		writer.writeTicks(page.series(), page.from(), page.to());
+		writer.flush();
+	}
+
+	public void writeTicksArrow(TickPage page, OutputStream out) throws IOException {
+		ArrowStreamWriter writer = new ArrowStreamWriter(out);
+		writer.writeSchema();
+		writer.writeDictionary(List.of(page.series().getSymbol()));
+		if (page.size() > 0) {
+			writer.writeBatch(0, page.series(), page.from(), page.to());
+		}
+		writer.writeEnd();
+	}
+
+	private static String encodeCursor(PriceSeries series, int index) {
+		long timestamp = series.timestampAt(index);
+		int skip = index - series.indexAtOrAfter(timestamp);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString((timestamp + ":" + skip).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static Cursor decodeCursor(String cursor) {
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+			if (parts.length != 2) {
+				throw new InvalidCursorException(cursor);
+			}
+			Cursor position = new Cursor(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+			if (position.skip() < 0) {
+				throw new InvalidCursorException(cursor);
+			}
+			return position;
+		} catch (IllegalArgumentException e) {
+			// also covers NumberFormatException
+			throw new InvalidCursorException(cursor);
+		}
+	}
+
+	// a tick by its timestamp and its position among the ticks with that timestamp
+	private record Cursor(long timestamp, int skip) {
+	}
+}
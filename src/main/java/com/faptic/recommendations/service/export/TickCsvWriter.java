@@ -0,0 +1,54 @@
+package com.faptic.recommendations.service.export;
+
+import com.faptic.recommendations.repository.PriceSeries;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes ticks as CSV in the layout of the source files: {@code timestamp,symbol,price}.
+ * <p>
+ * Rows are formatted into one reusable buffer, which is written and flushed downstream each time it fills up.
+ * Memory use does not depend on the number of ticks, and the client receives data while the rest is formatted.
+ */
+final class TickCsvWriter {
+
+	private static final byte[] HEADER = "timestamp,symbol,price\n".getBytes(StandardCharsets.US_ASCII);
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[64 * 1024];
+	private int position;
+	// reused for every row, appending numbers to a StringBuilder does not allocate
+	private final StringBuilder row = new StringBuilder(64);
+
+	TickCsvWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	void writeHeader() {
+		System.arraycopy(HEADER, 0, buffer, position, HEADER.length);
+		position += HEADER.length;
+	}
+
+	void writeTicks(PriceSeries series, int from, int to) throws IOException {
+		for (int i = from; i < to; i++) {
+			row.setLength(0);
+			row.append(series.timestampAt(i)).append(',').append(series.getSymbol()).append(',').append(series.priceAt(i)).append('\n');
+
+			if (position + row.length() > buffer.length) {
+				flush();
+			}
+			// symbols and numbers are plain ASCII
+			for (int c = 0; c < row.length(); c++) {
+				buffer[position++] = (byte) row.charAt(c);
+			}
+		}
+	}
+
+	void flush() throws IOException {
+		out.write(buffer, 0, position);
+		out.flush();
+		position = 0;
+	}
+}
@@ -0,0 +1,13 @@
+package com.faptic.recommendations.service.export;
+
+import com.faptic.recommendations.repository.PriceSeries;
+
+/**
+ * The ticks {@code [from, to)} of a series, and the cursor of the following page or null if this is the last one.
+ */
+public record TickPage(PriceSeries series, int from, int to, String nextCursor) {
+
+	public int size() {
+		return to - from;
+	}
+}
@@ -0,0 +1,81 @@
+package com.faptic.recommendations.service.leaderboard;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.RangeAggregate;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Window over the fixed range {@code [start, end]}.
+ * <p>
+ * Ticks only ever enter a fixed window, and min, max, oldest and newest do not depend on the order in which ticks
+ * are seen, so every appended tick is folded into the crypto's stats in O(1) whatever its timestamp.
+ */
+final class FixedWindow extends LeaderboardWindow {
+
+	private final Instant start;
+	private final Instant end;
+
+	FixedWindow(String name, Instant start, Instant end) {
+		super(name);
+		this.start = start;
+		this.end = end;
+	}
+
+	boolean covers(Instant startDate, Instant endDate) {
+		return start.equals(startDate) && end.equals(endDate);
+	}
+
+	@Override
+	void rebuild(CryptoSnapshot snapshot) {
+		clear();
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			rank(snapshot, symbolId);
+		}
+		publish();
+	}
+
+	@Override
+	void refresh(CryptoSnapshot snapshot, int[] symbolIds) {
+		for (int symbolId : symbolIds) {
+			rank(snapshot, symbolId);
+		}
+		publish();
+	}
+
+	// the tiers' own aggregates, the cold tier only contributes if the window reaches into it
+	private void rank(CryptoSnapshot snapshot, int symbolId) {
+		RangeAggregate aggregate = snapshot.aggregate(symbolId, start.toEpochMilli(), end.toEpochMilli());
+		rank(symbolId, toStats(snapshot.getSymbols().symbolOf(symbolId), aggregate));
+	}
+
+	@Override
+	void onAppend(CryptoSnapshot snapshot, int symbolId, List<CryptoRecord> records) {
+		CryptoStats current = getStats(symbolId);
+		CryptoStats updated = current;
+
+		for (CryptoRecord record : records) {
+			Instant timestamp = record.getTimestamp();
+			if (timestamp.isBefore(start) || timestamp.isAfter(end)) {
+				continue;
+			}
+			if (updated == null) {
+				updated = new CryptoStats(snapshot.getSymbols().symbolOf(symbolId), timestamp, timestamp, record.getPrice(), record.getPrice());
+			} else {
+				updated = new CryptoStats(updated.getSymbol(),
+						timestamp.isBefore(updated.getOldestTimestamp()) ? timestamp : updated.getOldestTimestamp(),
+						timestamp.isAfter(updated.getNewestTimestamp()) ? timestamp : updated.getNewestTimestamp(),
+						Math.min(updated.getMinPrice(), record.getPrice()),
+						Math.max(updated.getMaxPrice(), record.getPrice()));
+			}
+		}
+
+		if (updated != current) {
+			rank(symbolId, updated);
+			publish();
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.faptic.recommendations.service.leaderboard;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.repository.AppendListener;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Leaderboards of all cryptos by normalized range, materialized for a set of named windows.
+ * <p>
+ * The {@code default} window is the configured timeframe, further windows slide over the most recent data, e.g.
+ * {@code 24h=PT24H}. Every window keeps its ranking sorted and is updated incrementally on each append, so reading
+ * a leaderboard returns a prepared read-only list without touching any series.
+ * <p>
+ * Building the windows reads every crypto. With lazy loading that would load every CSV file at startup, so the
+ * windows are then built on the first request for a leaderboard instead; until then the stats endpoint computes
+ * its answers itself.
+ */
+@Slf4j
+@Service
+public class LeaderboardService implements AppendListener {
+
+	public static final String DEFAULT_WINDOW = "default";
+
+	private final CryptoRepository cryptoRepository;
+
+	// fixed after construction, the windows themselves are updated under the lock of this service
+	private final Map<String, LeaderboardWindow> windows = new LinkedHashMap<>();
+
+	// version of the snapshot all leaderboards reflect at least
+	private volatile long version = -1;
+	// false until the windows are first built, appends before that are covered by the build
+	private volatile boolean built;
+
+	public LeaderboardService(CryptoRepository cryptoRepository,
+							  @Value("${faptic.timeframe.startDate}") LocalDate startDate,
+							  @Value("${faptic.timeframe.endDate}") LocalDate endDate,
+							  @Value("${faptic.leaderboard.windows:}") List<String> slidingWindows) {
+		this.cryptoRepository = cryptoRepository;
+
+		// same bounds as the stats endpoint uses for the configured timeframe
+		windows.put(DEFAULT_WINDOW, new FixedWindow(DEFAULT_WINDOW,
+				startDate.atStartOfDay(ZoneOffset.UTC).toInstant(), endDate.atStartOfDay(ZoneOffset.UTC).toInstant()));
+
+		for (String window : slidingWindows) {
+			int separator = window.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Leaderboard window must be given as name=duration: " + window);
+			}
+			String name = window.substring(0, separator).trim();
+			windows.put(name, new SlidingWindow(name, Duration.parse(window.substring(separator + 1).trim())));
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		// registered first, appends racing with the initial build are applied after it
+		cryptoRepository.addAppendListener(this);
+		if (cryptoRepository.isLazy()) {
+			log.debug("Deferring leaderboards {} to their first use", windows.keySet());
+			return;
+		}
+		build();
+	}
+
+	private synchronized void build() {
+		if (built) {
+			return;
+		}
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		for (LeaderboardWindow window : windows.values()) {
+			window.rebuild(snapshot);
+		}
+		version = snapshot.getVersion();
+		built = true;
+		log.debug("Materialized leaderboards {}", windows.keySet());
+	}
+
+	/**
+	 * Applies the records to every window if their snapshot directly follows the one the windows reflect.
+	 * <p>
+	 * Every append publishes the next version, but concurrent appends may be notified out of order. A notification
+	 * that skips a version refreshes the cryptos changed since from the latest snapshot instead, which also covers
+	 * the skipped appends; their notifications arrive late and are ignored.
+	 */
+	@Override
+	public synchronized void onAppend(CryptoSnapshot snapshot, String symbol, List<CryptoRecord> records) {
+		if (!built || snapshot.getVersion() <= version) {
+			return;
+		}
+
+		if (snapshot.getVersion() == version + 1) {
+			if (!records.isEmpty()) {
+				int symbolId = snapshot.getSymbols().idOf(symbol);
+				for (LeaderboardWindow window : windows.values()) {
+					window.onAppend(snapshot, symbolId, records);
+				}
+			}
+			version = snapshot.getVersion();
+			return;
+		}
+
+		CryptoSnapshot latest = cryptoRepository.getSnapshot();
+		int[] changed = latest.symbolsChangedSince(version);
+		for (LeaderboardWindow window : windows.values()) {
+			window.refresh(latest, changed);
+		}
+		version = latest.getVersion();
+		log.debug("Refreshed leaderboards for {} cryptos changed by out of order appends", changed.length);
+	}
+
+	public Set<String> getWindowNames() {
+		return windows.keySet();
+	}
+
+	/**
+	 * Leaderboard of the named window, sorted descending by normalized range, or null if there is no such window.
+	 * Builds the windows if they were deferred.
+	 */
+	public List<CryptoStats> getLeaderboard(String window) {
+		LeaderboardWindow leaderboardWindow = windows.get(window);
+		if (leaderboardWindow == null) {
+			return null;
+		}
+		if (!built) {
+			build();
+		}
+		return leaderboardWindow.getLeaderboard();
+	}
+
+	/**
+	 * Materialized leaderboard of a fixed window over exactly {@code [startDate, endDate]} reflecting at least the
+	 * given snapshot, or null if there is none or the windows are not built yet.
+	 */
+	public List<CryptoStats> getLeaderboard(CryptoSnapshot snapshot, Instant startDate, Instant endDate) {
+		if (version < snapshot.getVersion()) {
+			return null;
+		}
+		for (LeaderboardWindow window : windows.values()) {
+			if (window instanceof FixedWindow fixedWindow && fixedWindow.covers(startDate, endDate)) {
+				return fixedWindow.getLeaderboard();
+			}
+		}
+		return null;
+	}
+}
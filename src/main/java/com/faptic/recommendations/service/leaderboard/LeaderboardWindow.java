@@ -0,0 +1,107 @@
+package com.faptic.recommendations.service.leaderboard;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.RangeAggregate;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Ranking of all cryptos over one named window, kept sorted as the stats of single cryptos change.
+ * <p>
+ * Subclasses decide which ticks fall into the window. Mutators are called under the lock of the
+ * {@link LeaderboardService}; {@link #getLeaderboard()} may be called by any thread at any time.
+ */
+abstract class LeaderboardWindow {
+
+	// same order as CryptoService: normalized range descending, ties in symbol id order
+	private static final Comparator<Entry> ORDER = Comparator.comparingDouble((Entry entry) -> entry.stats().getNormalizedRange()).reversed()
+			.thenComparingInt(Entry::symbolId);
+
+	private final String name;
+	private final NavigableSet<Entry> ranking = new TreeSet<>(ORDER);
+	private Entry[] entries = new Entry[0];
+
+	// replaced after every change, readers never see a ranking being modified
+	private volatile List<CryptoStats> leaderboard = List.of();
+
+	LeaderboardWindow(String name) {
+		this.name = name;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	List<CryptoStats> getLeaderboard() {
+		return leaderboard;
+	}
+
+	/**
+	 * Recomputes the window for every crypto of the snapshot.
+	 */
+	abstract void rebuild(CryptoSnapshot snapshot);
+
+	/**
+	 * Recomputes the window for the given cryptos, whose data changed in ways not passed to {@link #onAppend}.
+	 */
+	abstract void refresh(CryptoSnapshot snapshot, int[] symbolIds);
+
+	/**
+	 * Applies records appended to one crypto; the snapshot already contains them.
+	 */
+	abstract void onAppend(CryptoSnapshot snapshot, int symbolId, List<CryptoRecord> records);
+
+	/**
+	 * Stats of a crypto over the window so far, or null if it has no ticks in it.
+	 */
+	CryptoStats getStats(int symbolId) {
+		Entry entry = symbolId < entries.length ? entries[symbolId] : null;
+		return entry != null ? entry.stats() : null;
+	}
+
+	/**
+	 * Moves a crypto to the position of its new stats, or removes it for null stats.
+	 */
+	void rank(int symbolId, CryptoStats stats) {
+		if (symbolId >= entries.length) {
+			entries = Arrays.copyOf(entries, Math.max(symbolId + 1, entries.length * 2));
+		}
+
+		Entry previous = entries[symbolId];
+		if (previous != null) {
+			ranking.remove(previous);
+		}
+		entries[symbolId] = stats != null ? new Entry(symbolId, stats) : null;
+		if (stats != null) {
+			ranking.add(entries[symbolId]);
+		}
+	}
+
+	void publish() {
+		leaderboard = ranking.stream().map(Entry::stats).toList();
+	}
+
+	void clear() {
+		ranking.clear();
+		Arrays.fill(entries, null);
+	}
+
+	// stats of an aggregate, null if it holds no ticks
+	static CryptoStats toStats(String symbol, RangeAggregate aggregate) {
+		if (aggregate == null) {
+			return null;
+		}
+		return new CryptoStats(symbol, Instant.ofEpochMilli(aggregate.oldest()), Instant.ofEpochMilli(aggregate.newest()),
+				aggregate.minPrice(), aggregate.maxPrice());
+	}
+
+	private record Entry(int symbolId, CryptoStats stats) {
+	}
+}
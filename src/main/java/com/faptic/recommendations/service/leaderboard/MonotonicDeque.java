@@ -0,0 +1,81 @@
+package com.faptic.recommendations.service.leaderboard;
+
+/**
+ * Sliding window minimum or maximum of a time ordered stream of ticks.
+ * <p>
+ * A pushed tick discards every earlier tick it dominates, since those can never become the extreme again
+ * before it leaves the window itself. Prices in the deque are therefore monotonic and the front is the
+ * extreme of the window. Push and eviction are amortised O(1); the ring buffer only holds candidates.
+ */
+public final class MonotonicDeque {
+
+	private final boolean minimum;
+	private long[] timestamps = new long[16];
+	private double[] prices = new double[16];
+	private int head;
+	private int size;
+
+	public MonotonicDeque(boolean minimum) {
+		this.minimum = minimum;
+	}
+
+	/**
+	 * Adds a tick, which must not be older than any tick pushed before.
+	 */
+	public void push(long timestamp, double price) {
+		while (size > 0 && dominates(price, prices[slot(size - 1)])) {
+			size--;
+		}
+		if (size == timestamps.length) {
+			grow();
+		}
+		int tail = slot(size);
+		timestamps[tail] = timestamp;
+		prices[tail] = price;
+		size++;
+	}
+
+	/**
+	 * Drops the ticks at or before the given time.
+	 */
+	public void evictUpTo(long timestamp) {
+		while (size > 0 && timestamps[head] <= timestamp) {
+			head = slot(1);
+			size--;
+		}
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public double front() {
+		return prices[head];
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	private boolean dominates(double price, double candidate) {
+		return minimum ? price <= candidate : price >= candidate;
+	}
+
+	// capacity is a power of two
+	private int slot(int offset) {
+		return (head + offset) & (timestamps.length - 1);
+	}
+
+	private void grow() {
+		long[] grownTimestamps = new long[timestamps.length * 2];
+		double[] grownPrices = new double[prices.length * 2];
+		for (int i = 0; i < size; i++) {
+			grownTimestamps[i] = timestamps[slot(i)];
+			grownPrices[i] = prices[slot(i)];
+		}
+		timestamps = grownTimestamps;
+		prices = grownPrices;
+		head = 0;
+	}
+}
@@ -0,0 +1,167 @@
+package com.faptic.recommendations.service.leaderboard;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.repository.ColdTier;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.PriceSeries;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Window over the given duration up to the newest tick of any crypto, e.g. the last 24 hours of data.
+ * <p>
+ * The window slides forward whenever a newer tick arrives. Each crypto keeps a monotonic deque for its minimum and
+ * one for its maximum, so arriving ticks are pushed and expiring ticks evicted in amortised O(1). A tick older than
+ * the newest one already pushed for its crypto cannot be pushed; that crypto is then rebuilt from its ticks within the window.
+ */
+final class SlidingWindow extends LeaderboardWindow {
+
+	private final long length;
+
+	// newest tick time over all cryptos, the window covers (watermark - length, watermark]
+	private long watermark = Long.MIN_VALUE;
+	private State[] states = new State[0];
+
+	SlidingWindow(String name, Duration length) {
+		super(name);
+		this.length = length.toMillis();
+	}
+
+	@Override
+	void rebuild(CryptoSnapshot snapshot) {
+		clear();
+		watermark = Long.MIN_VALUE;
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			watermark = Math.max(watermark, snapshot.getNewest(symbolId));
+		}
+
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			rebuild(state(symbolId), snapshot, symbolId);
+			rank(symbolId, stats(state(symbolId), snapshot, symbolId));
+		}
+		publish();
+	}
+
+	@Override
+	void refresh(CryptoSnapshot snapshot, int[] symbolIds) {
+		long newest = watermark;
+		for (int symbolId : symbolIds) {
+			newest = Math.max(newest, snapshot.getNewest(symbolId));
+		}
+		boolean slides = newest > watermark;
+		watermark = newest;
+
+		for (int symbolId : symbolIds) {
+			rebuild(state(symbolId), snapshot, symbolId);
+			rank(symbolId, stats(state(symbolId), snapshot, symbolId));
+		}
+		if (slides) {
+			for (int id = 0; id < snapshot.symbolCount(); id++) {
+				state(id).evictUpTo(watermark - length);
+				rank(id, stats(state(id), snapshot, id));
+			}
+		}
+		publish();
+	}
+
+	@Override
+	void onAppend(CryptoSnapshot snapshot, int symbolId, List<CryptoRecord> records) {
+		long newest = watermark;
+		for (CryptoRecord record : records) {
+			newest = Math.max(newest, record.getTimestamp().toEpochMilli());
+		}
+		boolean slides = newest > watermark;
+		watermark = newest;
+
+		State state = state(symbolId);
+		CryptoRecord[] sorted = records.toArray(CryptoRecord[]::new);
+		Arrays.sort(sorted, Comparator.comparing(CryptoRecord::getTimestamp));
+
+		long windowStart = watermark - length;
+		if (sorted[0].getTimestamp().toEpochMilli() < state.newest && sorted[sorted.length - 1].getTimestamp().toEpochMilli() > windowStart) {
+			rebuild(state, snapshot, symbolId);
+		} else {
+			for (CryptoRecord record : sorted) {
+				long timestamp = record.getTimestamp().toEpochMilli();
+				if (timestamp > windowStart) {
+					state.push(timestamp, record.getPrice());
+				}
+			}
+		}
+
+		if (slides) {
+			for (int id = 0; id < snapshot.symbolCount(); id++) {
+				state(id).evictUpTo(windowStart);
+				rank(id, stats(state(id), snapshot, id));
+			}
+		} else {
+			rank(symbolId, stats(state, snapshot, symbolId));
+		}
+		publish();
+	}
+
+	// reads the ticks of the window only, which are in the hot tier unless the window reaches back into the cold one
+	private void rebuild(State state, CryptoSnapshot snapshot, int symbolId) {
+		state.clear();
+		snapshot.scan(symbolId, watermark - length + 1, Long.MAX_VALUE, state::push);
+	}
+
+	private CryptoStats stats(State state, CryptoSnapshot snapshot, int symbolId) {
+		if (state.min.isEmpty()) {
+			return null;
+		}
+		return new CryptoStats(snapshot.getSymbols().symbolOf(symbolId), Instant.ofEpochMilli(oldest(snapshot, symbolId)),
+				Instant.ofEpochMilli(state.newest), state.min.front(), state.max.front());
+	}
+
+	// oldest tick within the window, found by binary search unless the window reaches back into the cold tier
+	private long oldest(CryptoSnapshot snapshot, int symbolId) {
+		long windowStart = watermark - length;
+		ColdTier cold = snapshot.getColdTier(symbolId);
+		if (cold == null || windowStart >= cold.getNewest()) {
+			PriceSeries hot = snapshot.getHotSeries(symbolId);
+			return hot.timestampAt(hot.indexAfter(windowStart));
+		}
+		return snapshot.aggregate(symbolId, windowStart + 1, Long.MAX_VALUE).oldest();
+	}
+
+	private State state(int symbolId) {
+		if (symbolId >= states.length) {
+			int previous = states.length;
+			states = Arrays.copyOf(states, Math.max(symbolId + 1, previous * 2));
+			for (int i = previous; i < states.length; i++) {
+				states[i] = new State();
+			}
+		}
+		return states[symbolId];
+	}
+
+	private static final class State {
+
+		private final MonotonicDeque min = new MonotonicDeque(true);
+		private final MonotonicDeque max = new MonotonicDeque(false);
+		private long newest = Long.MIN_VALUE;
+
+		private void push(long timestamp, double price) {
+			min.push(timestamp, price);
+			max.push(timestamp, price);
+			newest = timestamp;
+		}
+
+		private void evictUpTo(long timestamp) {
+			min.evictUpTo(timestamp);
+			max.evictUpTo(timestamp);
+		}
+
+		private void clear() {
+			min.clear();
+			max.clear();
+			newest = Long.MIN_VALUE;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.faptic.recommendations.service.scoring;
+
+import org.springframework.stereotype.Component;
+
+// negated maximum drawdown, so the crypto that lost least from a peak ranks first
+@Component
+public class DrawdownMetric implements RankingMetric {
+
+	@Override
+	public String getName() {
+		return "drawdown";
+	}
+
+	@Override
+	public double score(SliceSummary summary) {
+		return -summary.getMaxDrawdown();
+	}
+}
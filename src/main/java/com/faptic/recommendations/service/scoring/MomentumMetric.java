@@ -0,0 +1,18 @@
+package com.faptic.recommendations.service.scoring;
+
+import org.springframework.stereotype.Component;
+
+// relative price change from the first to the last tick of the slice
+@Component
+public class MomentumMetric implements RankingMetric {
+
+	@Override
+	public String getName() {
+		return "momentum";
+	}
+
+	@Override
+	public double score(SliceSummary summary) {
+		return summary.getLastPrice() / summary.getFirstPrice() - 1;
+	}
+}
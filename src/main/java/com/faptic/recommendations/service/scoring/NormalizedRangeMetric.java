@@ -0,0 +1,18 @@
+package com.faptic.recommendations.service.scoring;
+
+import org.springframework.stereotype.Component;
+
+// (max-min)/min, the same measure the stats endpoints sort by
+@Component
+public class NormalizedRangeMetric implements RankingMetric {
+
+	@Override
+	public String getName() {
+		return "normalized-range";
+	}
+
+	@Override
+	public double score(SliceSummary summary) {
+		return (summary.getMaxPrice() - summary.getMinPrice()) / summary.getMinPrice();
+	}
+}
@@ -0,0 +1,14 @@
+package com.faptic.recommendations.service.scoring;
+
+/**
+ * A strategy that scores a crypto from the summary of its price slice. Higher scores rank first.
+ * <p>
+ * Implementations are Spring beans and are picked up by the {@link ScoringService} under their {@link #getName() name}.
+ */
+public interface RankingMetric {
+
+	String getName();
+
+	double score(SliceSummary summary);
+
+}
@@ -0,0 +1,100 @@
+package com.faptic.recommendations.service.scoring;
+
+import com.faptic.recommendations.exception.UnknownMetricException;
+import com.faptic.recommendations.model.CryptoScore;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.PriceSeries;
+import com.faptic.recommendations.service.QueryAdmissionService;
+import com.faptic.recommendations.service.SingleFlight;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Service
+public class ScoringService {
+
+	private final CryptoRepository cryptoRepository;
+
+	private final QueryAdmissionService queryAdmissionService;
+
+	private final Map<String, RankingMetric> metrics = new TreeMap<>();
+
+	// concurrent identical rankings share one pass, results are shared and must not be modified;
+	// only the caller leading a pass takes a slot of a query lane
+	private final SingleFlight<RankQuery, List<CryptoScore>> rankQueries = new SingleFlight<>();
+
+	public ScoringService(CryptoRepository cryptoRepository, QueryAdmissionService queryAdmissionService, List<RankingMetric> metrics) {
+		this.cryptoRepository = cryptoRepository;
+		this.queryAdmissionService = queryAdmissionService;
+		for (RankingMetric metric : metrics) {
+			this.metrics.put(metric.getName(), metric);
+		}
+	}
+
+	public Set<String> getMetricNames() {
+		return metrics.keySet();
+	}
+
+	/**
+	 * Scores every crypto with data in {@code [startDate, endDate]} by each of the given metrics and sorts
+	 * descending by the first one. Each series slice is summarised once, however many metrics are requested.
+	 * Concurrent identical calls share a single pass on the query lane matching its estimated rows.
+	 */
+	public List<CryptoScore> rank(List<String> metricNames, Instant startDate, Instant endDate) {
+		List<RankingMetric> requested = new ArrayList<>(metricNames.size());
+		for (String name : metricNames) {
+			RankingMetric metric = metrics.get(name);
+			if (metric == null) {
+				throw new UnknownMetricException(name);
+			}
+			requested.add(metric);
+		}
+
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		return rankQueries.execute(new RankQuery(snapshot.getVersion(), List.copyOf(metricNames), startDate, endDate),
+				() -> queryAdmissionService.execute(snapshot.estimateTicks(startDate.toEpochMilli(), endDate.toEpochMilli()),
+						() -> rank(snapshot, requested, startDate, endDate)));
+	}
+
+	private List<CryptoScore> rank(CryptoSnapshot snapshot, List<RankingMetric> requested, Instant startDate, Instant endDate) {
+		List<CryptoScore> result = new ArrayList<>(snapshot.symbolCount());
+
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			PriceSeries series = snapshot.getSeries(symbolId, startDate.toEpochMilli(), endDate.toEpochMilli());
+			SliceSummary summary = SliceSummary.of(series, series.indexAtOrAfter(startDate.toEpochMilli()), series.indexAfter(endDate.toEpochMilli()));
+			if (summary == null) {
+				continue;
+			}
+
+			Map<String, Double> scores = new LinkedHashMap<>();
+			for (RankingMetric metric : requested) {
+				scores.put(metric.getName(), metric.score(summary));
+			}
+
+			result.add(CryptoScore.builder()
+					.symbol(summary.getSymbol())
+					.oldestTimestamp(Instant.ofEpochMilli(summary.getOldestTimestamp()))
+					.newestTimestamp(Instant.ofEpochMilli(summary.getNewestTimestamp()))
+					.scores(scores)
+					.build());
+		}
+
+		if (!requested.isEmpty()) {
+			String primary = requested.get(0).getName();
+			result.sort(Comparator.comparing((CryptoScore score) -> score.getScores().get(primary)).reversed());
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private record RankQuery(long version, List<String> metricNames, Instant startDate, Instant endDate) {
+	}
+}
@@ -0,0 +1,19 @@
+package com.faptic.recommendations.service.scoring;
+
+import org.springframework.stereotype.Component;
+
+// mean log return per unit of volatility, assuming a zero risk free rate
+@Component
+public class SharpeRatioMetric implements RankingMetric {
+
+	@Override
+	public String getName() {
+		return "sharpe";
+	}
+
+	@Override
+	public double score(SliceSummary summary) {
+		double volatility = Math.sqrt(summary.getReturnVariance());
+		return volatility > 0 ? summary.getMeanReturn() / volatility : 0;
+	}
+}
@@ -0,0 +1,133 @@
+package com.faptic.recommendations.service.scoring;
+
+import com.faptic.recommendations.repository.PriceSeries;
+
+/**
+ * Everything the ranking metrics need about a slice of a price series, gathered in a single pass.
+ * <p>
+ * Metrics only read these fields, so ranking by several metrics still touches each tick once.
+ * A metric that needs a new statistic should extend this pass rather than scanning the series itself.
+ */
+public final class SliceSummary {
+
+	private final String symbol;
+	private final long oldestTimestamp;
+	private final long newestTimestamp;
+	private final int count;
+	private final double firstPrice;
+	private final double lastPrice;
+	private final double minPrice;
+	private final double maxPrice;
+	private final double meanReturn;
+	private final double returnVariance;
+	private final double maxDrawdown;
+
+	private SliceSummary(String symbol, long oldestTimestamp, long newestTimestamp, int count, double firstPrice, double lastPrice,
+						 double minPrice, double maxPrice, double meanReturn, double returnVariance, double maxDrawdown) {
+		this.symbol = symbol;
+		this.oldestTimestamp = oldestTimestamp;
+		this.newestTimestamp = newestTimestamp;
+		this.count = count;
+		this.firstPrice = firstPrice;
+		this.lastPrice = lastPrice;
+		this.minPrice = minPrice;
+		this.maxPrice = maxPrice;
+		this.meanReturn = meanReturn;
+		this.returnVariance = returnVariance;
+		this.maxDrawdown = maxDrawdown;
+	}
+
+	/**
+	 * Summarises the ticks {@code [from, to)} of the series, or returns null if the slice is empty.
+	 */
+	public static SliceSummary of(PriceSeries series, int from, int to) {
+		if (from >= to) {
+			return null;
+		}
+
+		double first = series.priceAt(from);
+		double min = first;
+		double max = first;
+		double peak = first;
+		double maxDrawdown = 0;
+
+		// Welford's running mean and variance of the log returns
+		int returns = 0;
+		double mean = 0;
+		double m2 = 0;
+
+		double previous = first;
+		for (int i = from + 1; i < to; i++) {
+			double price = series.priceAt(i);
+			min = Math.min(min, price);
+			max = Math.max(max, price);
+
+			peak = Math.max(peak, price);
+			maxDrawdown = Math.max(maxDrawdown, (peak - price) / peak);
+
+			double logReturn = Math.log(price / previous);
+			returns++;
+			double delta = logReturn - mean;
+			mean += delta / returns;
+			m2 += delta * (logReturn - mean);
+
+			previous = price;
+		}
+
+		return new SliceSummary(series.getSymbol(), series.timestampAt(from), series.timestampAt(to - 1), to - from,
+				first, previous, min, max, mean, returns > 0 ? m2 / returns : 0, maxDrawdown);
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	public long getOldestTimestamp() {
+		return oldestTimestamp;
+	}
+
+	public long getNewestTimestamp() {
+		return newestTimestamp;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double getFirstPrice() {
+		return firstPrice;
+	}
+
+	public double getLastPrice() {
+		return lastPrice;
+	}
+
+	public double getMinPrice() {
+		return minPrice;
+	}
+
+	public double getMaxPrice() {
+		return maxPrice;
+	}
+
+	/**
+	 * Mean of the log returns between consecutive ticks, 0 for a single tick.
+	 */
+	public double getMeanReturn() {
+		return meanReturn;
+	}
+
+	/**
+	 * Population variance of the log returns between consecutive ticks, 0 for a single tick.
+	 */
+	public double getReturnVariance() {
+		return returnVariance;
+	}
+
+	/**
+	 * Largest peak-to-trough decline as a fraction of the peak, 0 if the price never fell.
+	 */
+	public double getMaxDrawdown() {
+		return maxDrawdown;
+	}
+}
@@ -0,0 +1,18 @@
+package com.faptic.recommendations.service.scoring;
+
+import org.springframework.stereotype.Component;
+
+// standard deviation of the tick to tick log returns
+@Component
+public class VolatilityMetric implements RankingMetric {
+
+	@Override
+	public String getName() {
+		return "volatility";
+	}
+
+	@Override
+	public double score(SliceSummary summary) {
+		return Math.sqrt(summary.getReturnVariance());
+	}
+}
@@ -0,0 +1,49 @@
+package com.faptic.recommendations.config;
+
+import org.junit.jupiter.api.Test;
+import com.faptic.recommendations.model.CryptoStats;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBindingProcessor;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeHintsConfigTest {
+
+	@Test
+	void priceResourcesAreIncluded() throws Exception {
+		RuntimeHints hints = new RuntimeHints();
+		new NativeHintsConfig.PriceResourcesHints().registerHints(hints, getClass().getClassLoader());
+
+		Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:prices/*.csv");
+
+		assertThat(resources).isNotEmpty();
+		for (Resource resource : resources) {
+			assertThat(RuntimeHintsPredicates.resource().forResource("prices/" + resource.getFilename())).accepts(hints);
+		}
+	}
+
+	@Test
+	void everyModelIsRegisteredForBinding() throws Exception {
+		RuntimeHints hints = new RuntimeHints();
+		new RegisterReflectionForBindingProcessor().registerReflectionHints(hints.reflection(), NativeHintsConfig.class);
+
+		String modelPackage = ClassUtils.getPackageName(CryptoStats.class);
+		Resource[] resources = new PathMatchingResourcePatternResolver()
+				.getResources("classpath:" + ClassUtils.convertClassNameToResourcePath(modelPackage) + "/*.class");
+
+		assertThat(resources).isNotEmpty();
+		for (Resource resource : resources) {
+			String name = resource.getFilename().replace(".class", "");
+			// Lombok builders are not bound
+			if (name.contains("$")) {
+				continue;
+			}
+			Class<?> model = ClassUtils.forName(modelPackage + "." + name, getClass().getClassLoader());
+			assertThat(RuntimeHintsPredicates.reflection().onType(model)).as(name).accepts(hints);
+		}
+	}
+}
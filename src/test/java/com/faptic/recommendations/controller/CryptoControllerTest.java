@@ -1,29 +1,82 @@
 package com.faptic.recommendations.controller;
 
+import com.faptic.recommendations.config.MessageConvertersConfig;
+import com.faptic.recommendations.exception.InvalidAlertException;
+import com.faptic.recommendations.exception.InvalidCursorException;
+import com.faptic.recommendations.exception.QueryRejectedException;
+import com.faptic.recommendations.exception.UnknownMetricException;
+import com.faptic.recommendations.model.CorrelationMatrix;
+import com.faptic.recommendations.model.CryptoScore;
+import com.faptic.recommendations.model.CryptoRecord;
 import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.model.DailyHighestRange;
+import com.faptic.recommendations.model.ResampledPrices;
+import com.faptic.recommendations.model.SeriesCoverage;
+import com.faptic.recommendations.repository.FillMethod;
+import com.faptic.recommendations.repository.PriceSeries;
+import com.faptic.recommendations.repository.SymbolDictionary;
+import com.faptic.recommendations.service.CorrelationService;
 import com.faptic.recommendations.service.CryptoService;
+import com.faptic.recommendations.service.QueryAdmissionService;
+import com.faptic.recommendations.service.ResamplingService;
+import com.faptic.recommendations.service.alert.AlertCondition;
+import com.faptic.recommendations.service.alert.AlertService;
+import com.faptic.recommendations.service.alert.AlertSubscription;
+import com.faptic.recommendations.service.export.ArrowStreamWriter;
+import com.faptic.recommendations.service.export.SeriesExport;
+import com.faptic.recommendations.service.export.SeriesExportService;
+import com.faptic.recommendations.service.export.TickPage;
+import com.faptic.recommendations.service.leaderboard.LeaderboardService;
+import com.faptic.recommendations.service.scoring.ScoringService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CryptoController.class)
+@Import({QueryAdmissionService.class, SimpleMeterRegistry.class, MessageConvertersConfig.class})
 class CryptoControllerTest {
 
 	@Autowired
@@ -35,11 +88,29 @@ class CryptoControllerTest {
 	@MockBean
 	private CryptoService cryptoService;
 
+	@MockBean
+	private CorrelationService correlationService;
+
+	@MockBean
+	private ScoringService scoringService;
+
+	@MockBean
+	private SeriesExportService seriesExportService;
+
+	@MockBean
+	private LeaderboardService leaderboardService;
+
+	@MockBean
+	private ResamplingService resamplingService;
+
+	@MockBean
+	private AlertService alertService;
+
 	@Test
 	public void givenThereIsNoData_whenTheCryptoStatsEndpointIsCalled_thenAnEmptyListIsReturned() throws Exception {
 		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
 		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
-		when(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate)).thenReturn(Collections.emptyList());
+		when(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate, ZoneOffset.UTC)).thenReturn(Collections.emptyList());
 
 		mockMvc.perform(get("/api/cryptos/stats")
 						.contentType(MediaType.APPLICATION_JSON))
@@ -67,7 +138,7 @@ class CryptoControllerTest {
 		List<CryptoStats> mockCryptoStatsList = Arrays.asList(cryptoStats1, cryptoStats2);
 		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
 		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
-		when(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate)).thenReturn(mockCryptoStatsList);
+		when(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate, ZoneOffset.UTC)).thenReturn(mockCryptoStatsList);
 		String expectedJson = objectMapper.writeValueAsString(mockCryptoStatsList);
 
 		mockMvc.perform(get("/api/cryptos/stats")
@@ -96,7 +167,7 @@ class CryptoControllerTest {
 		List<CryptoStats> mockCryptoStatsList = Arrays.asList(cryptoStats1, cryptoStats2);
 		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
 		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
-		when(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate)).thenReturn(mockCryptoStatsList);
+		when(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate, ZoneOffset.UTC)).thenReturn(mockCryptoStatsList);
 		String expectedJson = objectMapper.writeValueAsString(mockCryptoStatsList);
 
 		mockMvc.perform(get("/api/cryptos/stats")
@@ -111,7 +182,7 @@ class CryptoControllerTest {
 	public void whenGeneralException_thenInternalServerErrorResponse() throws Exception {
 		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
 		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
-		doThrow(new RuntimeException("Unexpected error")).when(cryptoService).getAllCryptoStatsByNormalizedRange(startDate, endDate);
+		doThrow(new RuntimeException("Unexpected error")).when(cryptoService).getAllCryptoStatsByNormalizedRange(startDate, endDate, ZoneOffset.UTC);
 
 		mockMvc.perform(get("/api/cryptos/stats")
 						.contentType(MediaType.APPLICATION_JSON))
@@ -153,10 +224,10 @@ class CryptoControllerTest {
 				.maxPrice(40000.0)
 				.build();
 
-		when(cryptoService.isKnownSymbol(symbol)).thenReturn(true);
+		when(cryptoService.getSymbolId(symbol)).thenReturn(0);
 		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
 		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
-		when(cryptoService.getCryptoStatsForSymbol(symbol, startDate, endDate)).thenReturn(mockStats);
+		when(cryptoService.getCryptoStatsForSymbol(0, startDate, endDate, ZoneOffset.UTC)).thenReturn(mockStats);
 
 		String expectedJson = objectMapper.writeValueAsString(mockStats);
 
@@ -177,10 +248,10 @@ class CryptoControllerTest {
 				.maxPrice(40000.0)
 				.build();
 
-		when(cryptoService.isKnownSymbol(symbol)).thenReturn(true);
+		when(cryptoService.getSymbolId(symbol)).thenReturn(0);
 		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
 		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
-		when(cryptoService.getCryptoStatsForSymbol(symbol, startDate, endDate)).thenReturn(mockStats);
+		when(cryptoService.getCryptoStatsForSymbol(0, startDate, endDate, ZoneOffset.UTC)).thenReturn(mockStats);
 
 		String expectedJson = objectMapper.writeValueAsString(mockStats);
 
@@ -196,7 +267,7 @@ class CryptoControllerTest {
 	public void givenAnInvalidSymbolIsProvided_whenStatsForSymbolEndpointIsCalled_thenNotFoundIsReturned() throws Exception {
 		String symbol = "UNKNOWN";
 
-		when(cryptoService.isKnownSymbol(symbol)).thenReturn(false);
+		when(cryptoService.getSymbolId(symbol)).thenReturn(SymbolDictionary.UNKNOWN);
 
 		mockMvc.perform(get("/api/cryptos/stats/" + symbol)
 						.contentType(MediaType.APPLICATION_JSON))
@@ -216,7 +287,7 @@ class CryptoControllerTest {
 
 		String expectedJson = objectMapper.writeValueAsString(cryptoStats);
 
-		when(cryptoService.getCryptoWithHighestRangeForDay(any(Instant.class))).thenReturn(cryptoStats);
+		when(cryptoService.getCryptoWithHighestRangeForDay(any(LocalDate.class), any(ZoneId.class))).thenReturn(cryptoStats);
 
 		mockMvc.perform(get("/api/cryptos/highest-range/" + date)
 						.contentType(MediaType.APPLICATION_JSON))
@@ -234,13 +305,530 @@ class CryptoControllerTest {
 				.andExpect(content().string(containsString("Invalid date format")));
 	}
 
+	@Test
+	public void givenAKnownWindow_whenTheLeaderboardEndpointIsCalled_thenTheMaterializedLeaderboardIsReturned() throws Exception {
+		CryptoStats cryptoStats = CryptoStats.builder()
+				.symbol("BTC")
+				.oldestTimestamp(Instant.parse("2022-01-30T20:00:00Z"))
+				.newestTimestamp(Instant.parse("2022-01-31T20:00:00Z"))
+				.minPrice(37000)
+				.maxPrice(38000)
+				.build();
+		when(leaderboardService.getLeaderboard("24h")).thenReturn(List.of(cryptoStats));
+
+		mockMvc.perform(get("/api/cryptos/leaderboard/24h")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(List.of(cryptoStats))));
+	}
+
+	@Test
+	public void givenAnUnknownWindow_whenTheLeaderboardEndpointIsCalled_thenNotFoundResponse() throws Exception {
+		when(leaderboardService.getLeaderboard("1y")).thenReturn(null);
+
+		mockMvc.perform(get("/api/cryptos/leaderboard/1y")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void givenAFillMethod_whenTheResampledEndpointIsCalled_thenThePricesOnTheGridAreReturned() throws Exception {
+		ResampledPrices prices = ResampledPrices.builder()
+				.symbol("BTC")
+				.startDate(Instant.parse("2022-01-01T06:00:00Z"))
+				.interval(Duration.ofHours(6))
+				.fill(FillMethod.LINEAR)
+				.prices(new double[]{46813.21, 46979.61})
+				.build();
+		when(cryptoService.getSymbolId("BTC")).thenReturn(0);
+		when(resamplingService.getResampledPrices(0, Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-01-02T00:00:00Z"),
+				Duration.ofHours(6), FillMethod.LINEAR)).thenReturn(prices);
+
+		mockMvc.perform(get("/api/cryptos/BTC/resampled")
+						.param("startDate", "2022-01-01")
+						.param("endDate", "2022-01-02")
+						.param("interval", "PT6H")
+						.param("fill", "LINEAR"))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(prices)));
+	}
+
+	@Test
+	public void givenAnUnknownFillMethod_whenTheResampledEndpointIsCalled_thenBadRequestResponse() throws Exception {
+		when(cryptoService.getSymbolId("BTC")).thenReturn(0);
+
+		mockMvc.perform(get("/api/cryptos/BTC/resampled")
+						.param("fill", "cubic"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void givenASubMillisecondInterval_whenTheGridEndpointsAreCalled_thenBadRequestResponse() throws Exception {
+		when(cryptoService.getSymbolId("BTC")).thenReturn(0);
+
+		mockMvc.perform(get("/api/cryptos/BTC/resampled")
+						.param("interval", "PT0.0001S"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/cryptos/coverage")
+						.param("interval", "PT0.0001S"))
+				.andExpect(status().isBadRequest());
+		verifyNoInteractions(resamplingService);
+	}
+
+	@Test
+	public void whenTheCoverageEndpointIsCalled_thenTheCoverageOfEachCryptoIsReturned() throws Exception {
+		SeriesCoverage coverage = SeriesCoverage.builder()
+				.symbol("BTC")
+				.startDate(Instant.parse("2022-01-01T12:00:00Z"))
+				.endDate(Instant.parse("2022-01-31T12:00:00Z"))
+				.interval(Duration.ofHours(12))
+				.ticks(100)
+				.intervals(61)
+				.coveredIntervals(58)
+				.gaps(3)
+				.longestGap(Duration.ofHours(12))
+				.build();
+		when(resamplingService.getCoverage(Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-02-01T00:00:00Z"), Duration.ofHours(12)))
+				.thenReturn(List.of(coverage));
+
+		mockMvc.perform(get("/api/cryptos/coverage")
+						.param("interval", "PT12H"))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(List.of(coverage))));
+	}
+
 	@Test
 	public void whenNoDataForGivenDay_thenNotFoundResponse() throws Exception {
 		String date = "2012-01-01";
-		when(cryptoService.getCryptoWithHighestRangeForDay(any(Instant.class))).thenReturn(null);
+		when(cryptoService.getCryptoWithHighestRangeForDay(any(LocalDate.class), any(ZoneId.class))).thenReturn(null);
 
 		mockMvc.perform(get("/api/cryptos/highest-range/" + date)
 						.contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isNotFound());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void givenADateRange_whenTheHighestRangeEndpointIsCalled_thenTheWinnerOfEveryDayIsReturned() throws Exception {
+		List<DailyHighestRange> days = List.of(
+				new DailyHighestRange(LocalDate.parse("2022-01-01"), CryptoStats.builder()
+						.symbol("XRP")
+						.oldestTimestamp(Instant.parse("2022-01-01T00:00:00Z"))
+						.newestTimestamp(Instant.parse("2022-01-01T21:00:00Z"))
+						.minPrice(0.8298)
+						.maxPrice(0.8458)
+						.build()),
+				new DailyHighestRange(LocalDate.parse("2022-01-02"), CryptoStats.builder()
+						.symbol("ETH")
+						.oldestTimestamp(Instant.parse("2022-01-02T02:00:00Z"))
+						.newestTimestamp(Instant.parse("2022-01-02T19:00:00Z"))
+						.minPrice(3743.17)
+						.maxPrice(3823.82)
+						.build()));
+		when(cryptoService.getCryptosWithHighestRangeByDay(LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-02"), ZoneOffset.UTC))
+				.thenReturn(days);
+
+		mockMvc.perform(get("/api/cryptos/highest-range")
+						.param("start", "2022-01-01")
+						.param("end", "2022-01-02")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(days)));
+	}
+
+	@Test
+	public void givenAnEndBeforeTheStart_whenTheHighestRangeEndpointIsCalled_thenBadRequestResponse() throws Exception {
+		mockMvc.perform(get("/api/cryptos/highest-range")
+						.param("start", "2022-01-10")
+						.param("end", "2022-01-01")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void givenATooLongDateRange_whenTheHighestRangeEndpointIsCalled_thenBadRequestResponse() throws Exception {
+		mockMvc.perform(get("/api/cryptos/highest-range")
+						.param("start", "2022-01-01")
+						.param("end", "+2000000-01-01")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+		verify(cryptoService, never()).getCryptosWithHighestRangeByDay(any(LocalDate.class), any(LocalDate.class), any(ZoneId.class));
+	}
+
+	@Test
+	public void givenADateRangeWithoutData_whenTheHighestRangeEndpointIsCalled_thenNotFoundResponse() throws Exception {
+		when(cryptoService.getCryptosWithHighestRangeByDay(any(LocalDate.class), any(LocalDate.class), any(ZoneId.class)))
+				.thenReturn(List.of());
+
+		mockMvc.perform(get("/api/cryptos/highest-range")
+						.param("start", "2012-01-01")
+						.param("end", "2012-12-31")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void givenThresholds_whenTheAlertsEndpointIsCalled_thenAnEventStreamIsOpenedForThem() throws Exception {
+		AlertSubscription subscription = mock(AlertSubscription.class);
+		when(subscription.getId()).thenReturn(7L);
+		when(subscription.getSymbol()).thenReturn("BTC");
+		doAnswer(invocation -> {
+			invocation.<Consumer<AlertSubscription>>getArgument(3).accept(subscription);
+			return subscription;
+		}).when(alertService).subscribe(eq("BTC"), any(), any(), any());
+
+		mockMvc.perform(get("/api/cryptos/BTC/alerts")
+						.param("above", "40000")
+						.param("below", "35000", "30000")
+						.param("rangeAbove", "0.05")
+						.param("window", "PT12H")
+						.accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted())
+				.andExpect(content().string(containsString("event:subscribed")));
+
+		verify(alertService).subscribe(eq("BTC"), eq(List.of(
+				AlertCondition.priceAbove(40000),
+				AlertCondition.priceBelow(35000),
+				AlertCondition.priceBelow(30000),
+				AlertCondition.rangeAbove(0.05, Duration.ofHours(12)))), any(), any());
+	}
+
+	@Test
+	public void givenNoThresholds_whenTheAlertsEndpointIsCalled_thenBadRequestResponse() throws Exception {
+		when(alertService.subscribe(eq("BTC"), eq(List.of()), any(), any())).thenThrow(new InvalidAlertException("At least one alert condition is required"));
+
+		mockMvc.perform(get("/api/cryptos/BTC/alerts")
+						.accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void givenTheCurrentETag_whenTheCryptoStatsEndpointIsCalled_thenNotModifiedWithoutComputing() throws Exception {
+		when(cryptoService.getDataEpoch()).thenReturn("epoch");
+		when(cryptoService.getDataVersion()).thenReturn(42L);
+		when(cryptoService.getAllCryptoStatsByNormalizedRange(any(Instant.class), any(Instant.class), any(ZoneId.class))).thenReturn(Collections.emptyList());
+
+		mockMvc.perform(get("/api/cryptos/stats"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "W/\"epoch-42\""))
+				.andExpect(header().string(CryptoController.DATA_VERSION_HEADER, "42"));
+
+		mockMvc.perform(get("/api/cryptos/stats")
+						.header(HttpHeaders.IF_NONE_MATCH, "W/\"epoch-42\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		verify(cryptoService, times(1)).getAllCryptoStatsByNormalizedRange(any(Instant.class), any(Instant.class), any(ZoneId.class));
+	}
+
+	@Test
+	public void givenAVersion_whenTheCryptoStatsEndpointIsCalled_thenOnlyChangedCryptosAreReturned() throws Exception {
+		CryptoStats changed = CryptoStats.builder()
+				.symbol("ETH")
+				.oldestTimestamp(Instant.parse("2022-01-01T00:00:00Z"))
+				.newestTimestamp(Instant.parse("2022-01-31T20:00:00Z"))
+				.minPrice(2336.52)
+				.maxPrice(3828.11)
+				.build();
+		when(cryptoService.getDataVersion()).thenReturn(42L);
+		when(cryptoService.getSymbolIdsChangedSince(40L)).thenReturn(new int[]{1});
+		when(cryptoService.getSymbolIdsChangedSince(42L)).thenReturn(new int[0]);
+		when(cryptoService.getCryptoStatsByNormalizedRange(eq(new int[]{1}), any(Instant.class), any(Instant.class), any(ZoneId.class)))
+				.thenReturn(List.of(changed));
+
+		mockMvc.perform(get("/api/cryptos/stats")
+						.param("since", "40"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(CryptoController.DATA_VERSION_HEADER, "42"))
+				.andExpect(content().json(objectMapper.writeValueAsString(List.of(changed))));
+
+		mockMvc.perform(get("/api/cryptos/stats")
+						.param("since", "42"))
+				.andExpect(status().isNotModified());
+
+		verify(cryptoService, never()).getAllCryptoStatsByNormalizedRange(any(Instant.class), any(Instant.class), any(ZoneId.class));
+	}
+
+	@Test
+	public void givenAnUnchangedSymbol_whenTheCryptoStatsForSymbolEndpointIsCalled_thenNotModified() throws Exception {
+		when(cryptoService.getSymbolId("BTC")).thenReturn(0);
+		when(cryptoService.getDataVersion()).thenReturn(42L);
+		when(cryptoService.getSymbolVersion(0)).thenReturn(17L);
+
+		mockMvc.perform(get("/api/cryptos/stats/BTC")
+						.param("since", "30"))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get("/api/cryptos/stats/BTC")
+						.param("since", "16"))
+				.andExpect(status().isOk());
+		// a version ahead of the data, e.g. from before a restart, is answered in full
+		mockMvc.perform(get("/api/cryptos/stats/BTC")
+						.param("since", "50"))
+				.andExpect(status().isOk());
+
+		verify(cryptoService, times(2)).getCryptoStatsForSymbol(eq(0), any(Instant.class), any(Instant.class), any(ZoneId.class));
+	}
+
+	@Test
+	public void givenAZone_whenTheCryptoStatsEndpointIsCalled_thenDaysStartInThatZone() throws Exception {
+		ZoneId zone = ZoneId.of("America/New_York");
+		Instant startDate = Instant.parse("2022-01-01T05:00:00Z");
+		Instant endDate = Instant.parse("2022-01-10T05:00:00Z");
+		when(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate, zone)).thenReturn(Collections.emptyList());
+
+		mockMvc.perform(get("/api/cryptos/stats")
+						.param("startDate", "2022-01-01")
+						.param("endDate", "2022-01-10")
+						.param("zone", "America/New_York")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json("[]"));
+
+		verify(cryptoService).getAllCryptoStatsByNormalizedRange(startDate, endDate, zone);
+	}
+
+	@Test
+	public void givenAZone_whenHighestRangeEndpointIsCalled_thenTheZoneIsUsed() throws Exception {
+		CryptoStats cryptoStats = CryptoStats.builder()
+				.symbol("ETH")
+				.oldestTimestamp(Instant.parse("2022-01-01T00:00:00Z"))
+				.newestTimestamp(Instant.parse("2022-01-01T14:00:00Z"))
+				.minPrice(3000.0)
+				.maxPrice(3100.0)
+				.build();
+		when(cryptoService.getCryptoWithHighestRangeForDay(LocalDate.parse("2022-01-01"), ZoneId.of("Asia/Tokyo"))).thenReturn(cryptoStats);
+
+		mockMvc.perform(get("/api/cryptos/highest-range/2022-01-01")
+						.param("zone", "Asia/Tokyo")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(cryptoStats)));
+	}
+
+	@Test
+	public void givenAnInvalidZone_whenTheCryptoStatsEndpointIsCalled_thenBadRequest() throws Exception {
+		mockMvc.perform(get("/api/cryptos/stats")
+						.param("zone", "Mars/Olympus_Mons")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void givenDataExists_whenTheCorrelationEndpointIsCalled_thenTheMatrixIsReturned() throws Exception {
+		CorrelationMatrix matrix = CorrelationMatrix.builder()
+				.symbols(List.of("BTC", "ETH"))
+				.startDate(Instant.parse("2022-01-01T00:00:00Z"))
+				.endDate(Instant.parse("2022-01-10T00:00:00Z"))
+				.observations(9)
+				.correlations(new double[][]{{1.0, 0.8}, {0.8, 1.0}})
+				.build();
+		when(correlationService.getCorrelationMatrix(Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-01-10T00:00:00Z"), Duration.ofHours(12)))
+				.thenReturn(matrix);
+
+		mockMvc.perform(get("/api/cryptos/correlation")
+						.param("startDate", "2022-01-01")
+						.param("endDate", "2022-01-10")
+						.param("interval", "PT12H")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(matrix)));
+	}
+
+	@Test
+	public void givenNotEnoughData_whenTheCorrelationEndpointIsCalled_thenNotFound() throws Exception {
+		when(correlationService.getCorrelationMatrix(any(Instant.class), any(Instant.class), any(Duration.class))).thenReturn(null);
+
+		mockMvc.perform(get("/api/cryptos/correlation")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void givenAnInvalidInterval_whenTheCorrelationEndpointIsCalled_thenBadRequest() throws Exception {
+		mockMvc.perform(get("/api/cryptos/correlation")
+						.param("interval", "PT0S")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+
+		mockMvc.perform(get("/api/cryptos/correlation")
+						.param("interval", "daily")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+
+		mockMvc.perform(get("/api/cryptos/correlation")
+						.param("interval", "PT0.0001S")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+		verifyNoInteractions(correlationService);
+	}
+
+	@Test
+	public void givenSeveralMetrics_whenTheRankEndpointIsCalled_thenTheRankingIsReturned() throws Exception {
+		List<CryptoScore> ranking = List.of(CryptoScore.builder()
+				.symbol("ETH")
+				.oldestTimestamp(Instant.parse("2022-01-01T00:00:00Z"))
+				.newestTimestamp(Instant.parse("2022-01-31T23:00:00Z"))
+				.scores(Map.of("volatility", 0.02, "momentum", -0.3))
+				.build());
+		when(scoringService.rank(List.of("volatility", "momentum"), Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-02-01T00:00:00Z")))
+				.thenReturn(ranking);
+
+		mockMvc.perform(get("/api/cryptos/rank")
+						.param("metric", "volatility", "momentum")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(ranking)));
+	}
+
+	@Test
+	public void givenNoMetric_whenTheRankEndpointIsCalled_thenNormalizedRangeIsUsed() throws Exception {
+		when(scoringService.rank(any(), any(Instant.class), any(Instant.class))).thenReturn(Collections.emptyList());
+
+		mockMvc.perform(get("/api/cryptos/rank")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk());
+
+		verify(scoringService).rank(List.of("normalized-range"), Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-02-01T00:00:00Z"));
+	}
+
+	@Test
+	public void givenAnUnknownMetric_whenTheRankEndpointIsCalled_thenBadRequest() throws Exception {
+		when(scoringService.rank(any(), any(Instant.class), any(Instant.class))).thenThrow(new UnknownMetricException("luck"));
+
+		mockMvc.perform(get("/api/cryptos/rank")
+						.param("metric", "luck")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string(containsString("luck")));
+	}
+
+	@Test
+	public void givenTheQueryIsRejected_whenAnEndpointIsCalled_thenRetryAfterIsReturned() throws Exception {
+		when(cryptoService.getAllCryptoStatsByNormalizedRange(any(Instant.class), any(Instant.class), any(ZoneId.class)))
+				.thenThrow(new QueryRejectedException("expensive", HttpStatus.TOO_MANY_REQUESTS, 3));
+
+		mockMvc.perform(get("/api/cryptos/stats")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+	}
+
+	@Test
+	public void givenCborIsAccepted_whenTheCryptoStatsEndpointIsCalled_thenTheStatsAreEncodedAsCbor() throws Exception {
+		List<CryptoStats> stats = List.of(CryptoStats.builder()
+				.symbol("BTC")
+				.oldestTimestamp(Instant.parse("2022-01-01T00:00:00Z"))
+				.newestTimestamp(Instant.parse("2022-01-31T23:59:59Z"))
+				.minPrice(30000.0)
+				.maxPrice(40000.0)
+				.build());
+		when(cryptoService.getAllCryptoStatsByNormalizedRange(any(Instant.class), any(Instant.class), any(ZoneId.class))).thenReturn(stats);
+
+		byte[] cbor = mockMvc.perform(get("/api/cryptos/stats")
+						.accept(MediaType.APPLICATION_CBOR))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode decoded = new CBORMapper().readTree(cbor).get(0);
+		assertThat(decoded.get("symbol").asText()).isEqualTo("BTC");
+		// timestamps travel as integer epoch milliseconds instead of ISO strings
+		assertThat(decoded.get("oldestTimestamp").isIntegralNumber()).isTrue();
+		assertThat(decoded.get("oldestTimestamp").asLong()).isEqualTo(Instant.parse("2022-01-01T00:00:00Z").toEpochMilli());
+		assertThat(cbor.length).isLessThan(objectMapper.writeValueAsBytes(stats).length);
+	}
+
+	@Test
+	public void givenSymbols_whenTheSeriesEndpointIsCalled_thenAnArrowStreamIsWritten() throws Exception {
+		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
+		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
+		when(cryptoService.getSymbolId("BTC")).thenReturn(0);
+		when(cryptoService.getSymbolId("eth")).thenReturn(2);
+		SeriesExport export = new SeriesExport(List.of("BTC", "DOGE", "ETH"), List.of());
+		when(seriesExportService.getSeriesExport(new int[]{0, 2}, startDate, endDate)).thenReturn(export);
+		AtomicReference<String> writingThread = new AtomicReference<>();
+		doAnswer(invocation -> {
+			writingThread.set(Thread.currentThread().getName());
+			invocation.<OutputStream>getArgument(1).write(new byte[]{1, 2, 3});
+			return null;
+		}).when(seriesExportService).writeArrowStream(eq(export), any());
+
+		mockMvc.perform(get("/api/cryptos/series")
+						.param("symbol", "BTC", "eth"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(ArrowStreamWriter.MEDIA_TYPE))
+				.andExpect(content().bytes(new byte[]{1, 2, 3}));
+
+		verify(seriesExportService).writeArrowStream(eq(export), any());
+		// a slow client holds no lane thread
+		assertThat(writingThread.get()).doesNotStartWith("query-");
+	}
+
+	@Test
+	public void givenAnUnknownSymbol_whenTheSeriesEndpointIsCalled_thenNotFound() throws Exception {
+		when(cryptoService.getSymbolId("BTCX")).thenReturn(SymbolDictionary.UNKNOWN);
+
+		mockMvc.perform(get("/api/cryptos/series")
+						.param("symbol", "BTCX"))
+				.andExpect(status().isNotFound());
+
+		verifyNoInteractions(seriesExportService);
+	}
+
+	@Test
+	public void givenMoreTicksThanTheLimit_whenTheTicksEndpointIsCalled_thenCsvAndTheNextCursorAreReturned() throws Exception {
+		PriceSeries series = PriceSeries.of("BTC", List.of(new CryptoRecord(Instant.ofEpochMilli(1000), "BTC", 1.0)));
+		TickPage page = new TickPage(series, 0, 1, "next");
+		when(cryptoService.getSymbolId("BTC")).thenReturn(0);
+		when(seriesExportService.getTickPage(0, Instant.parse("2022-01-01T00:00:00Z"), null, null, 1)).thenReturn(page);
+		doAnswer(invocation -> {
+			invocation.<OutputStream>getArgument(1).write("csv".getBytes());
+			return null;
+		}).when(seriesExportService).writeTicksCsv(eq(page), any());
+
+		mockMvc.perform(get("/api/cryptos/BTC/ticks")
+						.param("start", "2022-01-01T00:00:00Z")
+						.param("limit", "1"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("text/csv"))
+				.andExpect(header().string("X-Next-Cursor", "next"))
+				.andExpect(content().string("csv"));
+	}
+
+	@Test
+	public void givenArrowIsAccepted_whenTheTicksEndpointIsCalled_thenAnArrowStreamIsWritten() throws Exception {
+		PriceSeries series = PriceSeries.of("BTC", List.of(new CryptoRecord(Instant.ofEpochMilli(1000), "BTC", 1.0)));
+		TickPage page = new TickPage(series, 0, 1, null);
+		when(cryptoService.getSymbolId("BTC")).thenReturn(0);
+		when(seriesExportService.getTickPage(eq(0), isNull(), isNull(), isNull(), anyInt())).thenReturn(page);
+
+		mockMvc.perform(get("/api/cryptos/BTC/ticks")
+						.accept(ArrowStreamWriter.MEDIA_TYPE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(ArrowStreamWriter.MEDIA_TYPE))
+				.andExpect(header().doesNotExist("X-Next-Cursor"));
+
+		verify(seriesExportService).writeTicksArrow(eq(page), any());
+	}
+
+	@Test
+	public void givenAnUnknownSymbol_whenTheTicksEndpointIsCalled_thenNotFound() throws Exception {
+		when(cryptoService.getSymbolId("BTCX")).thenReturn(SymbolDictionary.UNKNOWN);
+
+		mockMvc.perform(get("/api/cryptos/BTCX/ticks"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void givenAnInvalidCursorOrLimit_whenTheTicksEndpointIsCalled_thenBadRequest() throws Exception {
+		when(cryptoService.getSymbolId("BTC")).thenReturn(0);
+		when(seriesExportService.getTickPage(eq(0), any(), any(), eq("broken"), anyInt())).thenThrow(new InvalidCursorException("broken"));
+
+		mockMvc.perform(get("/api/cryptos/BTC/ticks")
+						.param("cursor", "broken"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/cryptos/BTC/ticks")
+						.param("limit", "0"))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string(containsString("limit")));
+	}
+}
@@ -0,0 +1,102 @@
+package com.faptic.recommendations.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Stored results of a reference load run; a later run regresses if its throughput drops, or its p50 or p99
+ * latency rises, by more than the tolerance, overall or for any scenario in the baseline.
+ * <p>
+ * Stored as properties: {@code <scenario>.throughput} in requests per second and {@code <scenario>.p50} and
+ * {@code <scenario>.p99} in milliseconds, with {@code total} as the scenario of all requests.
+ */
+final class Baseline {
+
+	private final Properties values;
+
+	private Baseline(Properties values) {
+		this.values = values;
+	}
+
+	static Baseline load(Path file) throws IOException {
+		Properties values = new Properties();
+		try (Reader reader = Files.newBufferedReader(file)) {
+			values.load(reader);
+		}
+		return new Baseline(values);
+	}
+
+	static void store(LoadReport report, Path file, String comment) throws IOException {
+		List<LoadReport.Result> results = new ArrayList<>(report.scenarios());
+		results.add(report.total());
+
+		// written by hand rather than through Properties, which neither sorts keys nor omits its timestamp
+		Map<String, String> values = new TreeMap<>();
+		for (LoadReport.Result result : results) {
+			values.put(result.name() + ".throughput", format(result.throughput()));
+			values.put(result.name() + ".p50", format(result.p50Millis()));
+			values.put(result.name() + ".p99", format(result.p99Millis()));
+		}
+
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		try (Writer writer = Files.newBufferedWriter(file)) {
+			writer.write("# " + comment + System.lineSeparator());
+			for (Map.Entry<String, String> value : values.entrySet()) {
+				writer.write(value.getKey() + "=" + value.getValue() + System.lineSeparator());
+			}
+		}
+	}
+
+	/**
+	 * Descriptions of every regression of the report beyond the tolerance, a fraction of the baseline value.
+	 */
+	List<String> regressions(LoadReport report, double tolerance) {
+		List<String> regressions = new ArrayList<>();
+		for (String key : new TreeSet<>(values.stringPropertyNames())) {
+			int dot = key.lastIndexOf('.');
+			String scenario = key.substring(0, dot);
+			String metric = key.substring(dot + 1);
+			double expected = Double.parseDouble(values.getProperty(key));
+
+			LoadReport.Result result = report.scenario(scenario);
+			if (result == null) {
+				regressions.add(scenario + " is in the baseline but was not run");
+				continue;
+			}
+
+			switch (metric) {
+				case "throughput" -> {
+					if (result.throughput() < expected * (1 - tolerance)) {
+						regressions.add(String.format("%s throughput %.1f req/s, baseline %.1f", scenario, result.throughput(), expected));
+					}
+				}
+				case "p50" -> {
+					if (result.p50Millis() > expected * (1 + tolerance)) {
+						regressions.add(String.format("%s p50 %.3f ms, baseline %.3f", scenario, result.p50Millis(), expected));
+					}
+				}
+				case "p99" -> {
+					if (result.p99Millis() > expected * (1 + tolerance)) {
+						regressions.add(String.format("%s p99 %.3f ms, baseline %.3f", scenario, result.p99Millis(), expected));
+					}
+				}
+				default -> throw new IllegalArgumentException("Unknown baseline metric " + key);
+			}
+		}
+		return regressions;
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
@@ -0,0 +1,108 @@
+package com.faptic.recommendations.loadtest;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.repository.CryptoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays the production request mix against a locally started instance holding synthetic cryptos next to the
+ * bundled ones, and fails if throughput or latency regress past the stored baseline.
+ * <p>
+ * Not part of the regular test run; {@code mvn -Pload-test verify}. Settings are system properties, passed through
+ * by the profile:
+ * <ul>
+ *     <li>{@code loadtest.symbols}, {@code loadtest.tick-interval}: size of the synthetic dataset</li>
+ *     <li>{@code loadtest.warmup}, {@code loadtest.duration}, {@code loadtest.concurrency}: shape of the run</li>
+ *     <li>{@code loadtest.baseline}, {@code loadtest.tolerance}: results to compare against and the allowed regression</li>
+ *     <li>{@code loadtest.update-baseline}: store this run's results as the new baseline instead of comparing</li>
+ * </ul>
+ * Baselines are machine specific; refresh them on the machine that runs the gate.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"logging.level.com.faptic.recommendations=INFO",
+		"logging.level.org.springframework.web=INFO"})
+public class CryptoLoadIT {
+
+	private static final LocalDate START_DATE = LocalDate.of(2022, 1, 1);
+	private static final LocalDate END_DATE = LocalDate.of(2022, 2, 1);
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private CryptoRepository cryptoRepository;
+
+	private final int syntheticSymbols = Integer.getInteger("loadtest.symbols", 20);
+	private final Duration tickInterval = Duration.parse(System.getProperty("loadtest.tick-interval", "PT1M"));
+	private final List<String> symbols = new ArrayList<>();
+
+	@BeforeEach
+	public void addSyntheticCryptos() {
+		symbols.addAll(cryptoRepository.getSnapshot().getSymbols().getSymbols());
+		for (int i = 0; i < syntheticSymbols; i++) {
+			String symbol = String.format("SYN%02d", i);
+			cryptoRepository.append(symbol, randomWalk(symbol, tickInterval, new Random(i)));
+			symbols.add(symbol);
+		}
+	}
+
+	@Test
+	public void testMixedLoadAgainstBaseline() throws Exception {
+		Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+		Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+		int concurrency = Integer.getInteger("loadtest.concurrency", 8);
+		Path baselineFile = Path.of(System.getProperty("loadtest.baseline", "src/test/resources/loadtest/baseline.properties"));
+		double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.3"));
+
+		LoadGenerator generator = new LoadGenerator(URI.create("http://localhost:" + port),
+				LoadGenerator.defaultMix(symbols, START_DATE, END_DATE), concurrency, 42);
+		LoadReport report = generator.run(warmup, duration);
+
+		ByteArrayOutputStream printed = new ByteArrayOutputStream();
+		report.print(new PrintStream(printed, true, StandardCharsets.UTF_8));
+		System.out.print(printed.toString(StandardCharsets.UTF_8));
+		Files.createDirectories(Path.of("target", "loadtest"));
+		Files.write(Path.of("target", "loadtest", "report.txt"), printed.toByteArray());
+
+		assertThat(report.total().errors()).as("failed requests").isZero();
+
+		if (Boolean.getBoolean("loadtest.update-baseline")) {
+			Baseline.store(report, baselineFile, String.format("%d synthetic cryptos with %s ticks, %d workers for %s",
+					syntheticSymbols, tickInterval, concurrency, duration));
+			return;
+		}
+		assertThat(Baseline.load(baselineFile).regressions(report, tolerance)).as("regressions against " + baselineFile).isEmpty();
+	}
+
+	// geometric random walk with 0.1% volatility per tick over the default timeframe
+	private static List<CryptoRecord> randomWalk(String symbol, Duration tickInterval, Random random) {
+		long end = END_DATE.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+		List<CryptoRecord> records = new ArrayList<>();
+		double price = 10 + random.nextDouble() * 1000;
+		for (long timestamp = START_DATE.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli(); timestamp < end; timestamp += tickInterval.toMillis()) {
+			price *= Math.exp(random.nextGaussian() * 0.001);
+			records.add(new CryptoRecord(Instant.ofEpochMilli(timestamp), symbol, price));
+		}
+		return records;
+	}
+}
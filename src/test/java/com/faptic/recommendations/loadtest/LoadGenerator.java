@@ -0,0 +1,205 @@
+package com.faptic.recommendations.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed loop load generator: a fixed number of workers each send a request, wait for the response and send the
+ * next one, picking scenarios at random by weight. Latencies are recorded per request, without coordinated
+ * omission correction, so they are service times as seen by a client at the given concurrency.
+ * <p>
+ * Runs against any instance, e.g. one started with {@code mvn spring-boot:run}:
+ * <pre>
+ * java -cp target/test-classes com.faptic.recommendations.loadtest.LoadGenerator http://localhost:8080 30 8 BTC,ETH,XRP
+ * </pre>
+ */
+public final class LoadGenerator {
+
+	private final URI baseUri;
+	private final List<Scenario> scenarios;
+	private final int concurrency;
+	private final long seed;
+	private final int totalWeight;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(5))
+			.build();
+
+	public LoadGenerator(URI baseUri, List<Scenario> scenarios, int concurrency, long seed) {
+		this.baseUri = baseUri;
+		this.scenarios = List.copyOf(scenarios);
+		this.concurrency = concurrency;
+		this.seed = seed;
+		this.totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 4) {
+			System.err.println("Usage: LoadGenerator <base url> <seconds> <concurrency> <symbol,symbol,...>");
+			System.exit(2);
+		}
+		List<String> symbols = List.of(args[3].split(","));
+		LoadGenerator generator = new LoadGenerator(URI.create(args[0]),
+				defaultMix(symbols, LocalDate.of(2022, 1, 1), LocalDate.of(2022, 2, 1)), Integer.parseInt(args[2]), 42);
+
+		int seconds = Integer.parseInt(args[1]);
+		generator.run(Duration.ofSeconds(Math.max(1, seconds / 5)), Duration.ofSeconds(seconds)).print(System.out);
+	}
+
+	/**
+	 * The production mix: mostly stats of single cryptos, stats of all cryptos over arbitrary and the default
+	 * range, and highest range days, over random days of the given timeframe.
+	 */
+	public static List<Scenario> defaultMix(List<String> symbols, LocalDate startDate, LocalDate endDate) {
+		int days = (int) (endDate.toEpochDay() - startDate.toEpochDay());
+		return List.of(
+				new Scenario("stats", 10, random -> "/api/cryptos/stats"),
+				new Scenario("stats-range", 25, random -> {
+					LocalDate from = startDate.plusDays(random.nextInt(days));
+					LocalDate to = from.plusDays(random.nextInt(days - (int) (from.toEpochDay() - startDate.toEpochDay())));
+					return "/api/cryptos/stats?startDate=" + from + "&endDate=" + to;
+				}),
+				new Scenario("stats-symbol", 40, random -> {
+					String symbol = symbols.get(random.nextInt(symbols.size()));
+					LocalDate from = startDate.plusDays(random.nextInt(days));
+					return "/api/cryptos/stats/" + symbol + "?startDate=" + from + "&endDate=" + from.plusDays(1 + random.nextInt(7));
+				}),
+				new Scenario("highest-range", 25, random -> "/api/cryptos/highest-range/" + startDate.plusDays(random.nextInt(days))));
+	}
+
+	/**
+	 * Runs the mix for the warmup, discarding its results, then for the given duration.
+	 */
+	public LoadReport run(Duration warmup, Duration duration) throws InterruptedException {
+		if (!warmup.isZero()) {
+			measure(warmup, seed - 1);
+		}
+		return measure(duration, seed);
+	}
+
+	private LoadReport measure(Duration duration, long runSeed) throws InterruptedException {
+		long start = System.nanoTime();
+		long deadline = start + duration.toNanos();
+
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		List<Future<Recorder>> futures = new ArrayList<>();
+		for (int i = 0; i < concurrency; i++) {
+			Random random = new Random(runSeed * 31 + i);
+			futures.add(workers.submit(() -> work(random, deadline)));
+		}
+		workers.shutdown();
+
+		Recorder total = new Recorder(scenarios.size());
+		try {
+			for (Future<Recorder> future : futures) {
+				total.addAll(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Load worker failed", e.getCause());
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		List<LoadReport.Result> results = new ArrayList<>();
+		for (int s = 0; s < scenarios.size(); s++) {
+			results.add(LoadReport.Result.of(scenarios.get(s).name(), total.latencies(s), total.errors[s], seconds));
+		}
+		return new LoadReport(seconds, results, LoadReport.Result.of(LoadReport.TOTAL, total.allLatencies(),
+				Arrays.stream(total.errors).sum(), seconds));
+	}
+
+	private Recorder work(Random random, long deadline) {
+		Recorder recorder = new Recorder(scenarios.size());
+		while (System.nanoTime() < deadline) {
+			int scenario = pick(random);
+			HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(scenarios.get(scenario).path().apply(random)))
+					.timeout(Duration.ofSeconds(30))
+					.GET()
+					.build();
+
+			long sent = System.nanoTime();
+			boolean ok;
+			try {
+				ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+			} catch (IOException e) {
+				ok = false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			recorder.record(scenario, System.nanoTime() - sent, ok);
+		}
+		return recorder;
+	}
+
+	private int pick(Random random) {
+		int ticket = random.nextInt(totalWeight);
+		for (int s = 0; s < scenarios.size(); s++) {
+			ticket -= scenarios.get(s).weight();
+			if (ticket < 0) {
+				return s;
+			}
+		}
+		throw new IllegalStateException("Weights changed");
+	}
+
+	// latencies of one worker, or of all workers once merged
+	private static final class Recorder {
+
+		private final long[][] latencies;
+		private final int[] counts;
+		private final int[] errors;
+
+		private Recorder(int scenarios) {
+			latencies = new long[scenarios][1024];
+			counts = new int[scenarios];
+			errors = new int[scenarios];
+		}
+
+		private void record(int scenario, long nanos, boolean ok) {
+			if (counts[scenario] == latencies[scenario].length) {
+				latencies[scenario] = Arrays.copyOf(latencies[scenario], counts[scenario] * 2);
+			}
+			latencies[scenario][counts[scenario]++] = nanos;
+			if (!ok) {
+				errors[scenario]++;
+			}
+		}
+
+		private void addAll(Recorder other) {
+			for (int s = 0; s < counts.length; s++) {
+				for (int i = 0; i < other.counts[s]; i++) {
+					record(s, other.latencies[s][i], true);
+				}
+				errors[s] += other.errors[s];
+			}
+		}
+
+		private long[] latencies(int scenario) {
+			return Arrays.copyOf(latencies[scenario], counts[scenario]);
+		}
+
+		private long[] allLatencies() {
+			long[] all = new long[Arrays.stream(counts).sum()];
+			int offset = 0;
+			for (int s = 0; s < counts.length; s++) {
+				System.arraycopy(latencies[s], 0, all, offset, counts[s]);
+				offset += counts[s];
+			}
+			return all;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.faptic.recommendations.loadtest;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Throughput and latency percentiles of a load run, per scenario and over all requests.
+ */
+public record LoadReport(double seconds, List<Result> scenarios, Result total) {
+
+	public static final String TOTAL = "total";
+
+	/**
+	 * @param errors requests answered with a status other than 200, or failed to complete
+	 */
+	public record Result(String name, int requests, int errors, double throughput,
+						 double p50Millis, double p99Millis, double p999Millis, double maxMillis) {
+
+		static Result of(String name, long[] latenciesNanos, int errors, double seconds) {
+			long[] sorted = latenciesNanos.clone();
+			Arrays.sort(sorted);
+			return new Result(name, sorted.length, errors, sorted.length / seconds,
+					percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+					sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0);
+		}
+
+		// nearest rank
+		private static double percentile(long[] sorted, double quantile) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+		}
+	}
+
+	public Result scenario(String name) {
+		if (TOTAL.equals(name)) {
+			return total;
+		}
+		return scenarios.stream().filter(result -> result.name().equals(name)).findFirst().orElse(null);
+	}
+
+	public void print(PrintStream out) {
+		out.printf("%-16s %9s %7s %10s %9s %9s %9s %9s%n", "scenario", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+		for (Result result : scenarios) {
+			print(result, out);
+		}
+		print(total, out);
+	}
+
+	private static void print(Result result, PrintStream out) {
+		out.printf("%-16s %9d %7d %10.1f %9.3f %9.3f %9.3f %9.3f%n", result.name(), result.requests(), result.errors(),
+				result.throughput(), result.p50Millis(), result.p99Millis(), result.p999Millis(), result.maxMillis());
+	}
+}
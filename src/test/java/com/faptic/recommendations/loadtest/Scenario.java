@@ -0,0 +1,12 @@
+package com.faptic.recommendations.loadtest;
+
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * One kind of request in a load mix, picked with a probability proportional to its weight.
+ *
+ * @param path builds the path and query of a request, relative to the base URI, from the worker's random source
+ */
+public record Scenario(String name, int weight, Function<Random, String> path) {
+}
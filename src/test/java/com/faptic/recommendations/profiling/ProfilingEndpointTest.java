@@ -0,0 +1,94 @@
+package com.faptic.recommendations.profiling;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ProfilingEndpointTest {
+
+	@Autowired
+	private ProfilingEndpoint profilingEndpoint;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	public void testRecordingIsSummarizedPerShape() throws Exception {
+		assertThat(profilingEndpoint.toggle(true)).containsEntry("enabled", true);
+		try {
+			for (int i = 0; i < 5; i++) {
+				mockMvc.perform(get("/api/cryptos/stats")
+								.param("startDate", "2022-01-0" + (i + 1))
+								.param("endDate", "2022-01-20"))
+						.andExpect(status().isOk());
+				mockMvc.perform(get("/api/cryptos/stats/XRP"))
+						.andExpect(status().isOk());
+			}
+		} finally {
+			Map<String, Object> status = profilingEndpoint.toggle(false);
+			assertThat(status).containsEntry("enabled", false);
+		}
+
+		Path recording = Path.of((String) profilingEndpoint.status().get("lastRecording"));
+		List<RecordingSummary.ShapeSummary> summaries = RecordingSummary.summarize(recording);
+
+		RecordingSummary.ShapeSummary stats = shape(summaries, "GET /api/cryptos/stats?endDate,startDate");
+		assertThat(stats.requests()).isEqualTo(5);
+		assertThat(stats.meanRows()).isGreaterThan(0);
+		assertThat(stats.meanAllocatedBytes()).isGreaterThan(0);
+		assertThat(stats.p99Millis()).isGreaterThanOrEqualTo(stats.p50Millis());
+
+		assertThat(shape(summaries, "GET /api/cryptos/stats/{symbol}").requests()).isEqualTo(5);
+	}
+
+	@Test
+	public void testNoEventsWhileDisabled(@TempDir Path directory) throws Exception {
+		assertThat(Profiling.isEnabled()).isFalse();
+		Path dump = directory.resolve("disabled.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(QueryEvent.NAME);
+			recording.start();
+			mockMvc.perform(get("/api/cryptos/stats"))
+					.andExpect(status().isOk());
+			assertThat(Profiling.current()).isNull();
+
+			// the same recording does see the events of a profiled request
+			profilingEndpoint.toggle(true);
+			try {
+				mockMvc.perform(get("/api/cryptos/stats/XRP"))
+						.andExpect(status().isOk());
+			} finally {
+				profilingEndpoint.toggle(false);
+			}
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		assertThat(RecordingFile.readAllEvents(dump))
+				.filteredOn(event -> event.getEventType().getName().equals(QueryEvent.NAME))
+				.extracting(event -> event.getString("shape"))
+				.containsExactly("GET /api/cryptos/stats/{symbol}");
+	}
+
+	private static RecordingSummary.ShapeSummary shape(List<RecordingSummary.ShapeSummary> summaries, String shape) {
+		return summaries.stream()
+				.filter(summary -> summary.shape().equals(shape))
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("No events of shape " + shape + " in " + summaries));
+	}
+}
@@ -0,0 +1,204 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColdSegmentTest {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void ticksSurviveTheRoundTrip() throws Exception {
+		PriceSeries series = randomSeries(2500);
+
+		ColdSegment segment = ColdSegment.write(directory, series, 0, series.size(), false);
+		long[] timestamps = new long[segment.size()];
+		double[] prices = new double[segment.size()];
+		segment.decodeAll(timestamps, prices, 0);
+
+		for (int i = 0; i < series.size(); i++) {
+			assertThat(timestamps[i]).isEqualTo(series.timestampAt(i));
+			assertThat(prices[i]).isEqualTo(series.priceAt(i));
+		}
+		// hourly timestamps shrink to a byte, prices keep their bits
+		assertThat(segment.fileBytes()).isLessThan((long) series.size() * 2 * Long.BYTES);
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files.toList()).singleElement().satisfies(file -> assertThat(Files.size(file)).isEqualTo(segment.fileBytes()));
+		}
+	}
+
+	@Test
+	void aggregatesMatchAScanOfTheRange() throws Exception {
+		PriceSeries series = randomSeries(3000);
+		ColdTier tier = ColdTier.of(ColdSegment.write(directory, series, 0, 1800, false)).with(ColdSegment.write(directory, series, 1800, series.size(), false));
+
+		Random random = new Random(7);
+		for (int query = 0; query < 200; query++) {
+			long from = series.timestampAt(random.nextInt(series.size())) - random.nextInt(2) * 1800_000L;
+			long to = from + random.nextInt(2000) * 3_600_000L;
+
+			RangeAggregate expected = null;
+			for (int i = 0; i < series.size(); i++) {
+				if (series.timestampAt(i) >= from && series.timestampAt(i) <= to) {
+					expected = RangeAggregate.merge(expected, new RangeAggregate(1, series.timestampAt(i), series.timestampAt(i), series.priceAt(i), series.priceAt(i)));
+				}
+			}
+
+			assertThat(tier.aggregate(from, to)).isEqualTo(expected);
+			assertThat(series.aggregate(from, to)).isEqualTo(expected);
+			assertThat(tier.estimateTicks(from, to)).isGreaterThanOrEqualTo(expected != null ? expected.ticks() : 0);
+		}
+	}
+
+	@Test
+	void durableSegmentsReopenFromTheirIndex() throws Exception {
+		PriceSeries series = randomSeries(2500);
+		ColdSegment written = ColdSegment.write(directory, series, 0, series.size(), true);
+
+		ColdSegment reopened = ColdSegment.open(written.file());
+
+		assertThat(reopened.symbol()).isEqualTo("BTC");
+		assertThat(reopened.size()).isEqualTo(series.size());
+		assertThat(reopened.oldest()).isEqualTo(series.timestampAt(0));
+		assertThat(reopened.newest()).isEqualTo(series.getNewest());
+		long from = series.timestampAt(700);
+		long to = series.timestampAt(2100);
+		assertThat(reopened.aggregate(from, to)).isEqualTo(written.aggregate(from, to)).isEqualTo(series.aggregate(from, to));
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files.toList()).containsExactly(written.file());
+		}
+	}
+
+	@Test
+	void openRejectsAnIncompleteFile() throws Exception {
+		Path file = Files.write(directory.resolve("BTC-1.seg"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+
+		assertThatThrownBy(() -> ColdSegment.open(file)).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void scansReturnTheTicksOfTheRangeInTimeOrder() throws Exception {
+		PriceSeries series = randomSeries(3000);
+		// late ticks: every third tick compacted separately, so the segments overlap in time
+		List<long[]> timestamps = List.of(new long[1000], new long[2000]);
+		List<double[]> prices = List.of(new double[1000], new double[2000]);
+		int[] counts = new int[2];
+		for (int i = 0; i < series.size(); i++) {
+			int part = i % 3 == 0 ? 0 : 1;
+			timestamps.get(part)[counts[part]] = series.timestampAt(i);
+			prices.get(part)[counts[part]++] = series.priceAt(i);
+		}
+		PriceSeries late = PriceSeries.empty("BTC").withTicks(timestamps.get(0), prices.get(0));
+		PriceSeries rest = PriceSeries.empty("BTC").withTicks(timestamps.get(1), prices.get(1));
+		ColdTier overlapping = ColdTier.of(ColdSegment.write(directory, rest, 0, rest.size(), false)).with(ColdSegment.write(directory, late, 0, late.size(), false));
+		ColdTier ordered = ColdTier.of(ColdSegment.write(directory, series, 0, 1800, false)).with(ColdSegment.write(directory, series, 1800, series.size(), false));
+
+		Random random = new Random(11);
+		for (int query = 0; query < 50; query++) {
+			long from = series.timestampAt(random.nextInt(series.size()));
+			long to = from + random.nextInt(1500) * 3_600_000L;
+
+			List<Double> expected = new ArrayList<>();
+			for (int i = series.indexAtOrAfter(from); i < series.indexAfter(to); i++) {
+				expected.add(series.priceAt(i));
+			}
+			for (PriceStore store : List.of(series, ordered, overlapping)) {
+				List<Long> scannedTimestamps = new ArrayList<>();
+				List<Double> scannedPrices = new ArrayList<>();
+				store.scan(from, to, (timestamp, price) -> {
+					scannedTimestamps.add(timestamp);
+					scannedPrices.add(price);
+				});
+
+				assertThat(scannedTimestamps).isSorted().allMatch(timestamp -> timestamp >= from && timestamp <= to);
+				// equal timestamps of different segments may come in either order
+				assertThat(scannedPrices).containsExactlyInAnyOrderElementsOf(expected);
+			}
+		}
+	}
+
+	@Test
+	void estimatedEndsHoldTheRequestedTicks() throws Exception {
+		PriceSeries series = randomSeries(5000);
+		ColdTier ordered = ColdTier.of(ColdSegment.write(directory, series, 0, 1800, false))
+				.with(ColdSegment.write(directory, series, 1800, 3100, false))
+				.with(ColdSegment.write(directory, series, 3100, series.size(), false));
+		ColdTier overlapping = ordered.with(ColdSegment.write(directory, series, 2000, 2600, false));
+
+		Random random = new Random(13);
+		for (int query = 0; query < 200; query++) {
+			long from = series.timestampAt(random.nextInt(series.size())) - random.nextInt(2) * 1800_000L;
+			long count = 1 + random.nextInt(3000);
+			long available = series.size() - series.indexAtOrAfter(from);
+
+			assertThat(series.estimateEnd(from, count)).isEqualTo(count <= available ? series.timestampAt((int) (series.indexAtOrAfter(from) + count - 1)) : Long.MAX_VALUE);
+			for (ColdTier tier : List.of(ordered, overlapping)) {
+				long end = tier.estimateEnd(from, count);
+				if (end != Long.MAX_VALUE) {
+					assertThat(series.indexAfter(end) - series.indexAtOrAfter(from)).isGreaterThanOrEqualTo((int) count);
+				}
+			}
+			// segments in time order are counted as one, skipping at most the block the range starts in
+			long end = ordered.estimateEnd(from, count);
+			if (count + ColdSegment.BLOCK_SIZE <= available) {
+				assertThat(end).isNotEqualTo(Long.MAX_VALUE);
+			}
+			if (end != Long.MAX_VALUE) {
+				assertThat(series.indexAfter(end) - series.indexAtOrAfter(from)).isLessThan((int) count + 2 * ColdSegment.BLOCK_SIZE);
+			}
+		}
+	}
+
+	@Test
+	void segmentsBeyondTheFileOffsetsAreRejected() {
+		assertThat(ColdSegment.bufferBytes(100_000_000, 3)).isPositive();
+
+		assertThatThrownBy(() -> ColdSegment.bufferBytes(120_000_000, 3))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("120000000 ticks");
+		assertThatThrownBy(() -> ColdSegment.bufferBytes(Integer.MAX_VALUE, 3)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void materializeMergesBothTiers() throws Exception {
+		PriceSeries series = randomSeries(1500);
+		ColdTier tier = ColdTier.of(ColdSegment.write(directory, series, 0, 1000, false));
+
+		PriceSeries merged = tier.materialize(series.slice(1000, series.size()));
+
+		assertThat(merged.size()).isEqualTo(series.size());
+		for (int i = 0; i < series.size(); i++) {
+			assertThat(merged.timestampAt(i)).isEqualTo(series.timestampAt(i));
+			assertThat(merged.priceAt(i)).isEqualTo(series.priceAt(i));
+		}
+	}
+
+	// hourly ticks with occasional gaps and duplicates, prices drifting like a quote
+	private static PriceSeries randomSeries(int size) {
+		Random random = new Random(42);
+		List<CryptoRecord> records = new ArrayList<>();
+		long timestamp = Instant.parse("2021-01-01T00:00:00Z").toEpochMilli();
+		double price = 40000;
+		for (int i = 0; i < size; i++) {
+			int step = random.nextInt(20);
+			timestamp += step == 0 ? 0 : step == 1 ? 7 * 3_600_000L : 3_600_000L;
+			price = Math.round(price * (1 + (random.nextGaussian() * 0.01)) * 100) / 100.0;
+			records.add(new CryptoRecord(Instant.ofEpochMilli(timestamp), "BTC", price));
+		}
+		return PriceSeries.of("BTC", records);
+	}
+}
@@ -6,11 +6,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 public class CryptoRepositoryTest {
@@ -62,4 +71,170 @@ public class CryptoRepositoryTest {
 				.price(Double.parseDouble("0.7837"))
 				.build());
 	}
+
+	@Test
+	public void testCryptoRecordsAreReadOnly() {
+		Map<String, List<CryptoRecord>> cryptoRecords = cryptoRepository.getCryptoRecords();
+
+		assertThrows(UnsupportedOperationException.class, () -> cryptoRecords.remove("BTC"));
+		assertThrows(UnsupportedOperationException.class, () -> cryptoRecords.get("BTC").clear());
+	}
+
+	@Test
+	public void testAppendPublishesNewSnapshot() {
+		CryptoRepository repository = new CryptoRepository();
+		CryptoSnapshot initial = repository.getSnapshot();
+
+		CryptoSnapshot first = repository.append("BTC", List.of(
+				new CryptoRecord(Instant.ofEpochMilli(3000), "BTC", 3.0),
+				new CryptoRecord(Instant.ofEpochMilli(1000), "BTC", 1.0)));
+		CryptoSnapshot second = repository.append("BTC", List.of(
+				new CryptoRecord(Instant.ofEpochMilli(2000), "BTC", 2.0)));
+
+		assertThat(initial.symbolCount()).isZero();
+		assertThat(second.getVersion()).isGreaterThan(first.getVersion());
+		assertThat(repository.getSnapshot()).isSameAs(second);
+
+		// earlier snapshots are not affected by later writes
+		assertThat(first.getCryptoRecords().get("BTC")).extracting(CryptoRecord::getPrice).containsExactly(1.0, 3.0);
+		assertThat(second.getCryptoRecords().get("BTC")).extracting(CryptoRecord::getPrice).containsExactly(1.0, 2.0, 3.0);
+	}
+
+	@Test
+	public void testSymbolVersionsTrackTheirOwnChanges() {
+		CryptoRepository repository = new CryptoRepository();
+		repository.append("BTC", List.of(new CryptoRecord(Instant.ofEpochMilli(1000), "BTC", 1.0)));
+		CryptoSnapshot first = repository.append("ETH", List.of(new CryptoRecord(Instant.ofEpochMilli(1000), "ETH", 1.0)));
+		CryptoSnapshot second = repository.append("btc", List.of(new CryptoRecord(Instant.ofEpochMilli(2000), "BTC", 2.0)));
+
+		int btc = second.getSymbols().idOf("BTC");
+		int eth = second.getSymbols().idOf("ETH");
+		assertThat(second.getSymbolVersion(btc)).isEqualTo(second.getVersion());
+		assertThat(second.getSymbolVersion(eth)).isEqualTo(first.getVersion()).isLessThan(second.getVersion());
+
+		assertThat(second.symbolsChangedSince(first.getVersion())).containsExactly(btc);
+		assertThat(second.symbolsChangedSince(0)).containsExactly(btc, eth);
+		assertThat(second.symbolsChangedSince(second.getVersion())).isEmpty();
+	}
+
+	@Test
+	public void testConcurrentAppendsAreNotLost() throws Exception {
+		CryptoRepository repository = new CryptoRepository();
+		int writers = 8;
+		int recordsPerWriter = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < writers; w++) {
+				int writer = w;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < recordsPerWriter; i++) {
+						long timestamp = (long) writer * recordsPerWriter + i;
+						repository.append("BTC", List.of(new CryptoRecord(Instant.ofEpochMilli(timestamp), "BTC", timestamp)));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		PriceSeries series = repository.getSnapshot().getSeries("BTC");
+		assertThat(series.size()).isEqualTo(writers * recordsPerWriter);
+		for (int i = 1; i < series.size(); i++) {
+			assertThat(series.timestampAt(i)).isGreaterThan(series.timestampAt(i - 1));
+		}
+	}
+
+	@Test
+	public void testSymbolDictionaryAssignsDenseIds() {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		SymbolDictionary symbols = snapshot.getSymbols();
+
+		assertThat(symbols.size()).isEqualTo(snapshot.symbolCount()).isEqualTo(5);
+		for (int id = 0; id < symbols.size(); id++) {
+			String symbol = symbols.symbolOf(id);
+			assertThat(symbols.idOf(symbol)).isEqualTo(id);
+			assertThat(symbols.idOf(symbol.toLowerCase())).isEqualTo(id);
+			assertThat(snapshot.getSeries(id).getSymbol()).isEqualTo(symbol);
+		}
+
+		assertThat(symbols.idOf("bTc")).isEqualTo(symbols.idOf("BTC"));
+		assertThat(symbols.idOf("BTCX")).isEqualTo(SymbolDictionary.UNKNOWN);
+		assertThat(symbols.idOf("")).isEqualTo(SymbolDictionary.UNKNOWN);
+		assertThat(symbols.idOf(null)).isEqualTo(SymbolDictionary.UNKNOWN);
+	}
+
+	@Test
+	public void testSymbolIdsAreStableAcrossSnapshots() {
+		CryptoRepository repository = new CryptoRepository();
+		for (int i = 0; i < 100; i++) {
+			repository.append("SYM" + i, List.of(new CryptoRecord(Instant.ofEpochMilli(i), "SYM" + i, i)));
+		}
+		repository.append("SYM42", List.of(new CryptoRecord(Instant.ofEpochMilli(1000), "SYM42", 1.0)));
+
+		SymbolDictionary symbols = repository.getSnapshot().getSymbols();
+		assertThat(symbols.size()).isEqualTo(100);
+		for (int i = 0; i < 100; i++) {
+			assertThat(symbols.idOf("sym" + i)).isEqualTo(i);
+		}
+		assertThat(repository.getSnapshot().getSeries(42).size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testDailyRollupsArePrecomputedForConfiguredZones() {
+		PriceSeries btc = cryptoRepository.getSnapshot().getSeries("BTC");
+
+		assertThat(btc.getDailyRollup(ZoneId.of("UTC"))).isNotNull();
+		assertThat(btc.getDailyRollup(ZoneOffset.UTC)).isSameAs(btc.getDailyRollup(ZoneId.of("UTC")));
+		assertThat(btc.getDailyRollup(ZoneId.of("Europe/Berlin"))).isNotNull();
+		assertThat(btc.getDailyRollup(ZoneId.of("Australia/Sydney"))).isNull();
+
+		DailyRollup utc = btc.getDailyRollup(ZoneOffset.UTC);
+		int day = utc.indexOfDay(LocalDate.parse("2022-01-24"));
+		assertThat(utc.minPriceAt(day)).isEqualTo(33276.59);
+		assertThat(utc.maxPriceAt(day)).isEqualTo(36807.92);
+		assertThat(utc.indexOfDay(LocalDate.parse("2021-12-31"))).isEqualTo(-1);
+		assertThat(utc.endIndexAt(utc.dayCount() - 1)).isEqualTo(btc.size());
+	}
+
+	@Test
+	public void testDailyRollupsFollowAppendsAndSlices() {
+		List<ZoneId> zones = List.of(ZoneOffset.UTC, ZoneId.of("Europe/Berlin"), ZoneId.of("Australia/Sydney"));
+		PriceSeries series = PriceSeries.empty("BTC", zones);
+		Random random = new Random(5);
+		// spans the change to and from daylight saving time in Berlin
+		long newest = Instant.parse("2022-03-20T00:00:00Z").toEpochMilli();
+
+		for (int round = 0; round < 200; round++) {
+			List<CryptoRecord> records = new ArrayList<>();
+			for (int i = random.nextInt(30); i >= 0; i--) {
+				newest += random.nextInt(4) * 3_600_000L;
+				// now and then a late tick up to three days back
+				long timestamp = random.nextInt(10) == 0 ? newest - random.nextInt(72) * 3_600_000L : newest;
+				records.add(new CryptoRecord(Instant.ofEpochMilli(timestamp), "BTC", 100 + random.nextGaussian()));
+			}
+			series = series.append(records);
+			if (random.nextInt(8) == 0) {
+				int from = random.nextInt(series.size() / 3 + 1);
+				series = series.slice(from, series.size() - random.nextInt(series.size() - from + 1));
+			}
+
+			for (ZoneId zone : zones) {
+				DailyRollup rollup = series.getDailyRollup(zone);
+				DailyRollup expected = DailyRollup.of(series, zone);
+				assertThat(rollup.dayCount()).isEqualTo(expected.dayCount());
+				for (int day = 0; day < expected.dayCount(); day++) {
+					assertThat(rollup.dayAt(day)).isEqualTo(expected.dayAt(day));
+					assertThat(rollup.startIndexAt(day)).isEqualTo(expected.startIndexAt(day));
+					assertThat(rollup.endIndexAt(day)).isEqualTo(expected.endIndexAt(day));
+					assertThat(rollup.minPriceAt(day)).isEqualTo(expected.minPriceAt(day));
+					assertThat(rollup.maxPriceAt(day)).isEqualTo(expected.maxPriceAt(day));
+				}
+			}
+		}
+	}
 }
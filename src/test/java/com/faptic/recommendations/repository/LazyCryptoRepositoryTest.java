@@ -0,0 +1,119 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.service.CryptoService;
+import com.faptic.recommendations.service.leaderboard.LeaderboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// a budget of 20KB holds about two of the test series with their rollups
+@SpringBootTest(properties = {"faptic.loading.lazy=true", "faptic.loading.memory-budget=20KB"})
+public class LazyCryptoRepositoryTest {
+
+	private static final long BUDGET = 20 * 1024;
+
+	@Autowired
+	private CryptoRepository cryptoRepository;
+
+	@Autowired
+	private CryptoService cryptoService;
+
+	private SeriesCache<String> cache;
+
+	@BeforeEach
+	public void setUp() {
+		cache = cryptoRepository.getSnapshot().getLazySeries();
+	}
+
+	@Test
+	public void testSymbolsAreKnownWithoutBeingLoaded() {
+		assertThat(cache).isNotNull();
+		assertThat(cryptoRepository.getSnapshot().getSymbols().getSymbols()).containsExactlyInAnyOrder("BTC", "DOGE", "ETH", "LTC", "XRP");
+		assertThat(cryptoService.isKnownSymbol("doge")).isTrue();
+		assertThat(cryptoService.isKnownSymbol("BTCX")).isFalse();
+	}
+
+	@Test
+	public void testSeriesAreLoadedOnFirstUseAndEvictedWithinBudget() {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		for (int round = 0; round < 3; round++) {
+			for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+				assertThat(snapshot.getSeries(symbolId).getSymbol()).isEqualTo(snapshot.getSymbols().symbolOf(symbolId));
+				assertThat(cache.residentBytes()).isLessThanOrEqualTo(BUDGET);
+			}
+		}
+
+		assertThat(cache.residentCount()).isBetween(1, snapshot.symbolCount() - 1);
+		assertThat(cache.evictionCount()).isPositive();
+		// eviction does not change the data, so results and version keyed caches stay valid
+		assertThat(cryptoRepository.getSnapshot().getVersion()).isEqualTo(snapshot.getVersion());
+		assertThat(snapshot.getSeries("BTC").size()).isEqualTo(100);
+		assertThat(snapshot.getSeries("XRP").size()).isEqualTo(80);
+	}
+
+	@Test
+	public void testResidentSeriesIsNotReloaded() {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		PriceSeries first = snapshot.getSeries("ETH");
+		long loads = cache.loadCount();
+
+		assertThat(snapshot.getSeries("eth")).isSameAs(first);
+		assertThat(cache.loadCount()).isEqualTo(loads);
+	}
+
+	@Test
+	public void testStatsMatchEagerLoading() {
+		CryptoStats stats = cryptoService.getCryptoStatsForSymbol("BTC", Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-02-01T00:00:00Z"));
+
+		assertThat(stats.getMinPrice()).isEqualTo(33276.59);
+		assertThat(stats.getMaxPrice()).isEqualTo(47722.66);
+		assertThat(cryptoService.getAllCryptoStatsByNormalizedRange(Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-02-01T00:00:00Z")))
+				.extracting(CryptoStats::getSymbol)
+				.containsExactly("ETH", "XRP", "DOGE", "LTC", "BTC");
+	}
+
+	@Test
+	public void testAppendedSeriesStaysResident() {
+		cryptoRepository.append("LTC", List.of(new CryptoRecord(Instant.parse("2022-02-02T00:00:00Z"), "LTC", 100.0)));
+
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			snapshot.getSeries(symbolId);
+		}
+
+		assertThat(snapshot.getSeries("LTC").size()).isEqualTo(86);
+	}
+
+	@Test
+	public void testLeaderboardsAreBuiltOnFirstUse() throws Exception {
+		CryptoRepository repository = new CryptoRepository();
+		ReflectionTestUtils.setField(repository, "lazy", true);
+		repository.init();
+		LeaderboardService leaderboardService = new LeaderboardService(repository,
+				LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-31"), List.of("24h=PT24H"));
+		leaderboardService.init();
+		SeriesCache<String> lazySeries = repository.getSnapshot().getLazySeries();
+
+		assertThat(lazySeries.loadCount()).isZero();
+		// appends before the build are covered by it
+		CryptoSnapshot snapshot = repository.append("LTC", List.of(new CryptoRecord(Instant.parse("2022-01-15T00:00:00Z"), "LTC", 1000.0)));
+		assertThat(leaderboardService.getLeaderboard(snapshot, Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-01-31T00:00:00Z"))).isNull();
+
+		assertThat(leaderboardService.getLeaderboard(LeaderboardService.DEFAULT_WINDOW))
+				.extracting(CryptoStats::getSymbol)
+				.startsWith("LTC")
+				.hasSize(5);
+		assertThat(lazySeries.loadCount()).isPositive();
+		assertThat(leaderboardService.getLeaderboard(snapshot, Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-01-31T00:00:00Z"))).hasSize(5);
+	}
+}
@@ -0,0 +1,86 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersistentCryptoRepositoryTest {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void dataSurvivesARestart() throws Exception {
+		CryptoRepository first = repository();
+		first.init();
+		first.append("BTC", List.of(new CryptoRecord(Instant.parse("2022-02-10T00:00:00Z"), "BTC", 50000.0)));
+		first.flush();
+		// flushed ticks are in the cold tier, flushing again writes nothing twice
+		first.flush();
+		assertThat(first.getSnapshot().getHotSeries(first.getSnapshot().getSymbols().idOf("BTC")).size()).isZero();
+		// a crash while writing leaves a partial file, which is never reopened
+		Files.write(directory.resolve("BTC-0.seg.partial"), new byte[]{1, 2, 3});
+
+		CryptoRepository second = repository();
+		second.init();
+
+		CryptoSnapshot before = first.getSnapshot();
+		CryptoSnapshot after = second.getSnapshot();
+		assertThat(after.getSymbols().getSymbols()).containsExactlyInAnyOrderElementsOf(before.getSymbols().getSymbols());
+		for (String symbol : before.getSymbols().getSymbols()) {
+			int symbolId = after.getSymbols().idOf(symbol);
+			PriceSeries expected = before.getSeries(symbol);
+			PriceSeries actual = after.getSeries(symbolId);
+
+			// everything is read from disk, nothing from the CSV files
+			assertThat(after.getHotSeries(symbolId).size()).isZero();
+			assertThat(after.getColdTier(symbolId).size()).isEqualTo(expected.size());
+			assertThat(actual.size()).isEqualTo(expected.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertThat(actual.timestampAt(i)).isEqualTo(expected.timestampAt(i));
+				assertThat(actual.priceAt(i)).isEqualTo(expected.priceAt(i));
+			}
+		}
+		assertThat(after.getSeries("BTC").getNewest()).isEqualTo(Instant.parse("2022-02-10T00:00:00Z").toEpochMilli());
+	}
+
+	@Test
+	void segmentsAreOnlyKeptWhenPersistent() throws Exception {
+		CryptoRepository repository = repository();
+		ReflectionTestUtils.setField(repository, "persistent", false);
+		ReflectionTestUtils.setField(repository, "tiered", true);
+		repository.init();
+		repository.flush();
+
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files.map(file -> file.getFileName().toString())).isNotEmpty().noneMatch(name -> name.endsWith(ColdSegment.FILE_SUFFIX));
+		}
+	}
+
+	@Test
+	void persistentStorageRequiresAColdDirectory() {
+		CryptoRepository repository = repository();
+		ReflectionTestUtils.setField(repository, "coldDirectory", null);
+
+		assertThatThrownBy(repository::init).isInstanceOf(IllegalStateException.class).hasMessageContaining("cold-directory");
+	}
+
+	private CryptoRepository repository() {
+		CryptoRepository repository = new CryptoRepository();
+		ReflectionTestUtils.setField(repository, "persistent", true);
+		ReflectionTestUtils.setField(repository, "coldDirectory", directory);
+		ReflectionTestUtils.setField(repository, "hotWindow", Duration.ofDays(10));
+		return repository;
+	}
+}
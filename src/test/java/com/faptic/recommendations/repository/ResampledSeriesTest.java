@@ -0,0 +1,106 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.exception.GridTooLargeException;
+import com.faptic.recommendations.model.CryptoRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ResampledSeriesTest {
+
+	// ticks at 5, 10, 10, 40 and 47 ms
+	private final PriceSeries series = PriceSeries.of("BTC", List.of(
+			new CryptoRecord(Instant.ofEpochMilli(5), "BTC", 1.0),
+			new CryptoRecord(Instant.ofEpochMilli(10), "BTC", 2.0),
+			new CryptoRecord(Instant.ofEpochMilli(10), "BTC", 3.0),
+			new CryptoRecord(Instant.ofEpochMilli(40), "BTC", 6.0),
+			new CryptoRecord(Instant.ofEpochMilli(47), "BTC", 4.0)));
+
+	@Test
+	void forwardFillTakesTheLastPriceAtOrBeforeEachPoint() {
+		ResampledSeries grid = series.resample(10, 0, FillMethod.FORWARD);
+
+		assertThat(grid.size()).isEqualTo(4);
+		assertThat(grid.timeAt(0)).isEqualTo(10);
+		assertThat(grid.timeAt(3)).isEqualTo(40);
+		assertThat(new double[]{grid.priceAt(0), grid.priceAt(1), grid.priceAt(2), grid.priceAt(3)}).containsExactly(3.0, 3.0, 3.0, 6.0);
+	}
+
+	@Test
+	void linearFillInterpolatesBetweenTheSurroundingTicks() {
+		ResampledSeries grid = series.resample(10, 0, FillMethod.LINEAR);
+
+		assertThat(grid.priceAt(0)).isEqualTo(3.0);
+		assertThat(grid.priceAt(1)).isCloseTo(4.0, within(1e-12));
+		assertThat(grid.priceAt(2)).isCloseTo(5.0, within(1e-12));
+		assertThat(grid.priceAt(3)).isEqualTo(6.0);
+	}
+
+	@Test
+	void tickCountsMarkGaps() {
+		ResampledSeries grid = series.resample(10, 0, FillMethod.FORWARD);
+
+		// the tick at 5 ms precedes the first grid point
+		assertThat(new int[]{grid.tickCountAt(0), grid.tickCountAt(1), grid.tickCountAt(2), grid.tickCountAt(3)}).containsExactly(2, 0, 0, 2);
+	}
+
+	@Test
+	void gridsAreCachedPerStepOffsetAndFillMethod() {
+		ResampledSeries grid = series.resample(10, 0, FillMethod.FORWARD);
+
+		assertThat(series.resample(10, 30, FillMethod.FORWARD)).isSameAs(grid);
+		assertThat(series.resample(10, 5, FillMethod.FORWARD)).isNotSameAs(grid);
+		assertThat(series.resample(10, 0, FillMethod.LINEAR)).isNotSameAs(grid);
+		// appending creates a new series with its own grids
+		assertThat(series.append(List.of(new CryptoRecord(Instant.ofEpochMilli(50), "BTC", 5.0))).resample(10, 0, FillMethod.FORWARD).size()).isEqualTo(5);
+	}
+
+	@Test
+	void gridIndexesFollowTheGridPoints() {
+		ResampledSeries grid = series.resample(10, 0, FillMethod.FORWARD);
+
+		assertThat(grid.indexAtOrAfter(0)).isZero();
+		assertThat(grid.indexAtOrAfter(11)).isEqualTo(1);
+		assertThat(grid.indexAtOrAfter(100)).isEqualTo(4);
+		assertThat(grid.indexAfter(9)).isZero();
+		assertThat(grid.indexAfter(30)).isEqualTo(3);
+		assertThat(grid.indexAfter(100)).isEqualTo(4);
+	}
+
+	@Test
+	void tooFineGridsAreRejected() {
+		PriceSeries year = PriceSeries.of("BTC", List.of(
+				new CryptoRecord(Instant.parse("2022-01-01T00:00:00Z"), "BTC", 1.0),
+				new CryptoRecord(Instant.parse("2023-01-01T00:00:00Z"), "BTC", 1.0)));
+
+		assertThatThrownBy(() -> year.resample(1000, 0, FillMethod.FORWARD)).isInstanceOf(GridTooLargeException.class);
+	}
+
+	@Test
+	void theLimitOfRangeGridsAppliesToTheRange() {
+		PriceSeries year = PriceSeries.of("BTC", List.of(
+				new CryptoRecord(Instant.parse("2022-01-01T00:00:00Z"), "BTC", 1.0),
+				new CryptoRecord(Instant.parse("2022-06-01T00:00:30Z"), "BTC", 2.0),
+				new CryptoRecord(Instant.parse("2023-01-01T00:00:00Z"), "BTC", 3.0)));
+		long from = Instant.parse("2022-06-01T00:00:00Z").toEpochMilli();
+		long to = Instant.parse("2022-06-02T00:00:00Z").toEpochMilli();
+
+		ResampledSeries day = year.resample(1000, 0, FillMethod.FORWARD, from, to);
+
+		assertThat(day.size()).isEqualTo(86_401);
+		assertThat(day.timeAt(0)).isEqualTo(from);
+		assertThat(day.priceAt(29)).isEqualTo(1.0);
+		assertThat(day.priceAt(30)).isEqualTo(2.0);
+		assertThat(day.tickCountAt(30)).isEqualTo(1);
+		assertThat(day.tickCountAt(0)).isZero();
+		assertThatThrownBy(() -> year.resample(1000, 0, FillMethod.FORWARD, from, from + 1000 * ResampledSeries.MAX_POINTS))
+				.isInstanceOf(GridTooLargeException.class);
+		// within the limit the cached grid of the whole history serves any range
+		assertThat(series.resample(10, 0, FillMethod.FORWARD, 20, 30)).isSameAs(series.resample(10, 0, FillMethod.FORWARD));
+	}
+}
@@ -0,0 +1,126 @@
+package com.faptic.recommendations.repository;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.model.DailyHighestRange;
+import com.faptic.recommendations.service.CryptoService;
+import com.faptic.recommendations.service.leaderboard.LeaderboardService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// a ten day hot window moves roughly the first two thirds of January to the cold tier
+@SpringBootTest(properties = {"faptic.storage.tiered=true", "faptic.storage.hot-window=10d", "faptic.leaderboard.windows=24h=PT24H"})
+public class TieredCryptoRepositoryTest {
+
+	@Autowired
+	private CryptoRepository cryptoRepository;
+
+	@Autowired
+	private CryptoService cryptoService;
+
+	@Autowired
+	private LeaderboardService leaderboardService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	public void testHistoryIsMovedToTheColdTier() {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			PriceSeries hot = snapshot.getHotSeries(symbolId);
+			ColdTier cold = snapshot.getColdTier(symbolId);
+
+			assertThat(cold).isNotNull();
+			assertThat(cold.getNewest()).isLessThan(hot.timestampAt(0));
+			assertThat(snapshot.getSeries(symbolId).size()).isEqualTo(hot.size() + cold.size());
+		}
+		assertThat(snapshot.getSeries("BTC").size()).isEqualTo(100);
+		assertThat(snapshot.getSeries("XRP").size()).isEqualTo(80);
+	}
+
+	@Test
+	public void testStatsCombineBothTiers() {
+		List<Instant[]> ranges = List.of(
+				new Instant[]{Instant.parse("2022-01-05T00:00:00Z"), Instant.parse("2022-01-25T00:00:00Z")},
+				new Instant[]{Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-01-10T00:00:00Z")},
+				new Instant[]{Instant.parse("2022-01-25T00:00:00Z"), Instant.parse("2022-02-01T00:00:00Z")});
+
+		for (Instant[] range : ranges) {
+			List<CryptoStats> stats = cryptoService.getAllCryptoStatsByNormalizedRange(range[0], range[1], ZoneOffset.UTC);
+			CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+			for (CryptoStats symbolStats : stats) {
+				assertThat(symbolStats).isEqualTo(scan(snapshot.getSeries(symbolStats.getSymbol()), range[0], range[1]));
+			}
+			assertThat(stats).hasSize(snapshot.symbolCount());
+		}
+
+		double hot = meterRegistry.get("faptic.storage.tier.hits").tag("tier", "hot").counter().count();
+		double cold = meterRegistry.get("faptic.storage.tier.hits").tag("tier", "cold").counter().count();
+		assertThat(hot).isPositive();
+		assertThat(cold).isPositive();
+		assertThat(meterRegistry.get("faptic.storage.tier.hot.ratio").gauge().value()).isEqualTo(hot / (hot + cold));
+	}
+
+	@Test
+	public void testDailyWinnersSpanBothTiers() {
+		LocalDate startDay = LocalDate.parse("2022-01-01");
+		LocalDate endDay = LocalDate.parse("2022-01-31");
+
+		List<DailyHighestRange> days = cryptoService.getCryptosWithHighestRangeByDay(startDay, endDay, ZoneOffset.UTC);
+
+		assertThat(days).hasSize(31);
+		for (DailyHighestRange day : days) {
+			assertThat(day.getStats()).as("Day %s", day.getDate()).isEqualTo(cryptoService.getCryptoWithHighestRangeForDay(day.getDate(), ZoneOffset.UTC));
+		}
+	}
+
+	@Test
+	public void testAppendsGoToTheHotTier() {
+		Instant timestamp = Instant.parse("2022-02-10T00:00:00Z");
+		cryptoRepository.append("LTC", List.of(new CryptoRecord(timestamp, "LTC", 1000.0)));
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		int symbolId = snapshot.getSymbols().idOf("LTC");
+
+		assertThat(snapshot.getHotSeries(symbolId).timestampAt(snapshot.getHotSeries(symbolId).size() - 1)).isEqualTo(timestamp.toEpochMilli());
+		assertThat(snapshot.getSeries(symbolId).size()).isEqualTo(snapshot.getHotSeries(symbolId).size() + snapshot.getColdTier(symbolId).size());
+		assertThat(cryptoService.getCryptoStatsForSymbol("LTC", Instant.parse("2022-01-01T00:00:00Z"), timestamp).getMaxPrice()).isEqualTo(1000.0);
+	}
+
+	@Test
+	public void testAppendsDoNotMergeTheTiers() {
+		SeriesCache<TieredSeries> mergedSeries = cryptoRepository.getSnapshot().getMergedSeries();
+		long loads = mergedSeries.loadCount();
+
+		Instant timestamp = Instant.parse("2022-02-11T00:00:00Z");
+		cryptoRepository.append("LTC", List.of(new CryptoRecord(timestamp, "LTC", 900.0)));
+		// a late tick within the sliding window rebuilds the window of the crypto
+		cryptoRepository.append("LTC", List.of(new CryptoRecord(timestamp.minus(Duration.ofHours(1)), "LTC", 800.0)));
+
+		assertThat(mergedSeries.loadCount()).isEqualTo(loads);
+		assertThat(leaderboardService.getLeaderboard("24h"))
+				.contains(new CryptoStats("LTC", timestamp.minus(Duration.ofHours(1)), timestamp, 800.0, 900.0));
+	}
+
+	private static CryptoStats scan(PriceSeries series, Instant startDate, Instant endDate) {
+		int from = series.indexAtOrAfter(startDate.toEpochMilli());
+		int to = series.indexAfter(endDate.toEpochMilli());
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			min = Math.min(min, series.priceAt(i));
+			max = Math.max(max, series.priceAt(i));
+		}
+		return new CryptoStats(series.getSymbol(), Instant.ofEpochMilli(series.timestampAt(from)), Instant.ofEpochMilli(series.timestampAt(to - 1)), min, max);
+	}
+}
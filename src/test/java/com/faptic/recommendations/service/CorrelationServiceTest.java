@@ -0,0 +1,110 @@
+package com.faptic.recommendations.service;
+
+import com.faptic.recommendations.exception.GridTooLargeException;
+import com.faptic.recommendations.model.CorrelationMatrix;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.PriceSeries;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+class CorrelationServiceTest {
+
+	@Autowired
+	private CorrelationService correlationService;
+
+	@Autowired
+	private CryptoRepository cryptoRepository;
+
+	@Test
+	void getCorrelationMatrix() {
+		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
+		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
+
+		CorrelationMatrix matrix = correlationService.getCorrelationMatrix(startDate, endDate, Duration.ofHours(12));
+
+		assertThat(matrix.getSymbols()).containsExactlyInAnyOrder("BTC", "DOGE", "ETH", "LTC", "XRP");
+		// the grid starts once every series has a price
+		assertThat(matrix.getStartDate()).isEqualTo(Instant.parse("2022-01-01T08:00:00Z"));
+		assertThat(matrix.getObservations()).isEqualTo(61);
+
+		double[][] correlations = matrix.getCorrelations();
+		for (int i = 0; i < correlations.length; i++) {
+			assertThat(correlations[i][i]).isCloseTo(1.0, within(1e-9));
+			for (int j = 0; j < correlations.length; j++) {
+				assertThat(correlations[i][j]).isEqualTo(correlations[j][i]).isBetween(-1.0, 1.0);
+				assertThat(correlations[i][j]).isCloseTo(naiveCorrelation(matrix, i, j), within(1e-9));
+			}
+		}
+	}
+
+	@Test
+	void getCorrelationMatrixIsCachedPerRange() {
+		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
+		Instant endDate = Instant.parse("2022-01-15T00:00:00Z");
+
+		CorrelationMatrix first = correlationService.getCorrelationMatrix(startDate, endDate, Duration.ofDays(1));
+		CorrelationMatrix second = correlationService.getCorrelationMatrix(startDate, endDate, Duration.ofDays(1));
+		CorrelationMatrix otherInterval = correlationService.getCorrelationMatrix(startDate, endDate, Duration.ofHours(6));
+
+		assertThat(second).isSameAs(first);
+		assertThat(otherInterval).isNotSameAs(first);
+	}
+
+	@Test
+	void getCorrelationMatrixWithoutEnoughData() {
+		assertThat(correlationService.getCorrelationMatrix(Instant.parse("2023-01-01T00:00:00Z"), Instant.parse("2023-02-01T00:00:00Z"), Duration.ofDays(1))).isNull();
+		assertThat(correlationService.getCorrelationMatrix(Instant.parse("2022-01-10T00:00:00Z"), Instant.parse("2022-01-11T00:00:00Z"), Duration.ofDays(1))).isNull();
+	}
+
+	@Test
+	void getCorrelationMatrixRejectsTooLargeGrids() {
+		assertThatThrownBy(() -> correlationService.getCorrelationMatrix(Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-02-01T00:00:00Z"), Duration.ofMillis(1)))
+				.isInstanceOf(GridTooLargeException.class);
+	}
+
+	// textbook two-pass Pearson correlation over the same as-of grid
+	private double naiveCorrelation(CorrelationMatrix matrix, int i, int j) {
+		double[] x = gridReturns(matrix, matrix.getSymbols().get(i));
+		double[] y = gridReturns(matrix, matrix.getSymbols().get(j));
+
+		double meanX = 0;
+		double meanY = 0;
+		for (int k = 0; k < x.length; k++) {
+			meanX += x[k] / x.length;
+			meanY += y[k] / y.length;
+		}
+
+		double covariance = 0;
+		double varianceX = 0;
+		double varianceY = 0;
+		for (int k = 0; k < x.length; k++) {
+			covariance += (x[k] - meanX) * (y[k] - meanY);
+			varianceX += (x[k] - meanX) * (x[k] - meanX);
+			varianceY += (y[k] - meanY) * (y[k] - meanY);
+		}
+		return covariance / Math.sqrt(varianceX * varianceY);
+	}
+
+	private double[] gridReturns(CorrelationMatrix matrix, String symbol) {
+		PriceSeries series = cryptoRepository.getSnapshot().getSeries(symbol);
+		long start = matrix.getStartDate().toEpochMilli();
+		long step = Duration.ofHours(12).toMillis();
+
+		double[] returns = new double[matrix.getObservations()];
+		for (int k = 0; k < returns.length; k++) {
+			double previous = series.priceAt(series.indexAfter(start + k * step) - 1);
+			double current = series.priceAt(series.indexAfter(start + (k + 1) * step) - 1);
+			returns[k] = Math.log(current / previous);
+		}
+		return returns;
+	}
+}
@@ -1,18 +1,36 @@
 package com.faptic.recommendations.service;
 
 import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.model.DailyHighestRange;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @SpringBootTest
 class CryptoServiceTest {
@@ -20,6 +38,9 @@ class CryptoServiceTest {
 	@Autowired
 	private CryptoService cryptoService;
 
+	@SpyBean
+	private QueryAdmissionService queryAdmissionService;
+
 	@Test
 	void getAllCryptoStatsByNormalizedRange() {
 		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
@@ -381,4 +402,111 @@ class CryptoServiceTest {
 		assertThat(cryptoService.isKnownSymbol("ETH")).isTrue();
 		assertThat(cryptoService.isKnownSymbol("OTHER")).isFalse();
 	}
-}
\ No newline at end of file
+
+	@Test
+	void getCryptoStatsForSymbolIgnoresCase() {
+		Instant startDate = Instant.parse("2022-01-01T00:00:00Z");
+		Instant endDate = Instant.parse("2022-02-01T00:00:00Z");
+
+		assertThat(cryptoService.isKnownSymbol("xrp")).isTrue();
+		assertThat(cryptoService.getSymbolId("xrp")).isEqualTo(cryptoService.getSymbolId("XRP"));
+		assertThat(cryptoService.getCryptoStatsForSymbol("xrp", startDate, endDate))
+				.isEqualTo(cryptoService.getCryptoStatsForSymbol("XRP", startDate, endDate))
+				.extracting(CryptoStats::getSymbol).isEqualTo("XRP");
+	}
+
+	@Test
+	void getCryptoWithHighestRangeForDayInZone() {
+		// Europe/Berlin is precomputed, in January it has the same day boundaries as the plain +01:00 offset
+		ZoneId berlin = ZoneId.of("Europe/Berlin");
+		ZoneId offset = ZoneOffset.ofHours(1);
+
+		for (LocalDate day = LocalDate.parse("2021-12-31"); day.isBefore(LocalDate.parse("2022-02-02")); day = day.plusDays(1)) {
+			CryptoStats fromRollup = cryptoService.getCryptoWithHighestRangeForDay(day, berlin);
+			CryptoStats fromScan = cryptoService.getCryptoWithHighestRangeForDay(day, offset);
+
+			assertThat(fromRollup).as("Day %s", day).isEqualTo(fromScan);
+		}
+
+		CryptoStats newYear = cryptoService.getCryptoWithHighestRangeForDay(LocalDate.parse("2022-01-01"), berlin);
+		assertThat(newYear.getOldestTimestamp()).isAfterOrEqualTo(Instant.parse("2021-12-31T23:00:00Z"));
+		assertThat(newYear.getNewestTimestamp()).isBefore(Instant.parse("2022-01-01T23:00:00Z"));
+	}
+
+	@Test
+	void getCryptosWithHighestRangeByDayMatchesSingleDays() {
+		LocalDate startDay = LocalDate.parse("2021-12-30");
+		LocalDate endDay = LocalDate.parse("2022-02-02");
+
+		// Europe/Berlin is read from the rollups, the plain offset is scanned
+		for (ZoneId zone : List.of(ZoneOffset.UTC, ZoneId.of("Europe/Berlin"), ZoneOffset.ofHours(1), ZoneId.of("Asia/Kolkata"))) {
+			List<DailyHighestRange> days = cryptoService.getCryptosWithHighestRangeByDay(startDay, endDay, zone);
+
+			List<DailyHighestRange> expected = new ArrayList<>();
+			for (LocalDate day = startDay; !day.isAfter(endDay); day = day.plusDays(1)) {
+				CryptoStats highest = cryptoService.getCryptoWithHighestRangeForDay(day, zone);
+				if (highest != null) {
+					expected.add(new DailyHighestRange(day, highest));
+				}
+			}
+			assertThat(days).as("Zone %s", zone).isNotEmpty().isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void getCryptosWithHighestRangeByDayIsLimitedToTheDaysWithData() {
+		assertThat(cryptoService.getCryptosWithHighestRangeByDay(LocalDate.parse("2015-01-01"), LocalDate.parse("2024-12-31"), ZoneOffset.UTC))
+				.isNotEmpty()
+				.isEqualTo(cryptoService.getCryptosWithHighestRangeByDay(LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-31"), ZoneOffset.UTC));
+	}
+
+	@Test
+	void getCryptosWithHighestRangeByDayWithoutData() {
+		assertThat(cryptoService.getCryptosWithHighestRangeByDay(LocalDate.parse("2021-12-01"), LocalDate.parse("2021-12-31"), ZoneOffset.UTC))
+				.isEmpty();
+	}
+
+	@Test
+	void getAllCryptoStatsByNormalizedRangeInZone() {
+		ZoneId berlin = ZoneId.of("Europe/Berlin");
+		ZoneId offset = ZoneOffset.ofHours(1);
+		Instant startDate = LocalDate.parse("2022-01-03").atStartOfDay(berlin).toInstant();
+		Instant endDate = Instant.parse("2022-01-20T13:00:00Z");
+
+		assertThat(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate, berlin))
+				.isNotEmpty()
+				.isEqualTo(cryptoService.getAllCryptoStatsByNormalizedRange(startDate, endDate, offset));
+	}
+
+	@Test
+	void concurrentIdenticalQueriesTakeOneLaneSlot() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			release.await();
+			return invocation.callRealMethod();
+		}).when(queryAdmissionService).execute(anyLong(), any());
+
+		ExecutorService callers = Executors.newFixedThreadPool(4);
+		try {
+			List<Thread> callerThreads = new CopyOnWriteArrayList<>();
+			List<Future<CryptoStats>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(callers.submit(() -> {
+					callerThreads.add(Thread.currentThread());
+					return cryptoService.getCryptoWithHighestRangeForDay(LocalDate.parse("2022-01-05"), ZoneOffset.UTC);
+				}));
+			}
+			// the leader waits for its lane, the followers for the leader, none of them on a lane of their own
+			await().until(() -> callerThreads.size() == 4 && callerThreads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING));
+			release.countDown();
+
+			CryptoStats expected = results.get(0).get(5, TimeUnit.SECONDS);
+			for (Future<CryptoStats> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).isNotNull().isEqualTo(expected);
+			}
+			verify(queryAdmissionService, times(1)).execute(anyLong(), any());
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+}
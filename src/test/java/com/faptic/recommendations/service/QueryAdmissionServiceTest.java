@@ -0,0 +1,93 @@
+package com.faptic.recommendations.service;
+
+import com.faptic.recommendations.exception.QueryRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class QueryAdmissionServiceTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	// one thread per lane; the cheap lane sheds at a queue depth of 1, the expensive lane only rejects when full
+	private final QueryAdmissionService admission = new QueryAdmissionService(meterRegistry, 100, 2, 1, 5, 1, 1, 1, 5);
+
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void tearDown() {
+		callers.shutdownNow();
+		admission.shutdown();
+	}
+
+	@Test
+	void queriesRunOnTheLaneMatchingTheirCost() {
+		String cheapThread = admission.execute(10, () -> Thread.currentThread().getName());
+		String expensiveThread = admission.execute(100, () -> Thread.currentThread().getName());
+
+		assertThat(cheapThread).startsWith("query-cheap-");
+		assertThat(expensiveThread).startsWith("query-expensive-");
+		assertThat(meterRegistry.get("faptic.admission.wait").tag("lane", "cheap").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void exceptionsOfTheQueryAreRethrown() {
+		assertThatThrownBy(() -> admission.execute(10, () -> {
+			throw new IllegalArgumentException("boom");
+		})).isInstanceOf(IllegalArgumentException.class).hasMessage("boom");
+	}
+
+	@Test
+	void cheapLaneShedsOnceTheQueueReachesItsThreshold() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Future<?> running = callers.submit(() -> admission.execute(10, () -> release.await(10, TimeUnit.SECONDS)));
+		await().until(() -> gauge("faptic.admission.active", "cheap") == 1);
+		Future<?> queued = callers.submit(() -> admission.execute(10, () -> true));
+		await().until(() -> gauge("faptic.admission.queue.depth", "cheap") == 1);
+
+		assertThatThrownBy(() -> admission.execute(10, () -> true))
+				.isInstanceOfSatisfying(QueryRejectedException.class, e -> {
+					assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+					assertThat(e.getRetryAfterSeconds()).isEqualTo(2);
+				});
+		// the expensive lane is not affected
+		assertThat(admission.execute(100, () -> true)).isTrue();
+
+		release.countDown();
+		running.get();
+		queued.get();
+		assertThat(meterRegistry.get("faptic.admission.rejected").tag("lane", "cheap").tag("reason", "shed").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void saturatedLaneRejects() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Future<?> running = callers.submit(() -> admission.execute(100, () -> release.await(10, TimeUnit.SECONDS)));
+		await().until(() -> gauge("faptic.admission.active", "expensive") == 1);
+		Future<?> queued = callers.submit(() -> admission.execute(100, () -> true));
+		await().until(() -> gauge("faptic.admission.queue.depth", "expensive") == 1);
+
+		assertThatThrownBy(() -> admission.execute(100, () -> true))
+				.isInstanceOfSatisfying(QueryRejectedException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+		release.countDown();
+		running.get();
+		queued.get();
+		assertThat(meterRegistry.get("faptic.admission.rejected").tag("lane", "expensive").tag("reason", "saturated").counter().count()).isEqualTo(1);
+	}
+
+	private double gauge(String name, String lane) {
+		return meterRegistry.get(name).tag("lane", lane).gauge().value();
+	}
+}
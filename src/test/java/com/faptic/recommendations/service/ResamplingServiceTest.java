@@ -0,0 +1,76 @@
+package com.faptic.recommendations.service;
+
+import com.faptic.recommendations.model.ResampledPrices;
+import com.faptic.recommendations.model.SeriesCoverage;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.FillMethod;
+import com.faptic.recommendations.repository.PriceSeries;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ResamplingServiceTest {
+
+	private static final Instant START = Instant.parse("2022-01-01T00:00:00Z");
+	private static final Instant END = Instant.parse("2022-02-01T00:00:00Z");
+
+	@Autowired
+	private ResamplingService resamplingService;
+
+	@Autowired
+	private CryptoRepository cryptoRepository;
+
+	@Test
+	void getResampledPricesForwardFillsOnTheGrid() {
+		int symbolId = cryptoRepository.getSnapshot().getSymbols().idOf("BTC");
+		PriceSeries series = cryptoRepository.getSnapshot().getSeries(symbolId);
+		Duration interval = Duration.ofHours(6);
+
+		ResampledPrices prices = resamplingService.getResampledPrices(symbolId, START, END, interval, FillMethod.FORWARD);
+
+		// the first BTC tick is at 04:00
+		assertThat(prices.getStartDate()).isEqualTo(Instant.parse("2022-01-01T06:00:00Z"));
+		for (int k = 0; k < prices.getPrices().length; k++) {
+			long time = prices.getStartDate().plus(interval.multipliedBy(k)).toEpochMilli();
+			assertThat(prices.getPrices()[k]).isEqualTo(series.priceAt(series.indexAfter(time) - 1));
+		}
+	}
+
+	@Test
+	void getResampledPricesOutsideTheData() {
+		int symbolId = cryptoRepository.getSnapshot().getSymbols().idOf("BTC");
+
+		assertThat(resamplingService.getResampledPrices(symbolId, Instant.parse("2023-01-01T00:00:00Z"), Instant.parse("2023-02-01T00:00:00Z"),
+				Duration.ofHours(1), FillMethod.LINEAR)).isNull();
+	}
+
+	@Test
+	void getCoverageMatchesABruteForceCount() {
+		Duration interval = Duration.ofHours(12);
+
+		List<SeriesCoverage> coverage = resamplingService.getCoverage(START, END, interval);
+
+		assertThat(coverage).extracting(SeriesCoverage::getSymbol).containsExactlyInAnyOrder("BTC", "DOGE", "ETH", "LTC", "XRP");
+		for (SeriesCoverage symbolCoverage : coverage) {
+			PriceSeries series = cryptoRepository.getSnapshot().getSeries(symbolCoverage.getSymbol());
+			int covered = 0;
+			int ticks = 0;
+			for (Instant point = symbolCoverage.getStartDate(); !point.isAfter(symbolCoverage.getEndDate()); point = point.plus(interval)) {
+				int count = series.indexAtOrAfter(point.plus(interval).toEpochMilli()) - series.indexAtOrAfter(point.toEpochMilli());
+				ticks += count;
+				covered += count > 0 ? 1 : 0;
+			}
+			assertThat(symbolCoverage.getTicks()).isEqualTo(ticks);
+			assertThat(symbolCoverage.getCoveredIntervals()).isEqualTo(covered);
+			assertThat(symbolCoverage.getCoverage()).isBetween(0.0, 1.0);
+			assertThat(symbolCoverage.getLongestGap()).isLessThanOrEqualTo(interval.multipliedBy(symbolCoverage.getIntervals() - covered));
+		}
+	}
+}
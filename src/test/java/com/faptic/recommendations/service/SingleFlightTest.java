@@ -0,0 +1,105 @@
+package com.faptic.recommendations.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class SingleFlightTest {
+
+	private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+	private final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+	@AfterEach
+	void tearDown() {
+		callers.shutdownNow();
+	}
+
+	@Test
+	void concurrentIdenticalCallsShareOneComputation() throws Exception {
+		AtomicInteger computations = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<Object> leader = callers.submit(() -> singleFlight.execute("stats", () -> {
+			computations.incrementAndGet();
+			awaitQuietly(release);
+			return new Object();
+		}));
+		await().until(() -> singleFlight.size() == 1);
+
+		List<Future<Object>> followers = new ArrayList<>();
+		List<Thread> followerThreads = new CopyOnWriteArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			followers.add(callers.submit(() -> {
+				followerThreads.add(Thread.currentThread());
+				return singleFlight.execute("stats", () -> {
+					computations.incrementAndGet();
+					return new Object();
+				});
+			}));
+		}
+		// release the leader only once every follower is parked on the shared flight
+		await().until(() -> followerThreads.size() == 7 && followerThreads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING));
+		release.countDown();
+
+		Object result = leader.get();
+		for (Future<Object> follower : followers) {
+			assertThat(follower.get()).isSameAs(result);
+		}
+		assertThat(computations).hasValue(1);
+		assertThat(singleFlight.size()).isZero();
+	}
+
+	@Test
+	void differentKeysAndLaterCallsComputeAgain() {
+		Object first = singleFlight.execute("a", Object::new);
+		Object second = singleFlight.execute("a", Object::new);
+		Object other = singleFlight.execute("b", Object::new);
+
+		assertThat(second).isNotSameAs(first);
+		assertThat(other).isNotSameAs(first);
+	}
+
+	@Test
+	void failuresArePropagatedToEveryWaitingCaller() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<Object> leader = callers.submit(() -> singleFlight.execute("stats", () -> {
+			awaitQuietly(release);
+			throw new IllegalStateException("scan failed");
+		}));
+		await().until(() -> singleFlight.size() == 1);
+		List<Thread> followerThreads = new CopyOnWriteArrayList<>();
+		Future<Object> follower = callers.submit(() -> {
+			followerThreads.add(Thread.currentThread());
+			return singleFlight.execute("stats", Object::new);
+		});
+		await().until(() -> followerThreads.size() == 1 && followerThreads.get(0).getState() == Thread.State.WAITING);
+		release.countDown();
+
+		assertThatThrownBy(leader::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(follower::get).isInstanceOf(ExecutionException.class).hasRootCauseMessage("scan failed");
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
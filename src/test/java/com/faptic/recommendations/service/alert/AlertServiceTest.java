@@ -0,0 +1,269 @@
+package com.faptic.recommendations.service.alert;
+
+import com.faptic.recommendations.exception.InvalidAlertException;
+import com.faptic.recommendations.exception.SymbolNotFoundException;
+import com.faptic.recommendations.model.AlertType;
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.PriceAlert;
+import com.faptic.recommendations.repository.CryptoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class AlertServiceTest {
+
+	private static final Instant START = Instant.parse("2022-01-01T00:00:00Z");
+
+	private CryptoRepository repository;
+	private SimpleMeterRegistry meterRegistry;
+	private AlertService alertService;
+
+	@BeforeEach
+	void setUp() {
+		repository = new CryptoRepository();
+		meterRegistry = new SimpleMeterRegistry();
+		alertService = new AlertService(repository, meterRegistry);
+		alertService.init();
+		append(0, 100);
+	}
+
+	@AfterEach
+	void tearDown() {
+		alertService.shutdown();
+	}
+
+	@Test
+	void priceAlertsFireOnEveryCrossing() throws InterruptedException {
+		BlockingQueue<PriceAlert> alerts = new LinkedBlockingQueue<>();
+		alertService.subscribe("btc", List.of(AlertCondition.priceAbove(110), AlertCondition.priceBelow(90)), alerts::add);
+
+		append(1, 105);
+		append(2, 112);
+		append(3, 115);
+		// falling back below the level re-arms it
+		append(4, 108);
+		append(5, 110);
+		append(6, 85);
+
+		assertThat(next(alerts)).extracting(PriceAlert::getType, PriceAlert::getPrice, PriceAlert::getTimestamp)
+				.containsExactly(AlertType.PRICE_ABOVE, 112.0, hour(2));
+		assertThat(next(alerts)).extracting(PriceAlert::getType, PriceAlert::getPrice, PriceAlert::getTimestamp)
+				.containsExactly(AlertType.PRICE_ABOVE, 110.0, hour(5));
+		assertThat(next(alerts)).extracting(PriceAlert::getType, PriceAlert::getPrice, PriceAlert::getTimestamp, PriceAlert::getSymbol)
+				.containsExactly(AlertType.PRICE_BELOW, 85.0, hour(6), "BTC");
+		assertThat(alerts.poll(200, TimeUnit.MILLISECONDS)).isNull();
+	}
+
+	@Test
+	void rangeAlertsFollowTheTrailingWindow() throws InterruptedException {
+		BlockingQueue<PriceAlert> alerts = new LinkedBlockingQueue<>();
+		alertService.subscribe("BTC", List.of(AlertCondition.rangeAbove(0.1, Duration.ofHours(3))), alerts::add);
+
+		append(1, 105);
+		append(2, 111);
+		// the 100 at hour 0 leaves the window at hour 3, the 105 at hour 4
+		append(3, 111);
+		append(4, 111);
+		append(5, 111);
+		append(6, 123);
+
+		PriceAlert first = next(alerts);
+		assertThat(first.getTimestamp()).isEqualTo(hour(2));
+		assertThat(first.getNormalizedRange()).isCloseTo(0.11, within(1e-9));
+		assertThat(first.getWindow()).isEqualTo(Duration.ofHours(3));
+		assertThat(next(alerts).getTimestamp()).isEqualTo(hour(6));
+		assertThat(alerts.poll(200, TimeUnit.MILLISECONDS)).isNull();
+	}
+
+	@Test
+	void backfilledTicksAndCancelledSubscriptionsDoNotAlert() throws InterruptedException {
+		BlockingQueue<PriceAlert> alerts = new LinkedBlockingQueue<>();
+		AlertSubscription subscription = alertService.subscribe("BTC", List.of(AlertCondition.priceAbove(110)), alerts::add);
+		assertThat(meterRegistry.get("faptic.alerts.conditions").gauge().value()).isEqualTo(1);
+
+		repository.append("BTC", List.of(new CryptoRecord(START.minusSeconds(60), "BTC", 200)));
+		assertThat(alerts.poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+		subscription.cancel();
+		append(1, 200);
+		assertThat(alerts.poll(200, TimeUnit.MILLISECONDS)).isNull();
+		assertThat(meterRegistry.get("faptic.alerts.conditions").gauge().value()).isZero();
+	}
+
+	@Test
+	void indexedConditionsMatchEvaluatingEverySubscription() throws InterruptedException {
+		Random random = new Random(42);
+		List<PriceAlert> delivered = Collections.synchronizedList(new ArrayList<>());
+		List<AlertCondition> conditions = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			AlertCondition condition = switch (random.nextInt(3)) {
+				case 0 -> AlertCondition.priceAbove(80 + random.nextInt(40));
+				case 1 -> AlertCondition.priceBelow(80 + random.nextInt(40));
+				default -> AlertCondition.rangeAbove(random.nextInt(20) / 100.0, Duration.ofHours(1 + random.nextInt(12)));
+			};
+			conditions.add(condition);
+			alertService.subscribe("BTC", List.of(condition), delivered::add);
+		}
+
+		List<Double> prices = new ArrayList<>(List.of(100.0));
+		for (int hour = 1; hour <= 300; hour++) {
+			double price = Math.round(Math.max(50, prices.get(prices.size() - 1) + random.nextGaussian() * 3));
+			prices.add(price);
+			append(hour, price);
+		}
+
+		long expected = 0;
+		for (AlertCondition condition : conditions) {
+			for (int hour = 1; hour < prices.size(); hour++) {
+				if (crossed(condition, prices, hour)) {
+					expected++;
+				}
+			}
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (delivered.size() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(100);
+		assertThat(expected).isPositive();
+		assertThat(delivered).hasSize((int) expected);
+	}
+
+	@Test
+	void invalidSubscriptionsAreRejected() {
+		assertThatThrownBy(() -> alertService.subscribe("NOPE", List.of(AlertCondition.priceAbove(1)), alert -> {
+		})).isInstanceOf(SymbolNotFoundException.class);
+		assertThatThrownBy(() -> alertService.subscribe("BTC", List.of(), alert -> {
+		})).isInstanceOf(InvalidAlertException.class);
+		assertThatThrownBy(() -> alertService.subscribe("BTC", List.of(AlertCondition.rangeAbove(0.1, Duration.ZERO)), alert -> {
+		})).isInstanceOf(InvalidAlertException.class);
+		assertThatThrownBy(() -> alertService.subscribe("BTC", List.of(AlertCondition.priceAbove(Double.NaN)), alert -> {
+		})).isInstanceOf(InvalidAlertException.class);
+	}
+
+	@Test
+	void slowSubscribersAreDroppedWithoutHoldingUpOthers() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch dropped = new CountDownLatch(1);
+		AlertSubscription slow = alertService.subscribe("BTC", List.of(AlertCondition.priceAbove(100)), alert -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		slow.whenDropped(dropped::countDown);
+		BlockingQueue<PriceAlert> alerts = new LinkedBlockingQueue<>();
+		alertService.subscribe("BTC", List.of(AlertCondition.priceAbove(100)), alerts::add);
+
+		try {
+			// every other tick crosses the level, the slow subscriber takes none of the alerts after the first
+			int crossings = AlertSubscription.MAX_PENDING_ALERTS + 4;
+			for (int hour = 1; hour <= 2 * crossings; hour++) {
+				append(hour, hour % 2 == 0 ? 105 : 95);
+			}
+
+			assertThat(dropped.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(slow.isCancelled()).isTrue();
+			for (int i = 0; i < crossings; i++) {
+				assertThat(next(alerts).getTimestamp()).isEqualTo(hour(2 * (i + 1)));
+			}
+			assertThat(meterRegistry.get("faptic.alerts.dropped").counter().count()).isEqualTo(1.0);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void subscribersAreToldOfTheSubscriptionBeforeAnyAlert() throws InterruptedException {
+		BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+		AlertSubscription subscription = alertService.subscribe("BTC", List.of(AlertCondition.priceAbove(110)), events::add, subscribed -> {
+			// a tick crossing the level right after registering, while the subscriber is being told
+			append(1, 115);
+			try {
+				assertThat(events.poll(200, TimeUnit.MILLISECONDS)).isNull();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			events.add(subscribed.getId());
+		});
+		append(2, 105);
+		append(3, 120);
+
+		assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(subscription.getId());
+		assertThat(events.poll(5, TimeUnit.SECONDS)).isInstanceOfSatisfying(PriceAlert.class,
+				alert -> assertThat(alert.getTimestamp()).isEqualTo(hour(1)));
+		assertThat(events.poll(5, TimeUnit.SECONDS)).isInstanceOfSatisfying(PriceAlert.class,
+				alert -> assertThat(alert.getTimestamp()).isEqualTo(hour(3)));
+	}
+
+	@Test
+	void aFailingSubscribedCallbackCancelsTheSubscription() {
+		List<AlertSubscription> subscriptions = new ArrayList<>();
+
+		assertThatThrownBy(() -> alertService.subscribe("BTC", List.of(AlertCondition.priceAbove(110)), alert -> {
+		}, subscription -> {
+			subscriptions.add(subscription);
+			throw new IllegalStateException("closed");
+		})).isInstanceOf(IllegalStateException.class);
+		assertThat(subscriptions).singleElement().satisfies(subscription -> assertThat(subscription.isCancelled()).isTrue());
+		assertThat(meterRegistry.get("faptic.alerts.conditions").gauge().value()).isZero();
+	}
+
+	// brute force: compares the values before and after the tick of the given hour
+	private static boolean crossed(AlertCondition condition, List<Double> prices, int hour) {
+		double previous = prices.get(hour - 1);
+		double price = prices.get(hour);
+		return switch (condition.type()) {
+			case PRICE_ABOVE -> previous < condition.threshold() && condition.threshold() <= price;
+			case PRICE_BELOW -> previous > condition.threshold() && condition.threshold() >= price;
+			case RANGE_ABOVE -> {
+				double before = range(prices, hour - 1, condition.window());
+				double after = range(prices, hour, condition.window());
+				yield before < condition.threshold() && condition.threshold() <= after;
+			}
+		};
+	}
+
+	// normalized range of the hourly prices in (hour - window, hour]
+	private static double range(List<Double> prices, int hour, Duration window) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int h = hour; h >= 0 && h > hour - window.toHours(); h--) {
+			min = Math.min(min, prices.get(h));
+			max = Math.max(max, prices.get(h));
+		}
+		return (max - min) / min;
+	}
+
+	private void append(int hour, double price) {
+		repository.append("BTC", List.of(new CryptoRecord(hour(hour), "BTC", price)));
+	}
+
+	private static Instant hour(int hour) {
+		return START.plus(Duration.ofHours(hour));
+	}
+
+	private static PriceAlert next(BlockingQueue<PriceAlert> alerts) throws InterruptedException {
+		PriceAlert alert = alerts.poll(5, TimeUnit.SECONDS);
+		assertThat(alert).as("alert").isNotNull();
+		return alert;
+	}
+}
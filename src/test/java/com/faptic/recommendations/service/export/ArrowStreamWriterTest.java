@@ -0,0 +1,124 @@
+package com.faptic.recommendations.service.export;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.repository.PriceSeries;
+import org.apache.arrow.flatbuf.DictionaryBatch;
+import org.apache.arrow.flatbuf.Field;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.Timestamp;
+import org.apache.arrow.flatbuf.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArrowStreamWriterTest {
+
+	@Test
+	void writesSchemaDictionaryAndBatches() throws Exception {
+		PriceSeries btc = series("BTC", 5);
+		// larger than the writer's buffer, so columns are copied in several chunks
+		PriceSeries eth = series("ETH", 20_000);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrowStreamWriter writer = new ArrowStreamWriter(out);
+		writer.writeSchema();
+		writer.writeDictionary(List.of("BTC", "ETH"));
+		writer.writeBatch(0, btc, 1, 4);
+		writer.writeBatch(1, eth, 0, eth.size());
+		writer.writeEnd();
+
+		ByteBuffer stream = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+
+		Message schemaMessage = readMessage(stream);
+		assertThat(schemaMessage.headerType()).isEqualTo(MessageHeader.Schema);
+		Schema schema = (Schema) schemaMessage.header(new Schema());
+		assertThat(schema.fieldsLength()).isEqualTo(3);
+		Field symbol = schema.fields(0);
+		assertThat(symbol.name()).isEqualTo("symbol");
+		assertThat(symbol.typeType()).isEqualTo(Type.Utf8);
+		assertThat(symbol.dictionary().indexType().bitWidth()).isEqualTo(32);
+		assertThat(schema.fields(1).name()).isEqualTo("timestamp");
+		assertThat(((Timestamp) schema.fields(1).type(new Timestamp())).timezone()).isEqualTo("UTC");
+		assertThat(schema.fields(2).typeType()).isEqualTo(Type.FloatingPoint);
+
+		Message dictionaryMessage = readMessage(stream);
+		DictionaryBatch dictionary = (DictionaryBatch) dictionaryMessage.header(new DictionaryBatch());
+		ByteBuffer dictionaryBody = readBody(stream, dictionaryMessage);
+		RecordBatch symbols = dictionary.data();
+		assertThat(symbols.length()).isEqualTo(2);
+		int dataStart = (int) symbols.buffers(2).offset();
+		assertThat(utf8(dictionaryBody, dataStart + dictionaryBody.getInt(4), dictionaryBody.getInt(8) - dictionaryBody.getInt(4))).isEqualTo("ETH");
+
+		assertBatch(stream, 0, btc, 1, 4);
+		assertBatch(stream, 1, eth, 0, eth.size());
+
+		assertThat(stream.getInt()).isEqualTo(0xFFFFFFFF);
+		assertThat(stream.getInt()).isZero();
+		assertThat(stream.hasRemaining()).isFalse();
+	}
+
+	private void assertBatch(ByteBuffer stream, int symbolIndex, PriceSeries series, int from, int to) {
+		Message message = readMessage(stream);
+		assertThat(message.headerType()).isEqualTo(MessageHeader.RecordBatch);
+		RecordBatch batch = (RecordBatch) message.header(new RecordBatch());
+		ByteBuffer body = readBody(stream, message);
+
+		assertThat(batch.length()).isEqualTo(to - from);
+		assertThat(batch.nodesLength()).isEqualTo(3);
+		assertThat(batch.buffersLength()).isEqualTo(6);
+		for (int i = 0; i < batch.buffersLength(); i++) {
+			assertThat(batch.buffers(i).offset() % 8).isZero();
+		}
+
+		int indexes = (int) batch.buffers(1).offset();
+		int timestamps = (int) batch.buffers(3).offset();
+		int prices = (int) batch.buffers(5).offset();
+		for (int row = 0; row < to - from; row++) {
+			assertThat(body.getInt(indexes + row * 4)).isEqualTo(symbolIndex);
+			assertThat(body.getLong(timestamps + row * 8)).isEqualTo(series.timestampAt(from + row));
+			assertThat(body.getDouble(prices + row * 8)).isEqualTo(series.priceAt(from + row));
+		}
+	}
+
+	private static Message readMessage(ByteBuffer stream) {
+		assertThat(stream.getInt()).isEqualTo(0xFFFFFFFF);
+		int length = stream.getInt();
+		assertThat(length % 8).isZero();
+
+		ByteBuffer metadata = stream.slice(stream.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+		stream.position(stream.position() + length);
+		return Message.getRootAsMessage(metadata);
+	}
+
+	private static ByteBuffer readBody(ByteBuffer stream, Message message) {
+		int length = (int) message.bodyLength();
+		ByteBuffer body = stream.slice(stream.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+		stream.position(stream.position() + length);
+		return body;
+	}
+
+	private static String utf8(ByteBuffer buffer, int offset, int length) {
+		byte[] bytes = new byte[length];
+		buffer.get(offset, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static PriceSeries series(String symbol, int ticks) {
+		List<CryptoRecord> records = new ArrayList<>();
+		for (int i = 0; i < ticks; i++) {
+			records.add(new CryptoRecord(Instant.ofEpochMilli(1_641_000_000_000L + i * 60_000L), symbol, 100 + i * 0.5));
+		}
+		return PriceSeries.of(symbol, records);
+	}
+}
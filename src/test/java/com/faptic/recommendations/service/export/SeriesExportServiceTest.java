@@ -0,0 +1,168 @@
+package com.faptic.recommendations.service.export;
+
+import com.faptic.recommendations.exception.InvalidCursorException;
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.PriceSeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class SeriesExportServiceTest {
+
+	@Autowired
+	private SeriesExportService seriesExportService;
+
+	@Autowired
+	private CryptoRepository cryptoRepository;
+
+	@Test
+	void getSeriesExportLocatesTheRangeOfEachSymbol() {
+		CryptoSnapshot snapshot = cryptoRepository.getSnapshot();
+		int btc = snapshot.getSymbols().idOf("BTC");
+		int xrp = snapshot.getSymbols().idOf("XRP");
+		Instant start = Instant.parse("2022-01-05T00:00:00Z");
+		Instant end = Instant.parse("2022-01-20T00:00:00Z");
+
+		SeriesExport export = seriesExportService.getSeriesExport(new int[]{xrp, btc}, start, end);
+
+		assertThat(export.symbols()).isEqualTo(snapshot.getSymbols().getSymbols());
+		assertThat(export.batches()).extracting(SeriesExport.Batch::symbolId).containsExactly(xrp, btc);
+		for (SeriesExport.Batch batch : export.batches()) {
+			PriceSeries series = snapshot.getSeries(batch.symbolId());
+			assertThat(batch.to() - batch.from())
+					.isEqualTo(series.indexAfter(end.toEpochMilli()) - series.indexAtOrAfter(start.toEpochMilli()));
+			assertThat(batch.series().timestampAt(batch.from())).isGreaterThanOrEqualTo(start.toEpochMilli());
+		}
+	}
+
+	@Test
+	void getTickPageFollowsCursorsThroughTheRange() {
+		int btc = cryptoRepository.getSnapshot().getSymbols().idOf("BTC");
+		Instant start = Instant.parse("2022-01-05T00:00:00Z");
+		Instant end = Instant.parse("2022-01-20T00:00:00Z");
+		PriceSeries series = cryptoRepository.getSnapshot().getSeries(btc);
+
+		List<TickPage> pages = new ArrayList<>();
+		String cursor = null;
+		do {
+			TickPage page = seriesExportService.getTickPage(btc, start, end, cursor, 7);
+			pages.add(page);
+			cursor = page.nextCursor();
+		} while (cursor != null);
+
+		assertThat(pages.get(0).from()).isEqualTo(series.indexAtOrAfter(start.toEpochMilli()));
+		assertThat(pages.get(pages.size() - 1).to()).isEqualTo(series.indexAfter(end.toEpochMilli()));
+		for (int i = 1; i < pages.size(); i++) {
+			assertThat(pages.get(i).from()).isEqualTo(pages.get(i - 1).to());
+			assertThat(pages.get(i - 1).size()).isEqualTo(7);
+		}
+	}
+
+	@Test
+	void getTickPageWithoutBoundsCoversTheWholeSeries() {
+		int xrp = cryptoRepository.getSnapshot().getSymbols().idOf("XRP");
+
+		TickPage page = seriesExportService.getTickPage(xrp, null, null, null, 1000);
+
+		assertThat(page.from()).isZero();
+		assertThat(page.size()).isEqualTo(80);
+		assertThat(page.nextCursor()).isNull();
+	}
+
+	@Test
+	void getTickPageMergesOnlyThePageOfATieredSeries(@TempDir Path directory) {
+		CryptoRepository repository = new CryptoRepository();
+		ReflectionTestUtils.setField(repository, "tiered", true);
+		ReflectionTestUtils.setField(repository, "hotWindow", Duration.ofDays(1));
+		ReflectionTestUtils.setField(repository, "coldDirectory", directory);
+		// a tick every two minutes for twenty days, compacted into a segment per day once a day is out of the hot window
+		Instant start = Instant.parse("2022-01-01T00:00:00Z");
+		for (int day = 0; day < 20; day++) {
+			List<CryptoRecord> records = new ArrayList<>();
+			for (int i = 0; i < 720; i++) {
+				records.add(new CryptoRecord(start.plus(Duration.ofMinutes(day * 1440L + i * 2L)), "BTC", day * 1000 + i));
+			}
+			repository.append("BTC", records);
+		}
+		CryptoSnapshot snapshot = repository.getSnapshot();
+		assertThat(snapshot.getColdTier(0)).isNotNull();
+		PriceSeries expected = snapshot.getSeries(0);
+		SeriesExportService service = new SeriesExportService(repository);
+
+		List<Long> timestamps = new ArrayList<>();
+		String cursor = null;
+		do {
+			TickPage page = service.getTickPage(0, null, null, cursor, 500);
+			// the page, the tick after it and the blocks around them, not the whole history
+			assertThat(page.series().size()).isLessThan(4 * 1024);
+			for (int i = page.from(); i < page.to(); i++) {
+				timestamps.add(page.series().timestampAt(i));
+				assertThat(page.series().priceAt(i)).isEqualTo(expected.priceAt(timestamps.size() - 1));
+			}
+			cursor = page.nextCursor();
+		} while (cursor != null);
+
+		assertThat(timestamps).hasSize(expected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(timestamps.get(i)).isEqualTo(expected.timestampAt(i));
+		}
+	}
+
+	@Test
+	void getTickPageRejectsAMalformedCursor() {
+		int btc = cryptoRepository.getSnapshot().getSymbols().idOf("BTC");
+
+		assertThatThrownBy(() -> seriesExportService.getTickPage(btc, null, null, "not a cursor", 10))
+				.isInstanceOf(InvalidCursorException.class);
+	}
+
+	@Test
+	void writeTicksCsvUsesTheSourceLayout() throws Exception {
+		int btc = cryptoRepository.getSnapshot().getSymbols().idOf("BTC");
+		TickPage page = seriesExportService.getTickPage(btc, null, null, null, 2);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		seriesExportService.writeTicksCsv(page, out);
+
+		assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo("""
+				timestamp,symbol,price
+				1641009600000,BTC,46813.21
+				1641020400000,BTC,46979.61
+				""");
+	}
+
+	@Test
+	void writeTicksCsvStreamsMoreThanOneBuffer() throws Exception {
+		int btc = cryptoRepository.getSnapshot().getSymbols().idOf("BTC");
+		TickPage page = seriesExportService.getTickPage(btc, null, null, null, 1000);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TickCsvWriter writer = new TickCsvWriter(out);
+		writer.writeHeader();
+		for (int i = 0; i < 100; i++) {
+			writer.writeTicks(page.series(), page.from(), page.to());
+		}
+		writer.flush();
+
+		String[] lines = out.toString(StandardCharsets.US_ASCII).split("\n");
+		assertThat(out.size()).isGreaterThan(64 * 1024);
+		assertThat(lines).hasSize(1 + 100 * 100);
+		assertThat(lines[lines.length - 1]).isEqualTo(lines[100]);
+	}
+}
@@ -0,0 +1,171 @@
+package com.faptic.recommendations.service.leaderboard;
+
+import com.faptic.recommendations.model.CryptoRecord;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.CryptoSnapshot;
+import com.faptic.recommendations.repository.PriceSeries;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderboardServiceTest {
+
+	private static final Instant START = Instant.parse("2022-01-01T00:00:00Z");
+	private static final Instant END = Instant.parse("2022-01-11T00:00:00Z");
+	private static final List<String> SYMBOLS = List.of("BTC", "ETH", "DOGE", "XRP");
+
+	@Test
+	void leaderboardsFollowAppendsInAnyOrder() {
+		CryptoRepository repository = new CryptoRepository();
+		LeaderboardService leaderboardService = new LeaderboardService(repository,
+				LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-11"), List.of("24h=PT24H", "7d=P7D"));
+		leaderboardService.init();
+
+		Random random = new Random(42);
+		for (int i = 0; i < 600; i++) {
+			String symbol = SYMBOLS.get(random.nextInt(SYMBOLS.size()));
+			// mostly moving forward over two weeks, with late ticks now and then
+			long hours = i / 2 - (random.nextInt(10) == 0 ? random.nextInt(96) : 0);
+			Instant timestamp = START.plus(Duration.ofHours(Math.max(0, hours))).plusSeconds(random.nextInt(3600));
+			repository.append(symbol, List.of(new CryptoRecord(timestamp, symbol, 1 + random.nextDouble() * 100)));
+
+			if (i % 50 == 0) {
+				assertLeaderboards(repository.getSnapshot(), leaderboardService);
+			}
+		}
+		assertLeaderboards(repository.getSnapshot(), leaderboardService);
+	}
+
+	@Test
+	void initialBuildCoversExistingData() {
+		CryptoRepository repository = new CryptoRepository();
+		repository.append("BTC", List.of(
+				new CryptoRecord(START.plus(Duration.ofHours(1)), "BTC", 10),
+				new CryptoRecord(START.plus(Duration.ofHours(30)), "BTC", 20)));
+		repository.append("ETH", List.of(new CryptoRecord(START.plus(Duration.ofHours(2)), "ETH", 5)));
+
+		LeaderboardService leaderboardService = new LeaderboardService(repository,
+				LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-11"), List.of("24h=PT24H"));
+		leaderboardService.init();
+
+		assertThat(leaderboardService.getWindowNames()).containsExactly(LeaderboardService.DEFAULT_WINDOW, "24h");
+		assertThat(leaderboardService.getLeaderboard("default")).extracting(CryptoStats::getSymbol).containsExactly("BTC", "ETH");
+		// ETH has no tick within 24 hours of the newest one
+		assertThat(leaderboardService.getLeaderboard("24h")).extracting(CryptoStats::getSymbol).containsExactly("BTC");
+		assertThat(leaderboardService.getLeaderboard("1y")).isNull();
+	}
+
+	@Test
+	void rangeLookupMatchesOnlyTheFixedWindowOfTheCurrentSnapshot() {
+		CryptoRepository repository = new CryptoRepository();
+		LeaderboardService leaderboardService = new LeaderboardService(repository,
+				LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-11"), List.of());
+		leaderboardService.init();
+		CryptoSnapshot snapshot = repository.append("BTC", List.of(new CryptoRecord(START, "BTC", 10)));
+
+		assertThat(leaderboardService.getLeaderboard(snapshot, START, END)).hasSize(1);
+		assertThat(leaderboardService.getLeaderboard(snapshot, START, END.minusSeconds(1))).isNull();
+	}
+
+	@Test
+	void appendsNotifiedOutOfOrderAreCoveredBeforeTheirVersionIsServed() throws Exception {
+		CryptoRepository repository = new CryptoRepository();
+		CountDownLatch held = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// registered before the leaderboards, holds back the notification of the DOGE append
+		repository.addAppendListener((snapshot, symbol, records) -> {
+			if (symbol.equals("DOGE")) {
+				held.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		LeaderboardService leaderboardService = new LeaderboardService(repository,
+				LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-11"), List.of("24h=PT24H", "7d=P7D"));
+		leaderboardService.init();
+		repository.append("BTC", List.of(new CryptoRecord(START.plus(Duration.ofHours(1)), "BTC", 10)));
+		repository.append("ETH", List.of(new CryptoRecord(START.plus(Duration.ofHours(2)), "ETH", 5)));
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<CryptoSnapshot> first = executor.submit(() -> repository.append("DOGE", List.of(
+					new CryptoRecord(START.plus(Duration.ofHours(3)), "DOGE", 1),
+					new CryptoRecord(START.plus(Duration.ofHours(4)), "DOGE", 100))));
+			assertThat(held.await(10, TimeUnit.SECONDS)).isTrue();
+
+			// published after DOGE but notified first
+			CryptoSnapshot second = repository.append("ETH", List.of(new CryptoRecord(START.plus(Duration.ofHours(5)), "ETH", 6)));
+			assertLeaderboards(second, leaderboardService);
+			assertThat(leaderboardService.getLeaderboard(second, START, END))
+					.isEqualTo(bruteForce(second, START.toEpochMilli(), END.toEpochMilli()))
+					.extracting(CryptoStats::getSymbol)
+					.containsExactly("DOGE", "ETH", "BTC");
+
+			release.countDown();
+			first.get(10, TimeUnit.SECONDS);
+			assertLeaderboards(repository.getSnapshot(), leaderboardService);
+			assertThat(leaderboardService.getLeaderboard(repository.getSnapshot(), START, END))
+					.isEqualTo(bruteForce(repository.getSnapshot(), START.toEpochMilli(), END.toEpochMilli()));
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private static void assertLeaderboards(CryptoSnapshot snapshot, LeaderboardService leaderboardService) {
+		assertThat(leaderboardService.getLeaderboard("default")).isEqualTo(bruteForce(snapshot, START.toEpochMilli(), END.toEpochMilli()));
+
+		long newest = Long.MIN_VALUE;
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			PriceSeries series = snapshot.getSeries(symbolId);
+			newest = Math.max(newest, series.timestampAt(series.size() - 1));
+		}
+		assertThat(leaderboardService.getLeaderboard("24h")).isEqualTo(bruteForce(snapshot, newest - Duration.ofHours(24).toMillis() + 1, newest));
+		assertThat(leaderboardService.getLeaderboard("7d")).isEqualTo(bruteForce(snapshot, newest - Duration.ofDays(7).toMillis() + 1, newest));
+	}
+
+	// ranking over the ticks in [from, to], recomputed from scratch
+	private static List<CryptoStats> bruteForce(CryptoSnapshot snapshot, long from, long to) {
+		List<CryptoStats> result = new ArrayList<>();
+		for (int symbolId = 0; symbolId < snapshot.symbolCount(); symbolId++) {
+			PriceSeries series = snapshot.getSeries(symbolId);
+			CryptoStats stats = null;
+			for (int i = 0; i < series.size(); i++) {
+				long timestamp = series.timestampAt(i);
+				if (timestamp < from || timestamp > to) {
+					continue;
+				}
+				double price = series.priceAt(i);
+				if (stats == null) {
+					stats = new CryptoStats(series.getSymbol(), Instant.ofEpochMilli(timestamp), Instant.ofEpochMilli(timestamp), price, price);
+				} else {
+					stats.setNewestTimestamp(Instant.ofEpochMilli(timestamp));
+					stats.setMinPrice(Math.min(stats.getMinPrice(), price));
+					stats.setMaxPrice(Math.max(stats.getMaxPrice(), price));
+				}
+			}
+			if (stats != null) {
+				result.add(stats);
+			}
+		}
+		result.sort(Comparator.comparing(CryptoStats::getNormalizedRange).reversed());
+		return result;
+	}
+}
@@ -0,0 +1,98 @@
+package com.faptic.recommendations.service.scoring;
+
+import com.faptic.recommendations.exception.UnknownMetricException;
+import com.faptic.recommendations.model.CryptoScore;
+import com.faptic.recommendations.model.CryptoStats;
+import com.faptic.recommendations.repository.CryptoRepository;
+import com.faptic.recommendations.repository.PriceSeries;
+import com.faptic.recommendations.service.CryptoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+class ScoringServiceTest {
+
+	private static final Instant START_DATE = Instant.parse("2022-01-01T00:00:00Z");
+	private static final Instant END_DATE = Instant.parse("2022-01-31T23:59:59Z");
+
+	@Autowired
+	private ScoringService scoringService;
+
+	@Autowired
+	private CryptoService cryptoService;
+
+	@Autowired
+	private CryptoRepository cryptoRepository;
+
+	@Test
+	void allMetricsAreRegistered() {
+		assertThat(scoringService.getMetricNames()).containsExactlyInAnyOrder("normalized-range", "volatility", "momentum", "drawdown", "sharpe");
+	}
+
+	@Test
+	void rankByNormalizedRangeMatchesStats() {
+		List<CryptoScore> ranking = scoringService.rank(List.of("normalized-range"), START_DATE, END_DATE);
+		List<CryptoStats> stats = cryptoService.getAllCryptoStatsByNormalizedRange(START_DATE, END_DATE);
+
+		assertThat(ranking).extracting(CryptoScore::getSymbol).containsExactlyElementsOf(stats.stream().map(CryptoStats::getSymbol).toList());
+		for (int i = 0; i < ranking.size(); i++) {
+			assertThat(ranking.get(i).getScores().get("normalized-range")).isCloseTo(stats.get(i).getNormalizedRange(), within(1e-12));
+			assertThat(ranking.get(i).getOldestTimestamp()).isEqualTo(stats.get(i).getOldestTimestamp());
+			assertThat(ranking.get(i).getNewestTimestamp()).isEqualTo(stats.get(i).getNewestTimestamp());
+		}
+	}
+
+	@Test
+	void rankBySeveralMetricsSortsByTheFirst() {
+		List<CryptoScore> ranking = scoringService.rank(List.of("momentum", "volatility", "drawdown"), START_DATE, END_DATE);
+
+		assertThat(ranking).hasSize(5);
+		assertThat(ranking).allSatisfy(score -> assertThat(score.getScores()).containsOnlyKeys("momentum", "volatility", "drawdown"));
+		assertThat(ranking).extracting(score -> score.getScores().get("momentum")).isSortedAccordingTo((a, b) -> Double.compare(b, a));
+
+		CryptoScore btc = ranking.stream().filter(score -> score.getSymbol().equals("BTC")).findFirst().orElseThrow();
+		PriceSeries series = cryptoRepository.getSnapshot().getSeries("BTC");
+		int from = series.indexAtOrAfter(START_DATE.toEpochMilli());
+		int to = series.indexAfter(END_DATE.toEpochMilli());
+		assertThat(btc.getScores().get("momentum")).isCloseTo(series.priceAt(to - 1) / series.priceAt(from) - 1, within(1e-12));
+		assertThat(btc.getScores().get("volatility")).isPositive();
+		assertThat(btc.getScores().get("drawdown")).isNegative().isGreaterThanOrEqualTo(-1.0);
+	}
+
+	@Test
+	void sliceSummaryMatchesTextbookFormulas() {
+		PriceSeries series = cryptoRepository.getSnapshot().getSeries("ETH");
+		SliceSummary summary = SliceSummary.of(series, 0, series.size());
+
+		double sum = 0;
+		for (int i = 1; i < series.size(); i++) {
+			sum += Math.log(series.priceAt(i) / series.priceAt(i - 1));
+		}
+		double mean = sum / (series.size() - 1);
+		double squares = 0;
+		for (int i = 1; i < series.size(); i++) {
+			double deviation = Math.log(series.priceAt(i) / series.priceAt(i - 1)) - mean;
+			squares += deviation * deviation;
+		}
+
+		assertThat(summary.getCount()).isEqualTo(series.size());
+		assertThat(summary.getMeanReturn()).isCloseTo(mean, within(1e-12));
+		assertThat(summary.getReturnVariance()).isCloseTo(squares / (series.size() - 1), within(1e-12));
+		assertThat(SliceSummary.of(series, 3, 3)).isNull();
+	}
+
+	@Test
+	void rankByUnknownMetricFails() {
+		assertThatThrownBy(() -> scoringService.rank(List.of("volatility", "luck"), START_DATE, END_DATE))
+				.isInstanceOf(UnknownMetricException.class)
+				.hasMessageContaining("luck");
+	}
+}